@@ -0,0 +1,81 @@
+package com.github.mf.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link ArrayDeque} used as a FIFO queue and as a stack, plus iteration
+ * and growth (the circular array doubles and is unwrapped on resize).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ArrayDequeBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    Integer[] values;
+    ArrayDeque<Integer> deque;
+
+    @Setup
+    public void setup() {
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        deque = new ArrayDeque<Integer>();
+        for (int i = 0; i < size; i++) {
+            deque.addLast(values[i]);
+        }
+    }
+
+    /** Steady-state queue: head and tail chase each other around the array. */
+    @Benchmark
+    public Integer offerPoll() {
+        ArrayDeque<Integer> d = deque;
+        d.offerLast(d.pollFirst());
+        return d.peekFirst();
+    }
+
+    @Benchmark
+    public Integer pushPop() {
+        ArrayDeque<Integer> d = deque;
+        d.push(values[0]);
+        return d.pop();
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (Integer x : deque) {
+            bh.consume(x);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ArrayDeque<Integer> grow() {
+        ArrayDeque<Integer> d = new ArrayDeque<Integer>();
+        Integer[] vs = values;
+        for (int i = 0; i < vs.length; i++) {
+            d.addLast(vs[i]);
+        }
+        return d;
+    }
+}
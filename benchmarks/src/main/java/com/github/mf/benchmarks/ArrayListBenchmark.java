@@ -0,0 +1,90 @@
+package com.github.mf.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link ArrayList} random access, iteration, growth and removal.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ArrayListBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    Integer[] values;
+    int[] order;
+    ArrayList<Integer> list;
+    int cursor;
+
+    @Setup
+    public void setup() {
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        order = Keys.shuffledIndices(size, 7L);
+        list = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            list.add(values[i]);
+        }
+    }
+
+    @Benchmark
+    public Integer get() {
+        int c = cursor;
+        cursor = (c + 1 == size) ? 0 : c + 1;
+        return list.get(order[c]);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (Integer x : list) {
+            bh.consume(x);
+        }
+    }
+
+    @Benchmark
+    public void indexedLoop(Blackhole bh) {
+        ArrayList<Integer> l = list;
+        for (int i = 0, n = l.size(); i < n; i++) {
+            bh.consume(l.get(i));
+        }
+    }
+
+    /** Appends every element to an empty list, growing from the default capacity. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ArrayList<Integer> grow() {
+        ArrayList<Integer> l = new ArrayList<Integer>();
+        Integer[] vs = values;
+        for (int i = 0; i < vs.length; i++) {
+            l.add(vs[i]);
+        }
+        return l;
+    }
+
+    /** Removes from the front and re-appends, shifting the whole array each time. */
+    @Benchmark
+    public boolean removeFirstAddLast() {
+        return list.add(list.remove(0));
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.mf.benchmarks;
+
+import java.io.File;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}.  Accepts the usual JMH command
+ * line, and when the system property {@code bench.classes} names a
+ * directory of compiled {@code jdk1.7} or {@code jdk1.8} classes, prepends
+ * it to the boot class path of every forked JVM so that the benchmarks
+ * measure those sources instead of the running JDK's own library.
+ * A {@code bench.classes} that is not such a directory is rejected, since
+ * the JVM silently ignores missing boot class path entries and would
+ * measure its own library after all.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder opts = new OptionsBuilder().parent(cmd);
+        String classes = System.getProperty("bench.classes", "").trim();
+        if (!classes.isEmpty()) {
+            if (!new File(classes, "java/util").isDirectory()) {
+                throw new IllegalArgumentException("bench.classes: " + classes
+                        + " is not a directory of compiled java.util classes");
+            }
+            // 只对 fork 出的 JVM 生效，-Xbootclasspath/p 覆盖 rt.jar 中的同名类（JDK 7/8）
+            opts.jvmArgsAppend("-Xbootclasspath/p:" + classes);
+        }
+        new Runner(opts.build()).run();
+    }
+}
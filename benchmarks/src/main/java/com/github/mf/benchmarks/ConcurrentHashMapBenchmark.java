@@ -0,0 +1,113 @@
+package com.github.mf.benchmarks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ConcurrentHashMap} under contention: read-only, mixed
+ * read/write groups, and concurrent growth from an empty table (segment
+ * rehash in jdk1.7, cooperative {@code transfer} in jdk1.8).  Thread
+ * counts other than the annotated ones can be given with JMH's
+ * {@code -t} option.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ConcurrentHashMapBenchmark {
+
+    @Param({"1024", "65536"})
+    int size;
+
+    @Param({"RANDOM", "COLLIDING"})
+    Keys.Distribution distribution;
+
+    Keys.Key[] keys;
+    ConcurrentHashMap<Keys.Key, Integer> map;
+
+    @Setup
+    public void setup() {
+        keys = Keys.keys(distribution, size, 42L);
+        map = new ConcurrentHashMap<Keys.Key, Integer>();
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], i);
+        }
+    }
+
+    private Keys.Key randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer get() {
+        return map.get(randomKey());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer put() {
+        Keys.Key k = randomKey();
+        return map.put(k, k.id);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Integer mixedGet() {
+        return map.get(randomKey());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Integer mixedPut() {
+        Keys.Key k = randomKey();
+        return map.put(k, k.id);
+    }
+
+    /**
+     * Each thread fills its own share of a map that starts at the default
+     * capacity, so the threads meet in the resize.
+     */
+    @State(Scope.Group)
+    public static class Growing {
+        final AtomicInteger next = new AtomicInteger();
+        volatile ConcurrentHashMap<Keys.Key, Integer> map =
+            new ConcurrentHashMap<Keys.Key, Integer>();
+    }
+
+    @Benchmark
+    @Group("resize")
+    @GroupThreads(4)
+    public Integer resize(Growing g) {
+        int i = g.next.getAndIncrement() & Integer.MAX_VALUE;
+        int idx = i % size;
+        ConcurrentHashMap<Keys.Key, Integer> m = g.map;
+        if (idx == 0) {
+            // 每填满一轮换一张新表，持续测量扩容过程
+            g.map = m = new ConcurrentHashMap<Keys.Key, Integer>();
+        }
+        Keys.Key k = keys[idx];
+        return m.putIfAbsent(k, k.id);
+    }
+}
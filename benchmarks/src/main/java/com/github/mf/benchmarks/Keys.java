@@ -0,0 +1,103 @@
+package com.github.mf.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Key generators shared by the map and queue benchmarks.
+ */
+final class Keys {
+
+    private Keys() {
+    }
+
+    /** Shape of the generated keys. */
+    enum Distribution {
+        /** 0, 1, 2, ... : well spread, insertion-ordered */
+        SEQUENTIAL,
+        /** uniformly random ints */
+        RANDOM,
+        /**
+         * keys whose hash codes fall into only a few buckets; makes
+         * {@code HashMap} chains long enough to treeify in jdk1.8
+         */
+        COLLIDING
+    }
+
+    /**
+     * A comparable key with an explicit hash code, so that collisions can
+     * be produced on purpose.
+     */
+    static final class Key implements Comparable<Key> {
+        final int id;
+        final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            return (id < o.id) ? -1 : ((id == o.id) ? 0 : 1);
+        }
+    }
+
+    /** Buckets used by {@link Distribution#COLLIDING}. */
+    static final int COLLIDING_BUCKETS = 8;
+
+    static Key[] keys(Distribution d, int n, long seed) {
+        Random rnd = new Random(seed);
+        Key[] ks = new Key[n];
+        for (int i = 0; i < n; i++) {
+            switch (d) {
+                case SEQUENTIAL:
+                    ks[i] = new Key(i, i);
+                    break;
+                case RANDOM:
+                    int id = rnd.nextInt();
+                    ks[i] = new Key(id, id);
+                    break;
+                default:
+                    // 同一个桶中 hash 相同，只能靠 compareTo 区分
+                    ks[i] = new Key(i, (i % COLLIDING_BUCKETS) << 4);
+                    break;
+            }
+        }
+        return ks;
+    }
+
+    static int[] ints(Distribution d, int n, long seed) {
+        Random rnd = new Random(seed);
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (d == Distribution.SEQUENTIAL) ? i : rnd.nextInt();
+        }
+        return a;
+    }
+
+    /** A random permutation of {@code 0 .. n-1}, used as lookup order. */
+    static int[] shuffledIndices(int n, long seed) {
+        Random rnd = new Random(seed);
+        int[] idx = new int[n];
+        for (int i = 0; i < n; i++) {
+            idx[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int t = idx[i];
+            idx[i] = idx[j];
+            idx[j] = t;
+        }
+        return idx;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.mf.benchmarks;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link PriorityQueue} steady-state offer/poll (siftUp/siftDown),
+ * heapify of a whole collection, growth, and iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PriorityQueueBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    @Param({"SEQUENTIAL", "RANDOM"})
+    Keys.Distribution distribution;
+
+    Integer[] values;
+    PriorityQueue<Integer> queue;
+    int cursor;
+
+    @Setup
+    public void setup() {
+        int[] a = Keys.ints(distribution, size, 42L);
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = a[i];
+        }
+        queue = new PriorityQueue<Integer>(Arrays.asList(values));
+    }
+
+    /** Keeps the size constant: removes the minimum and inserts another value. */
+    @Benchmark
+    public Integer offerPoll() {
+        int c = cursor;
+        cursor = (c + 1 == size) ? 0 : c + 1;
+        PriorityQueue<Integer> q = queue;
+        Integer min = q.poll();
+        q.offer(values[c]);
+        return min;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public PriorityQueue<Integer> heapify() {
+        return new PriorityQueue<Integer>(Arrays.asList(values));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public PriorityQueue<Integer> grow() {
+        PriorityQueue<Integer> q = new PriorityQueue<Integer>();
+        Integer[] vs = values;
+        for (int i = 0; i < vs.length; i++) {
+            q.offer(vs[i]);
+        }
+        return q;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (Integer x : queue) {
+            bh.consume(x);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.mf.benchmarks;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link TreeMap} lookup, update, in-order iteration, and the two ways of
+ * building a map: repeated {@code put} (red-black rebalancing) versus
+ * copying a {@code SortedMap} ({@code buildFromSorted}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TreeMapBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    @Param({"SEQUENTIAL", "RANDOM"})
+    Keys.Distribution distribution;
+
+    Keys.Key[] keys;
+    int[] order;
+    TreeMap<Keys.Key, Integer> map;
+    int cursor;
+
+    @Setup
+    public void setup() {
+        keys = Keys.keys(distribution, size, 42L);
+        order = Keys.shuffledIndices(size, 7L);
+        map = new TreeMap<Keys.Key, Integer>();
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], i);
+        }
+    }
+
+    private Keys.Key nextKey() {
+        int c = cursor;
+        cursor = (c + 1 == size) ? 0 : c + 1;
+        return keys[order[c]];
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(nextKey());
+    }
+
+    @Benchmark
+    public Integer put() {
+        Keys.Key k = nextKey();
+        return map.put(k, k.id);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (Map.Entry<Keys.Key, Integer> e : map.entrySet()) {
+            bh.consume(e.getValue());
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public TreeMap<Keys.Key, Integer> buildByPut() {
+        TreeMap<Keys.Key, Integer> m = new TreeMap<Keys.Key, Integer>();
+        Keys.Key[] ks = keys;
+        for (int i = 0; i < ks.length; i++) {
+            m.put(ks[i], i);
+        }
+        return m;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public TreeMap<Keys.Key, Integer> buildFromSorted() {
+        return new TreeMap<Keys.Key, Integer>(map);
+    }
+}
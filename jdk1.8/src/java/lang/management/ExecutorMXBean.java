@@ -0,0 +1,172 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.management;
+
+/**
+ * The management interface for the task statistics of an executor, for
+ * example a {@link java.util.concurrent.ThreadPoolExecutor} or a {@link
+ * java.util.concurrent.ForkJoinPool} on which statistics have been
+ * enabled with {@code setStatisticsEnabled(true)}.
+ *
+ * <p> A class implementing this interface is an
+ * {@link javax.management.MXBean}. A Java virtual machine has zero or
+ * more implementations of this interface, one for each executor whose
+ * statistics are currently enabled. The {@link
+ * java.lang.management.ManagementFactory#getPlatformMXBeans getPlatformMXBeans}
+ * method can be used to obtain the list of {@code ExecutorMXBean} objects
+ * as follows:
+ * <pre>
+ *     List&lt;ExecutorMXBean&gt; executors = ManagementFactory.getPlatformMXBeans(ExecutorMXBean.class);
+ * </pre>
+ *
+ * <p> The management interfaces are also registered with the platform {@link
+ * javax.management.MBeanServer MBeanServer}. The {@link
+ * javax.management.ObjectName ObjectName} that uniquely identifies the
+ * management interface within the {@code MBeanServer} takes the form:
+ * <pre>
+ *     java.util.concurrent:type=Executor,name=<i>executor name</i>
+ * </pre>
+ * where <em>executor name</em> is the {@link #getName name} of the executor.
+ *
+ * <h3><a name="Histograms">Histograms</a></h3>
+ * Queue wait times and execution times are recorded in histograms with
+ * power-of-two bucket boundaries. The array returned by {@link
+ * #getHistogramBucketLimits} holds the exclusive upper limit of each
+ * bucket in nanoseconds; the last bucket has no upper limit and its
+ * entry is {@link Long#MAX_VALUE}. Element <i>i</i> of {@link
+ * #getQueueWaitTimeHistogram} and {@link #getExecutionTimeHistogram} is
+ * the number of tasks whose time fell in bucket <i>i</i>.
+ *
+ * <p> All counts are maintained without locking and are cumulative
+ * from the moment statistics were enabled. Values read while tasks
+ * are running are estimates: a histogram may not sum exactly to the
+ * matching count when tasks complete concurrently with the read.
+ *
+ * @since   1.8
+ */
+public interface ExecutorMXBean extends PlatformManagedObject {
+
+    /**
+     * Returns the name representing this executor.
+     *
+     * @return  The name of this executor.
+     */
+    String getName();
+
+    /**
+     * Returns the fully qualified class name of this executor.
+     *
+     * @return  The class name of this executor.
+     */
+    String getExecutorType();
+
+    /**
+     * Returns an estimate of the current number of threads in the pool.
+     *
+     * @return  The number of threads in the pool
+     */
+    int getPoolSize();
+
+    /**
+     * Returns an estimate of the number of threads that are running
+     * tasks.
+     *
+     * @return  The number of threads running tasks
+     */
+    int getActiveCount();
+
+    /**
+     * Returns an estimate of the number of tasks waiting to run.
+     *
+     * @return  The number of queued tasks
+     */
+    long getQueuedTaskCount();
+
+    /**
+     * Returns the number of tasks that have finished running, normally
+     * or abruptly, since statistics were enabled.
+     *
+     * @return  The number of completed tasks
+     */
+    long getCompletedTaskCount();
+
+    /**
+     * Returns the number of tasks rejected by this executor since
+     * statistics were enabled.
+     *
+     * @return  The number of rejected tasks
+     */
+    long getRejectedTaskCount();
+
+    /**
+     * Returns an estimate of the number of tasks stolen by one worker
+     * thread from another, or {@code 0} if this executor does not steal
+     * work.
+     *
+     * @return  The number of stolen tasks
+     */
+    long getStealCount();
+
+    /**
+     * Returns the total time in nanoseconds that measured tasks spent
+     * waiting between submission, or for scheduled tasks their trigger
+     * time, and the start of their execution. Tasks for which the
+     * executor cannot observe a submission time are not included.
+     *
+     * @return  The total queue wait time in nanoseconds
+     */
+    long getTotalQueueWaitTime();
+
+    /**
+     * Returns the total time in nanoseconds that tasks spent running.
+     *
+     * @return  The total execution time in nanoseconds
+     */
+    long getTotalExecutionTime();
+
+    /**
+     * Returns the queue wait time histogram.
+     *
+     * @return  The number of tasks in each
+     *          <a href="#Histograms">bucket</a> of queue wait time
+     */
+    long[] getQueueWaitTimeHistogram();
+
+    /**
+     * Returns the execution time histogram.
+     *
+     * @return  The number of tasks in each
+     *          <a href="#Histograms">bucket</a> of execution time
+     */
+    long[] getExecutionTimeHistogram();
+
+    /**
+     * Returns the exclusive upper limit, in nanoseconds, of each
+     * <a href="#Histograms">histogram bucket</a>.
+     *
+     * @return  The bucket limits in nanoseconds
+     */
+    long[] getHistogramBucketLimits();
+}
@@ -220,6 +220,10 @@ import sun.management.ExtendedPlatformComponent;
  * <td> {@link BufferPoolMXBean} </td>
  * <td> {@code java.nio:type=BufferPool,name=}<i>pool name</i></td>
  * </tr>
+ * <tr>
+ * <td> {@link ExecutorMXBean} </td>
+ * <td> {@code java.util.concurrent:type=Executor,name=}<i>executor name</i></td>
+ * </tr>
  * </table>
  * </blockquote>
  *
@@ -25,6 +25,9 @@
 
 package java.lang.management;
 
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -216,6 +219,19 @@ enum PlatformComponent {
             }
         }),
 
+    /**
+     * Executors with statistics enabled.
+     */
+    EXECUTOR(
+        "java.lang.management.ExecutorMXBean",
+        "java.util.concurrent", "Executor", keyProperties("name"),
+        false, // zero or more instances
+        new MXBeanFetcher<ExecutorMXBean>() {
+            public List<ExecutorMXBean> getMXBeans() {
+                return getExecutorMXBeans();
+            }
+        }),
+
 
     // Sun Platform Extension
 
@@ -310,6 +326,30 @@ enum PlatformComponent {
         }
     }
 
+    /*
+     * Returns the MXBeans of the executors that have statistics enabled.
+     * The registry is package-private to java.util.concurrent and is
+     * reached reflectively.
+     */
+    private static List<ExecutorMXBean> getExecutorMXBeans() {
+        return AccessController.doPrivileged(
+            new PrivilegedAction<List<ExecutorMXBean>>() {
+                @SuppressWarnings("unchecked")
+                public List<ExecutorMXBean> run() {
+                    try {
+                        Class<?> c = Class.forName(
+                            "java.util.concurrent.ExecutorStatistics",
+                            true, null);
+                        Method m = c.getDeclaredMethod("getMXBeans");
+                        m.setAccessible(true);
+                        return (List<ExecutorMXBean>) m.invoke(null);
+                    } catch (ReflectiveOperationException e) {
+                        throw new InternalError(e);
+                    }
+                }
+            });
+    }
+
     private final String mxbeanInterfaceName;
     private final String domain;
     private final String type;
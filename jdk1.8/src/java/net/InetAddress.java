@@ -25,14 +25,20 @@
 
 package java.net;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.security.AccessController;
 import java.io.ObjectStreamException;
 import java.io.ObjectStreamField;
@@ -177,6 +183,16 @@ import sun.net.spi.nameservice.*;
  * </dl>
  * </blockquote>
  *
+ * <p> Lookups in the cache do not block one another.  Concurrent
+ * requests to resolve the same host name that miss the cache share a
+ * single name service lookup.  A successful lookup that is used again
+ * during the last fifth of its time-to-live is looked up again in the
+ * background, so that frequently used host names do not expire while
+ * in use; the old addresses stay in the cache until the new ones
+ * arrive or they expire.  Setting the system property
+ * {@code sun.net.inetaddr.refresh} to {@code false} disables the
+ * background refresh.
+ *
  * @author  Chris Warth
  * @see     java.net.InetAddress#getByAddress(byte[])
  * @see     java.net.InetAddress#getByAddress(java.lang.String, byte[])
@@ -708,39 +724,79 @@ class InetAddress implements java.io.Serializable {
     /*
      * Cached addresses - our own litle nis, not!
      */
-    private static Cache addressCache = new Cache(Cache.Type.Positive);
+    private static final Cache addressCache = new Cache(Cache.Type.Positive);
 
-    private static Cache negativeCache = new Cache(Cache.Type.Negative);
+    private static final Cache negativeCache = new Cache(Cache.Type.Negative);
 
-    private static boolean addressCacheInit = false;
+    private static volatile boolean addressCacheInit = false;
 
     static InetAddress[]    unknown_array; // put THIS in cache
 
     static InetAddressImpl  impl;
 
-    private static final HashMap<String, Void> lookupTable = new HashMap<>();
+    /*
+     * Host names (lower case) whose name service lookup is in progress,
+     * mapped to the lookup that other threads resolving the same host
+     * wait for instead of querying the name service themselves.
+     */
+    private static final ConcurrentHashMap<String, NameServiceLookup> lookupTable
+        = new ConcurrentHashMap<>();
+
+    /*
+     * Whether a positive cache entry that is hit during the last part of
+     * its time-to-live is refreshed in the background before it expires.
+     * Controlled by the "sun.net.inetaddr.refresh" system property.
+     */
+    private static final boolean refreshEnabled =
+        !"false".equalsIgnoreCase(AccessController.doPrivileged(
+            new GetPropertyAction("sun.net.inetaddr.refresh", "true")));
+
+    /*
+     * Positive entries are refreshed once this fraction of their
+     * time-to-live has elapsed (numerator over REFRESH_DENOMINATOR).
+     */
+    private static final int REFRESH_NUMERATOR = 4;
+    private static final int REFRESH_DENOMINATOR = 5;
+
+    /* Cache statistics */
+    private static final LongAdder cacheHits = new LongAdder();
+    private static final LongAdder cacheMisses = new LongAdder();
+    private static final LongAdder coalescedLookups = new LongAdder();
+    private static final LongAdder cacheRefreshes = new LongAdder();
 
     /**
      * Represents a cache entry
      */
     static final class CacheEntry {
 
-        CacheEntry(InetAddress[] addresses, long expiration) {
+        CacheEntry(InetAddress[] addresses, long expiration, long refreshTime) {
             this.addresses = addresses;
             this.expiration = expiration;
+            this.refreshTime = refreshTime;
         }
 
-        InetAddress[] addresses;
-        long expiration;
+        final InetAddress[] addresses;
+        final long expiration;     // -1 means never expires
+        final long refreshTime;    // Long.MAX_VALUE means never refreshed
+
+        // 每个条目最多触发一次后台刷新，刷新失败时等待自然过期
+        volatile boolean refreshScheduled;
+
+        boolean isExpired(long now) {
+            return expiration >= 0 && expiration < now;
+        }
     }
 
     /**
      * A cache that manages entries based on a policy specified
-     * at creation time.
+     * at creation time.  Lookups and insertions do not lock; expired
+     * entries are removed when they are found by {@link #get} and by
+     * a sweep that {@link #put} runs at most once per second.
      */
     static final class Cache {
-        private LinkedHashMap<String, CacheEntry> cache;
-        private Type type;
+        private final ConcurrentHashMap<String, CacheEntry> cache;
+        private final Type type;
+        private volatile long nextPurge;
 
         enum Type {Positive, Negative};
 
@@ -749,7 +805,7 @@ class InetAddress implements java.io.Serializable {
          */
         public Cache(Type type) {
             this.type = type;
-            cache = new LinkedHashMap<String, CacheEntry>();
+            cache = new ConcurrentHashMap<String, CacheEntry>();
         }
 
         private int getPolicy() {
@@ -771,41 +827,27 @@ class InetAddress implements java.io.Serializable {
                 return this;
             }
 
-            // purge any expired entries
-
-            if (policy != InetAddressCachePolicy.FOREVER) {
-
-                // As we iterate in insertion order we can
-                // terminate when a non-expired entry is found.
-                LinkedList<String> expired = new LinkedList<>();
-                long now = System.currentTimeMillis();
-                for (String key : cache.keySet()) {
-                    CacheEntry entry = cache.get(key);
-
-                    if (entry.expiration >= 0 && entry.expiration < now) {
-                        expired.add(key);
-                    } else {
-                        break;
-                    }
-                }
-
-                for (String key : expired) {
-                    cache.remove(key);
-                }
-            }
-
-            // create new entry and add it to the cache
-            // -- as a HashMap replaces existing entries we
-            //    don't need to explicitly check if there is
-            //    already an entry for this host.
-            long expiration;
+            long now = System.currentTimeMillis();
+            long expiration, refreshTime = Long.MAX_VALUE;
             if (policy == InetAddressCachePolicy.FOREVER) {
                 expiration = -1;
             } else {
-                expiration = System.currentTimeMillis() + (policy * 1000);
+                long ttl = policy * 1000L;
+                expiration = now + ttl;
+                if (type == Type.Positive && refreshEnabled)
+                    refreshTime = now + ttl / REFRESH_DENOMINATOR * REFRESH_NUMERATOR;
+
+                // purge any expired entries
+                if (now >= nextPurge) {
+                    nextPurge = now + 1000L;
+                    for (Map.Entry<String, CacheEntry> e : cache.entrySet()) {
+                        if (e.getValue().isExpired(now))
+                            cache.remove(e.getKey(), e.getValue());
+                    }
+                }
             }
-            CacheEntry entry = new CacheEntry(addresses, expiration);
-            cache.put(host, entry);
+
+            cache.put(host, new CacheEntry(addresses, expiration, refreshTime));
             return this;
         }
 
@@ -813,42 +855,93 @@ class InetAddress implements java.io.Serializable {
          * Query the cache for the specific host. If found then
          * return its CacheEntry, or null if not found.
          */
-        public CacheEntry get(String host) {
-            int policy = getPolicy();
-            if (policy == InetAddressCachePolicy.NEVER) {
-                return null;
-            }
+        public CacheEntry get(String host, long now) {
             CacheEntry entry = cache.get(host);
 
             // check if entry has expired
-            if (entry != null && policy != InetAddressCachePolicy.FOREVER) {
-                if (entry.expiration >= 0 &&
-                    entry.expiration < System.currentTimeMillis()) {
-                    cache.remove(host);
-                    entry = null;
-                }
+            if (entry != null && entry.isExpired(now)) {
+                cache.remove(host, entry);
+                entry = null;
             }
 
             return entry;
         }
     }
 
+    /**
+     * A name service lookup in progress, which threads resolving the
+     * same host name wait for.
+     */
+    private static final class NameServiceLookup {
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        void complete() {
+            done.countDown();
+        }
+
+        /*
+         * Waits for the lookup to complete.  Like the monitor wait this
+         * replaces, the wait is not cut short by interruption, but the
+         * interrupt status is preserved.
+         */
+        void await() {
+            boolean interrupted = false;
+            for (;;) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Holder for the executor that refreshes cache entries in the
+     * background; a single daemon thread that exits when idle.
+     */
+    private static final class Refresher implements ThreadFactory {
+        static final ThreadPoolExecutor executor =
+            new ThreadPoolExecutor(0, 1, 30L, TimeUnit.SECONDS,
+                                   new LinkedBlockingQueue<Runnable>(),
+                                   new Refresher());
+
+        public Thread newThread(final Runnable r) {
+            return AccessController.doPrivileged(
+                new java.security.PrivilegedAction<Thread>() {
+                    public Thread run() {
+                        Thread t = new Thread(r, "InetAddress-Refresh");
+                        t.setDaemon(true);
+                        t.setContextClassLoader(null);
+                        return t;
+                    }
+                });
+        }
+    }
+
     /*
      * Initialize cache and insert anyLocalAddress into the
      * unknown array with no expiry.
      */
     private static void cacheInitIfNeeded() {
-        assert Thread.holdsLock(addressCache);
         if (addressCacheInit) {
             return;
         }
-        unknown_array = new InetAddress[1];
-        unknown_array[0] = impl.anyLocalAddress();
+        synchronized (addressCache) {
+            if (addressCacheInit) {
+                return;
+            }
+            unknown_array = new InetAddress[1];
+            unknown_array[0] = impl.anyLocalAddress();
 
-        addressCache.put(impl.anyLocalAddress().getHostName(),
-                         unknown_array);
+            addressCache.put(impl.anyLocalAddress().getHostName(),
+                             unknown_array);
 
-        addressCacheInit = true;
+            addressCacheInit = true;
+        }
     }
 
     /*
@@ -858,40 +951,106 @@ class InetAddress implements java.io.Serializable {
                                        InetAddress[] addresses,
                                        boolean success) {
         hostname = hostname.toLowerCase();
-        synchronized (addressCache) {
-            cacheInitIfNeeded();
-            if (success) {
-                addressCache.put(hostname, addresses);
-            } else {
-                negativeCache.put(hostname, addresses);
-            }
+        cacheInitIfNeeded();
+        if (success) {
+            addressCache.put(hostname, addresses);
+        } else {
+            negativeCache.put(hostname, addresses);
         }
     }
 
     /*
      * Lookup hostname in cache (positive & negative cache). If
-     * found return addresses, null if not found.
+     * found return addresses, null if not found.  A positive entry
+     * that is close to expiry is refreshed in the background.
      */
     private static InetAddress[] getCachedAddresses(String hostname) {
         hostname = hostname.toLowerCase();
+        long now = System.currentTimeMillis();
+        CacheEntry entry = getCacheEntry(hostname, now);
+        if (entry != null) {
+            cacheHits.increment();
+            if (now >= entry.refreshTime && !entry.refreshScheduled
+                    && entry.addresses != unknown_array)
+                scheduleRefresh(hostname, entry);
+            return entry.addresses;
+        }
 
-        // search both positive & negative caches
+        // not found
+        cacheMisses.increment();
+        return null;
+    }
 
-        synchronized (addressCache) {
-            cacheInitIfNeeded();
+    /*
+     * Search both positive & negative caches for the (lower case)
+     * hostname.
+     */
+    private static CacheEntry getCacheEntry(String hostname, long now) {
+        cacheInitIfNeeded();
 
-            CacheEntry entry = addressCache.get(hostname);
-            if (entry == null) {
-                entry = negativeCache.get(hostname);
-            }
+        CacheEntry entry = addressCache.get(hostname, now);
+        if (entry == null) {
+            entry = negativeCache.get(hostname, now);
+        }
+        return entry;
+    }
 
-            if (entry != null) {
-                return entry.addresses;
-            }
+    /*
+     * Starts a background lookup of the (lower case) hostname, unless
+     * one is already in progress.  The new addresses replace the entry
+     * if the lookup succeeds; if it fails the entry is left to expire.
+     */
+    private static void scheduleRefresh(final String hostname, CacheEntry entry) {
+        entry.refreshScheduled = true;
+        if (lookupTable.containsKey(hostname))
+            return;
+        final NameServiceLookup lookup = new NameServiceLookup();
+        if (lookupTable.putIfAbsent(hostname, lookup) != null)
+            return;
+        try {
+            Refresher.executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        AccessController.doPrivileged(
+                            new java.security.PrivilegedAction<Void>() {
+                                public Void run() {
+                                    try {
+                                        lookupAndCache(hostname, null, true);
+                                        cacheRefreshes.increment();
+                                    } catch (UnknownHostException e) {
+                                    }
+                                    return null;
+                                }
+                            });
+                    } finally {
+                        lookupTable.remove(hostname, lookup);
+                        lookup.complete();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lookupTable.remove(hostname, lookup);
+            lookup.complete();
         }
+    }
 
-        // not found
-        return null;
+    /*
+     * Address cache statistics, for diagnostics.
+     */
+    static long cacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    static long cacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    static long coalescedLookupCount() {
+        return coalescedLookups.sum();
+    }
+
+    static long cacheRefreshCount() {
+        return cacheRefreshes.sum();
     }
 
     private static NameService createNSProvider(String provider) {
@@ -1264,137 +1423,109 @@ class InetAddress implements java.io.Serializable {
     private static InetAddress[] getAddressesFromNameService(String host, InetAddress reqAddr)
         throws UnknownHostException
     {
-        InetAddress[] addresses = null;
-        boolean success = false;
-        UnknownHostException ex = null;
-
         // Check whether the host is in the lookupTable.
-        // 1) If the host isn't in the lookupTable when
-        //    checkLookupTable() is called, checkLookupTable()
-        //    would add the host in the lookupTable and
-        //    return null. So we will do the lookup.
-        // 2) If the host is in the lookupTable when
-        //    checkLookupTable() is called, the current thread
-        //    would be blocked until the host is removed
-        //    from the lookupTable. Then this thread
-        //    should try to look up the addressCache.
-        //     i) if it found the addresses in the
-        //        addressCache, checkLookupTable()  would
-        //        return the addresses.
-        //     ii) if it didn't find the addresses in the
-        //         addressCache for any reason,
-        //         it should add the host in the
-        //         lookupTable and return null so the
-        //         following code would do  a lookup itself.
-        if ((addresses = checkLookupTable(host)) == null) {
-            try {
-                // This is the first thread which looks up the addresses
-                // this host or the cache entry for this host has been
-                // expired so this thread should do the lookup.
-                for (NameService nameService : nameServices) {
+        // 1) If it isn't, this thread registers its own lookup there,
+        //    does the lookup and caches the result, then removes the
+        //    lookup and releases any threads waiting for it.
+        // 2) If it is, another thread (possibly the background
+        //    refresher) is looking up the same host. This thread
+        //    waits for that lookup and then looks in the cache.
+        //     i) if it finds the addresses there it returns them.
+        //     ii) if it doesn't find them for any reason (e.g. caching
+        //         is disabled) it starts again from 1).
+        String key = host.toLowerCase();
+        for (;;) {
+            NameServiceLookup inflight = lookupTable.get(key);
+            if (inflight == null) {
+                NameServiceLookup lookup = new NameServiceLookup();
+                if ((inflight = lookupTable.putIfAbsent(key, lookup)) == null) {
                     try {
-                        /*
-                         * Do not put the call to lookup() inside the
-                         * constructor.  if you do you will still be
-                         * allocating space when the lookup fails.
-                         */
-
-                        addresses = nameService.lookupAllHostAddr(host);
-                        success = true;
-                        break;
-                    } catch (UnknownHostException uhe) {
-                        if (host.equalsIgnoreCase("localhost")) {
-                            InetAddress[] local = new InetAddress[] { impl.loopbackAddress() };
-                            addresses = local;
-                            success = true;
-                            break;
-                        }
-                        else {
-                            addresses = unknown_array;
-                            success = false;
-                            ex = uhe;
-                        }
+                        return lookupAndCache(host, reqAddr, false);
+                    } finally {
+                        // Delete host from the lookupTable and release
+                        // all threads waiting for this lookup.
+                        lookupTable.remove(key, lookup);
+                        lookup.complete();
                     }
                 }
+            }
 
-                // More to do?
-                if (reqAddr != null && addresses.length > 1 && !addresses[0].equals(reqAddr)) {
-                    // Find it?
-                    int i = 1;
-                    for (; i < addresses.length; i++) {
-                        if (addresses[i].equals(reqAddr)) {
-                            break;
-                        }
-                    }
-                    // Rotate
-                    if (i < addresses.length) {
-                        InetAddress tmp, tmp2 = reqAddr;
-                        for (int j = 0; j < i; j++) {
-                            tmp = addresses[j];
-                            addresses[j] = tmp2;
-                            tmp2 = tmp;
-                        }
-                        addresses[i] = tmp2;
-                    }
-                }
-                // Cache the address.
-                cacheAddresses(host, addresses, success);
-
-                if (!success && ex != null)
-                    throw ex;
-
-            } finally {
-                // Delete host from the lookupTable and notify
-                // all threads waiting on the lookupTable monitor.
-                updateLookupTable(host);
+            coalescedLookups.increment();
+            inflight.await();
+            CacheEntry entry = getCacheEntry(key, System.currentTimeMillis());
+            if (entry != null) {
+                return entry.addresses;
             }
         }
-
-        return addresses;
     }
 
+    /*
+     * Looks up the host in the name services and caches the result.
+     * A failed lookup is cached negatively unless this is a background
+     * refresh, which leaves the existing positive entry to expire.
+     */
+    private static InetAddress[] lookupAndCache(String host, InetAddress reqAddr,
+                                                boolean refresh)
+        throws UnknownHostException
+    {
+        InetAddress[] addresses = null;
+        boolean success = false;
+        UnknownHostException ex = null;
 
-    private static InetAddress[] checkLookupTable(String host) {
-        synchronized (lookupTable) {
-            // If the host isn't in the lookupTable, add it in the
-            // lookuptable and return null. The caller should do
-            // the lookup.
-            if (lookupTable.containsKey(host) == false) {
-                lookupTable.put(host, null);
-                return null;
-            }
+        for (NameService nameService : nameServices) {
+            try {
+                /*
+                 * Do not put the call to lookup() inside the
+                 * constructor.  if you do you will still be
+                 * allocating space when the lookup fails.
+                 */
 
-            // If the host is in the lookupTable, it means that another
-            // thread is trying to look up the addresses of this host.
-            // This thread should wait.
-            while (lookupTable.containsKey(host)) {
-                try {
-                    lookupTable.wait();
-                } catch (InterruptedException e) {
+                addresses = nameService.lookupAllHostAddr(host);
+                success = true;
+                break;
+            } catch (UnknownHostException uhe) {
+                if (host.equalsIgnoreCase("localhost")) {
+                    InetAddress[] local = new InetAddress[] { impl.loopbackAddress() };
+                    addresses = local;
+                    success = true;
+                    break;
+                }
+                else {
+                    addresses = unknown_array;
+                    success = false;
+                    ex = uhe;
                 }
             }
         }
 
-        // The other thread has finished looking up the addresses of
-        // the host. This thread should retry to get the addresses
-        // from the addressCache. If it doesn't get the addresses from
-        // the cache, it will try to look up the addresses itself.
-        InetAddress[] addresses = getCachedAddresses(host);
-        if (addresses == null) {
-            synchronized (lookupTable) {
-                lookupTable.put(host, null);
-                return null;
+        // More to do?
+        if (reqAddr != null && addresses.length > 1 && !addresses[0].equals(reqAddr)) {
+            // Find it?
+            int i = 1;
+            for (; i < addresses.length; i++) {
+                if (addresses[i].equals(reqAddr)) {
+                    break;
+                }
+            }
+            // Rotate
+            if (i < addresses.length) {
+                InetAddress tmp, tmp2 = reqAddr;
+                for (int j = 0; j < i; j++) {
+                    tmp = addresses[j];
+                    addresses[j] = tmp2;
+                    tmp2 = tmp;
+                }
+                addresses[i] = tmp2;
             }
         }
+        // Cache the address.
+        if (success || !refresh)
+            cacheAddresses(host, addresses, success);
 
-        return addresses;
-    }
+        if (!success && ex != null)
+            throw ex;
 
-    private static void updateLookupTable(String host) {
-        synchronized (lookupTable) {
-            lookupTable.remove(host);
-            lookupTable.notifyAll();
-        }
+        return addresses;
     }
 
     /**
@@ -3720,6 +3720,14 @@ public final class Files {
      * {@link Stream#close close} method is invoked after the stream operations
      * are completed.
      *
+     * @implNote
+     * For a file on the default file system, of less than 2GB, and the
+     * {@link StandardCharsets#UTF_8 UTF-8}, {@link StandardCharsets#US_ASCII
+     * US-ASCII} or {@link StandardCharsets#ISO_8859_1 ISO-8859-1} charsets,
+     * the returned stream reads the file through a {@link FileChannel} and
+     * splits for parallel execution by byte ranges ending at line
+     * separators, located using a memory-mapped view of the file, rather
+     * than by copying lines into batches.
      *
      * @param   path
      *          the path to the file
@@ -3741,6 +3749,17 @@ public final class Files {
      * @since   1.8
      */
     public static Stream<String> lines(Path path, Charset cs) throws IOException {
+        // Split by byte ranges of the file if it is on the default file
+        // system, in a charset whose line separators can be found in the
+        // encoded bytes, and small enough for int offsets (ByteBuffer)
+        if (path.getFileSystem() == FileSystems.getDefault() &&
+            FileChannelLinesSpliterator.SUPPORTED_CHARSET_NAMES.contains(cs.name())) {
+            FileChannel fc = FileChannel.open(path, StandardOpenOption.READ);
+            Stream<String> lines = createFileChannelLinesStream(fc, cs);
+            if (lines != null)
+                return lines;
+            fc.close();
+        }
         BufferedReader br = Files.newBufferedReader(path, cs);
         try {
             return br.lines().onClose(asUncheckedRunnable(br));
@@ -3784,4 +3803,36 @@ public final class Files {
     public static Stream<String> lines(Path path) throws IOException {
         return lines(path, StandardCharsets.UTF_8);
     }
+
+    /**
+     * Returns a stream of the lines of the file open on the given channel,
+     * closing the channel when the stream is closed, or null if the file
+     * size cannot be addressed by a {@code FileChannelLinesSpliterator}.
+     */
+    private static Stream<String> createFileChannelLinesStream(FileChannel fc,
+                                                               Charset cs)
+        throws IOException
+    {
+        try {
+            // FileChannel.size() may return zero for some non-empty
+            // files, such as those in /proc, so those are excluded too
+            long length = fc.size();
+            if (length > 0 && length <= Integer.MAX_VALUE) {
+                Spliterator<String> s =
+                    new FileChannelLinesSpliterator(fc, cs, 0, (int) length);
+                return StreamSupport.stream(s, false)
+                                    .onClose(asUncheckedRunnable(fc));
+            }
+        } catch (Error|RuntimeException|IOException e) {
+            try {
+                fc.close();
+            } catch (IOException ex) {
+                try {
+                    e.addSuppressed(ex);
+                } catch (Throwable ignore) {}
+            }
+            throw e;
+        }
+        return null;
+    }
 }
@@ -370,8 +370,20 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      * 计算 key 的哈希码
      */
     static final int hash(Object key) {
-        int h;
-        return (key == null) ? 0 : (h = key.hashCode()) ^ (h >>> 16);
+        return (key == null) ? 0 : spread(key.hashCode());
+    }
+
+    /**
+     * Applies the same bit spreading as {@link #hash(Object)} to an
+     * already computed hash code. Used directly by the primitive
+     * specialized maps ({@link IntHashMap}, {@link LongHashMap},
+     * {@link LongObjectHashMap}) so that they index exactly as a
+     * HashMap holding the corresponding boxed keys would.
+     *
+     * 高 16 位异或低 16 位，与 hash(Object) 相同，供原始类型 Map 复用
+     */
+    static final int spread(int h) {
+        return h ^ (h >>> 16);
     }
 
     /**
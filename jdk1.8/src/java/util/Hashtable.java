@@ -225,6 +225,16 @@ public class Hashtable<K,V>
         putAll(t);
     }
 
+    /**
+     * A constructor chained from {@link Properties} keeps Hashtable fields
+     * uninitialized since they are not used.
+     *
+     * Properties 使用自己的 ConcurrentHashMap 存储，不需要分配 table
+     *
+     * @param dummy a dummy parameter
+     */
+    Hashtable(Void dummy) {}
+
     /**
      * Returns the number of keys in this hashtable.
      *
@@ -560,6 +570,16 @@ public class Hashtable<K,V>
         }
     }
 
+    /** Calls super.clone() */
+    final Object cloneHashtable() {
+        try {
+            return super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
     /**
      * Returns a string representation of this <tt>Hashtable</tt> object
      * in the form of a set of entries, enclosed in braces and separated
@@ -1129,6 +1149,15 @@ public class Hashtable<K,V>
      */
     private void writeObject(java.io.ObjectOutputStream s)
             throws IOException {
+        writeHashtable(s);
+    }
+
+    /**
+     * Perform serialization of the Hashtable to an ObjectOutputStream.
+     * The Properties class overrides this method.
+     */
+    void writeHashtable(java.io.ObjectOutputStream s)
+            throws IOException {
         Entry<Object, Object> entryStack = null;
 
         synchronized (this) {
@@ -1164,6 +1193,16 @@ public class Hashtable<K,V>
      */
     private void readObject(java.io.ObjectInputStream s)
          throws IOException, ClassNotFoundException
+    {
+        readHashtable(s);
+    }
+
+    /**
+     * Perform deserialization of the Hashtable from an ObjectInputStream.
+     * The Properties class overrides this method.
+     */
+    void readHashtable(java.io.ObjectInputStream s)
+         throws IOException, ClassNotFoundException
     {
         // Read in the length, threshold, and loadfactor
         s.defaultReadObject();
@@ -1196,6 +1235,16 @@ public class Hashtable<K,V>
         }
     }
 
+    /**
+     * Called by Properties to write out a simulated threshold and loadfactor.
+     */
+    final void defaultWriteHashtable(java.io.ObjectOutputStream s, int length,
+            float loadFactor) throws IOException {
+        this.threshold = (int)Math.min(length * loadFactor, MAX_ARRAY_SIZE + 1);
+        this.loadFactor = loadFactor;
+        s.defaultWriteObject();
+    }
+
     /**
      * The put method used by readObject. This is provided because put
      * is overridable and should not be called in readObject since the
@@ -0,0 +1,803 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+
+/**
+ * Hash table based implementation of the <tt>Map</tt> interface that maps
+ * primitive <tt>int</tt> keys to primitive <tt>int</tt> values.  Unlike
+ * {@link HashMap}, this class does not allocate a node per mapping nor box
+ * keys and values: mappings live in two parallel <tt>int</tt> arrays that
+ * are probed linearly (open addressing).  The primitive accessors
+ * ({@link #get(int)}, {@link #put(int, int)}, {@link #remove(int)} and
+ * friends) never allocate.
+ *
+ * <p>The table is indexed with the same bit spreading as
+ * <tt>HashMap</tt>, and is sized and grown using the same policy: the
+ * capacity is always a power of two, defaulting to 16, and is doubled
+ * whenever the number of mappings exceeds <i>capacity * load factor</i>.
+ * Because there are no overflow chains, the load factor must be strictly
+ * less than one.
+ *
+ * <p>The boxed {@link Map} methods and the collection views are supported
+ * for interoperability; the views are created lazily, and their iterators
+ * (and the boxed accessors) allocate wrapper objects as usual.  Null keys
+ * and null values are not permitted by the boxed methods.
+ *
+ * <p>The key <tt>0</tt> is stored outside of the table, since <tt>0</tt>
+ * marks free slots.  The primitive {@link #get(int)} returns <tt>0</tt>
+ * for absent keys; use {@link #containsKey(int)} or
+ * {@link #getOrDefault(int, int)} to tell an absent key from a mapping to
+ * <tt>0</tt>.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators of the collection views are <i>fail-fast</i> in the same
+ * sense as those of <tt>HashMap</tt>.
+ *
+ * @see     HashMap
+ * @see     LongHashMap
+ * @see     LongObjectHashMap
+ * @since   1.8
+ */
+public class IntHashMap extends AbstractMap<Integer,Integer>
+    implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = -3295834502375542378L;
+
+    /* ---------------- Fields -------------- */
+
+    /**
+     * The keys, initialized on first use, and resized as necessary.
+     * When allocated, length is always a power of two.  A zero entry
+     * denotes a free slot.
+     */
+    transient int[] keys;
+
+    /**
+     * The values, parallel to keys.
+     */
+    transient int[] vals;
+
+    /**
+     * Whether the key 0 is present; its value is held in zeroValue.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The value mapped to the key 0, if hasZeroKey.
+     */
+    transient int zeroValue;
+
+    /**
+     * Holds cached entrySet(). Note that AbstractMap fields are used
+     * for keySet() and values().
+     */
+    transient Set<Map.Entry<Integer,Integer>> entrySet;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     * Used to make iterators on collection views fail-fast.
+     */
+    transient int modCount;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     * As in HashMap, if the table has not been allocated this holds the
+     * initial capacity, or zero signifying DEFAULT_INITIAL_CAPACITY.
+     *
+     * @serial
+     */
+    int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty <tt>IntHashMap</tt> with the specified initial
+     * capacity and load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range (0, 1)
+     */
+    public IntHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > HashMap.MAXIMUM_CAPACITY)
+            initialCapacity = HashMap.MAXIMUM_CAPACITY;
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty <tt>IntHashMap</tt> with the specified initial
+     * capacity and the default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public IntHashMap(int initialCapacity) {
+        this(initialCapacity, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty <tt>IntHashMap</tt> with the default initial
+     * capacity (16) and the default load factor (0.75).
+     */
+    public IntHashMap() {
+        this.loadFactor = HashMap.DEFAULT_LOAD_FACTOR;
+    }
+
+    /**
+     * Constructs a new <tt>IntHashMap</tt> with the same mappings as the
+     * specified <tt>Map</tt>, sized to hold them without resizing.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null, or
+     *          contains null keys or values
+     */
+    public IntHashMap(Map<? extends Integer, ? extends Integer> m) {
+        this.loadFactor = HashMap.DEFAULT_LOAD_FACTOR;
+        putAll(m);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot holding the given non-zero key, or -1 if none.
+     */
+    final int indexOf(int key) {
+        int[] ks; int k;
+        if ((ks = keys) != null) {
+            int m = ks.length - 1;
+            for (int i = HashMap.spread(key) & m; (k = ks[i]) != 0;
+                 i = (i + 1) & m) {
+                if (k == key)
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * <tt>0</tt> if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the mapped value, or <tt>0</tt> if none
+     */
+    public int get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * <tt>defaultValue</tt> if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key is absent
+     * @return the mapped value, or <tt>defaultValue</tt> if none
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : vals[i];
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the key
+     */
+    public boolean containsKey(int key) {
+        return (key == 0) ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.  This operation scans the whole table.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(int value) {
+        if (hasZeroKey && zeroValue == value)
+            return true;
+        int[] ks, vs;
+        if ((ks = keys) != null && size > 0) {
+            vs = vals;
+            for (int i = 0; i < ks.length; ++i) {
+                if (ks[i] != 0 && vs[i] == value)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>0</tt> if there was no mapping for <tt>key</tt>
+     */
+    public int put(int key, int value) {
+        if (key == 0) {
+            int old = zeroValue;
+            zeroValue = value;
+            if (hasZeroKey)
+                return old;
+            hasZeroKey = true;
+            ++modCount;
+            ++size;
+            return 0;
+        }
+        int[] ks; int m, i, k;
+        if ((ks = keys) == null)
+            ks = resize();
+        m = ks.length - 1;
+        for (i = HashMap.spread(key) & m; (k = ks[i]) != 0; i = (i + 1) & m) {
+            if (k == key) {
+                int old = vals[i];
+                vals[i] = value;
+                return old;
+            }
+        }
+        ks[i] = key;
+        vals[i] = value;
+        ++modCount;
+        if (++size > threshold)
+            resize();
+        return 0;
+    }
+
+    /**
+     * Adds the given increment to the value associated with the key,
+     * treating an absent key as mapped to <tt>0</tt>.
+     *
+     * @param key the key
+     * @param delta the value to add
+     * @return the updated value
+     */
+    public int addTo(int key, int delta) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                zeroValue = 0;
+                ++modCount;
+                ++size;
+            }
+            return zeroValue += delta;
+        }
+        int i = indexOf(key);
+        if (i >= 0)
+            return vals[i] += delta;
+        put(key, delta);
+        return delta;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>0</tt> if there was no mapping for <tt>key</tt>
+     */
+    public int remove(int key) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                return 0;
+            hasZeroKey = false;
+            ++modCount;
+            --size;
+            return zeroValue;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return 0;
+        int old = vals[i];
+        shiftKeys(i);
+        ++modCount;
+        --size;
+        return old;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        int[] ks;
+        ++modCount;
+        if ((ks = keys) != null && size > 0) {
+            Arrays.fill(ks, 0);
+            Arrays.fill(vals, 0);
+        }
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /* ---------------- Boxed Map operations -------------- */
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(Object key) {
+        return (key instanceof Integer) &&
+            containsKey(((Integer)key).intValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsValue(Object value) {
+        return (value instanceof Integer) &&
+            containsValue(((Integer)value).intValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer get(Object key) {
+        int k;
+        return ((key instanceof Integer) && containsKey(k = (Integer)key)) ?
+            get(k) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or value is null
+     */
+    public Integer put(Integer key, Integer value) {
+        int k = key, v = value;
+        boolean present = containsKey(k);
+        int old = put(k, v);
+        return present ? old : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified map is null, or
+     *         contains null keys or values
+     */
+    public void putAll(Map<? extends Integer, ? extends Integer> m) {
+        int s = m.size();
+        if (s > 0) {
+            // 与 HashMap.putMapEntries 相同：预先计算容量，避免多次扩容
+            if (keys == null) {
+                float ft = ((float)s / loadFactor) + 1.0F;
+                int t = ((ft < (float)HashMap.MAXIMUM_CAPACITY) ?
+                         (int)ft : HashMap.MAXIMUM_CAPACITY);
+                if (t > threshold)
+                    threshold = HashMap.tableSizeFor(t);
+            }
+            for (Map.Entry<? extends Integer, ? extends Integer> e :
+                     m.entrySet())
+                put(e.getKey().intValue(), e.getValue().intValue());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer remove(Object key) {
+        int k;
+        return ((key instanceof Integer) && containsKey(k = (Integer)key)) ?
+            remove(k) : null;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The view is created on first use.  Its iterator allocates an entry
+     * per mapping; prefer the primitive accessors on hot paths.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<Integer,Integer>> entrySet() {
+        Set<Map.Entry<Integer,Integer>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>IntHashMap</tt> instance.
+     *
+     * @return a shallow copy of this map
+     */
+    public IntHashMap clone() {
+        IntHashMap result;
+        try {
+            result = (IntHashMap)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        if (keys != null) {
+            result.keys = keys.clone();
+            result.vals = vals.clone();
+        }
+        result.entrySet = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /* ---------------- Internals -------------- */
+
+    /**
+     * Initializes or doubles table size, following the same policy as
+     * {@link HashMap#resize}.  Since there are no chains, every key is
+     * re-probed into the new arrays.
+     *
+     * @return the new key array
+     */
+    final int[] resize() {
+        int[] oldKeys = keys, oldVals = vals;
+        int oldCap = (oldKeys == null) ? 0 : oldKeys.length;
+        int oldThr = threshold;
+        int newCap, newThr = 0;
+        if (oldCap > 0) {
+            if (oldCap >= HashMap.MAXIMUM_CAPACITY) {
+                if (size >= oldCap - 1)
+                    throw new IllegalStateException("Map is full");
+                threshold = Integer.MAX_VALUE;
+                return oldKeys;
+            }
+            else if ((newCap = oldCap << 1) < HashMap.MAXIMUM_CAPACITY &&
+                     oldCap >= HashMap.DEFAULT_INITIAL_CAPACITY)
+                newThr = oldThr << 1; // double threshold
+        }
+        else if (oldThr > 0) // initial capacity was placed in threshold
+            newCap = oldThr;
+        else {               // zero initial threshold signifies using defaults
+            newCap = HashMap.DEFAULT_INITIAL_CAPACITY;
+            newThr = (int)(HashMap.DEFAULT_LOAD_FACTOR *
+                           HashMap.DEFAULT_INITIAL_CAPACITY);
+        }
+        if (newThr == 0) {
+            float ft = (float)newCap * loadFactor;
+            newThr = (newCap < HashMap.MAXIMUM_CAPACITY &&
+                      ft < (float)HashMap.MAXIMUM_CAPACITY ?
+                      (int)ft : Integer.MAX_VALUE);
+        }
+        // 开放寻址下负载因子小于 1，但小容量时仍需保证至少有一个空槽
+        if (newThr >= newCap)
+            newThr = newCap - 1;
+        threshold = newThr;
+        int[] newKeys = new int[newCap], newVals = new int[newCap];
+        keys = newKeys;
+        vals = newVals;
+        if (oldKeys != null) {
+            int m = newCap - 1;
+            for (int j = 0; j < oldCap; ++j) {
+                int k;
+                if ((k = oldKeys[j]) != 0) {
+                    int i = HashMap.spread(k) & m;
+                    while (newKeys[i] != 0)
+                        i = (i + 1) & m;
+                    newKeys[i] = k;
+                    newVals[i] = oldVals[j];
+                }
+            }
+        }
+        return newKeys;
+    }
+
+    /**
+     * Removes the entry at the given slot by shifting later entries of
+     * the same probe run backwards, so that no tombstones are needed.
+     *
+     * @return the slot left free
+     */
+    final int shiftKeys(int pos) {
+        int[] ks = keys, vs = vals;
+        int m = ks.length - 1;
+        for (int last;;) {
+            pos = ((last = pos) + 1) & m;
+            int k;
+            for (;;) {
+                if ((k = ks[pos]) == 0) {
+                    ks[last] = 0;
+                    vs[last] = 0;
+                    return last;
+                }
+                int slot = HashMap.spread(k) & m;
+                if (last <= pos ? (last >= slot || slot > pos)
+                                : (last >= slot && slot > pos))
+                    break;
+                pos = (pos + 1) & m;
+            }
+            ks[last] = k;
+            vs[last] = vs[pos];
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    final class EntrySet extends AbstractSet<Map.Entry<Integer,Integer>> {
+        public final int size()                 { return size; }
+        public final void clear()               { IntHashMap.this.clear(); }
+        public final Iterator<Map.Entry<Integer,Integer>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey(), value = e.getValue();
+            if (!(key instanceof Integer) || !(value instanceof Integer))
+                return false;
+            int k = (Integer)key;
+            return containsKey(k) && get(k) == (Integer)value;
+        }
+        public final boolean remove(Object o) {
+            if (contains(o)) {
+                Object key = ((Map.Entry<?,?>)o).getKey();
+                IntHashMap.this.remove(((Integer)key).intValue());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Entry handed out by the view iterators.  Writes go through to the
+     * map by key, so they remain valid across backward shifts.
+     */
+    final class MapEntry implements Map.Entry<Integer,Integer> {
+        final int key;
+        int value;
+        MapEntry(int key, int value) { this.key = key; this.value = value; }
+        public Integer getKey()        { return key; }
+        public Integer getValue()      { return value; }
+        public Integer setValue(Integer value) {
+            int v = value;
+            int old = this.value;
+            put(key, v);
+            this.value = v;
+            return old;
+        }
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return Integer.valueOf(key).equals(e.getKey()) &&
+                Integer.valueOf(value).equals(e.getValue());
+        }
+        public int hashCode() { return key ^ value; }
+        public String toString() { return key + "=" + value; }
+    }
+
+    /**
+     * Iterates the table from the last slot down to the first, then the
+     * zero key.  Removing through the iterator may shift an entry that
+     * wrapped around the end of the table into an already visited slot;
+     * such entries are remembered and returned at the end.
+     */
+    final class EntryIterator implements Iterator<Map.Entry<Integer,Integer>> {
+        int pos;               // next slot to examine, counting down
+        int last = -1;         // slot of last returned entry, or -1
+        int remaining;         // mappings left to return
+        boolean zeroPending;   // zero key not yet returned
+        boolean lastWasZero;
+        int[] wrapped;         // entries moved behind the cursor by remove
+        int wrappedCount;
+        int lastWrappedKey;
+        boolean lastWasWrapped;
+        int expectedModCount;
+
+        EntryIterator() {
+            int[] ks = keys;
+            pos = (ks == null) ? 0 : ks.length;
+            remaining = size;
+            zeroPending = hasZeroKey;
+            expectedModCount = modCount;
+        }
+
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        public Map.Entry<Integer,Integer> next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            lastWasZero = lastWasWrapped = false;
+            if (zeroPending) {
+                zeroPending = false;
+                lastWasZero = true;
+                return new MapEntry(0, zeroValue);
+            }
+            int[] ks = keys;
+            while (--pos >= 0) {
+                if (ks[pos] != 0)
+                    return new MapEntry(ks[last = pos], vals[pos]);
+            }
+            last = -1;
+            lastWasWrapped = true;
+            int k = lastWrappedKey = wrapped[--wrappedCount];
+            return new MapEntry(k, get(k));
+        }
+
+        public void remove() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (lastWasZero) {
+                lastWasZero = false;
+                IntHashMap.this.remove(0);
+            }
+            else if (lastWasWrapped) {
+                lastWasWrapped = false;
+                IntHashMap.this.remove(lastWrappedKey);
+            }
+            else if (last >= 0) {
+                removeAt(last);
+                last = -1;
+                ++modCount;
+                --size;
+            }
+            else
+                throw new IllegalStateException();
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Variant of shiftKeys recording keys that move from an
+         * unvisited wrapped slot into the visited region.
+         */
+        private void removeAt(int pos) {
+            int[] ks = keys, vs = vals;
+            int m = ks.length - 1;
+            for (int last;;) {
+                pos = ((last = pos) + 1) & m;
+                int k;
+                for (;;) {
+                    if ((k = ks[pos]) == 0) {
+                        ks[last] = 0;
+                        vs[last] = 0;
+                        return;
+                    }
+                    int slot = HashMap.spread(k) & m;
+                    if (last <= pos ? (last >= slot || slot > pos)
+                                    : (last >= slot && slot > pos))
+                        break;
+                    pos = (pos + 1) & m;
+                }
+                if (pos < last) {
+                    if (wrapped == null)
+                        wrapped = new int[2];
+                    else if (wrappedCount == wrapped.length)
+                        wrapped = Arrays.copyOf(wrapped, wrappedCount << 1);
+                    wrapped[wrappedCount++] = k;
+                }
+                ks[last] = k;
+                vs[last] = vs[pos];
+            }
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Save the state of the <tt>IntHashMap</tt> instance to a stream.
+     *
+     * @serialData The <i>capacity</i> of the table (int), followed by
+     *             the <i>size</i> (int), followed by the key (int) and
+     *             value (int) for each key-value mapping, in no
+     *             particular order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        int[] ks = keys;
+        s.defaultWriteObject();
+        s.writeInt((ks == null) ? 0 : ks.length);
+        s.writeInt(size);
+        if (hasZeroKey) {
+            s.writeInt(0);
+            s.writeInt(zeroValue);
+        }
+        if (ks != null && size > 0) {
+            int[] vs = vals;
+            for (int i = 0; i < ks.length; ++i) {
+                if (ks[i] != 0) {
+                    s.writeInt(ks[i]);
+                    s.writeInt(vs[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the <tt>IntHashMap</tt> instance from a stream (i.e.,
+     * deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        s.readInt();                // Read and ignore number of buckets
+        int mappings = s.readInt(); // Read number of mappings (size)
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        keys = vals = null;
+        hasZeroKey = false;
+        size = 0;
+        float ft = (float)mappings / loadFactor + 1.0f;
+        threshold = HashMap.tableSizeFor(
+            (ft < (float)HashMap.MAXIMUM_CAPACITY) ?
+            (int)ft : HashMap.MAXIMUM_CAPACITY);
+        for (int i = 0; i < mappings; i++) {
+            int key = s.readInt();
+            put(key, s.readInt());
+        }
+    }
+}
@@ -1259,6 +1259,7 @@ public final class Spliterators {
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
+        private int limit = MAX_BATCH; // adaptive batch size limit
 
         /**
          * Creates a spliterator reporting the given estimated size and
@@ -1304,7 +1305,9 @@ public final class Spliterators {
              * operations, across combinations of #elements vs #cores,
              * whether or not either are known.  We generate
              * O(sqrt(#elements)) splits, allowing O(sqrt(#cores))
-             * potential speedup.
+             * potential speedup.  Batches of elements that are slow to
+             * produce are additionally bounded in time (see BatchPolicy),
+             * so that such sources split more finely.
              */
             HoldingConsumer<T> holder = new HoldingConsumer<>();
             long s = est;
@@ -1312,12 +1315,17 @@ public final class Spliterators {
                 int n = batch + BATCH_UNIT;
                 if (n > s)
                     n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                if (n > limit)
+                    n = limit;
                 Object[] a = new Object[n];
                 int j = 0;
-                do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
+                long start = System.nanoTime();
+                do {
+                    a[j] = holder.value;
+                } while (++j < n && !BatchPolicy.isFull(j, start) &&
+                         tryAdvance(holder));
                 batch = j;
+                limit = BatchPolicy.limit(j, start, MAX_BATCH);
                 if (est != Long.MAX_VALUE)
                     est -= j;
                 return new ArraySpliterator<>(a, 0, j, characteristics());
@@ -1382,6 +1390,7 @@ public final class Spliterators {
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
+        private int limit = MAX_BATCH; // adaptive batch size limit
 
         /**
          * Creates a spliterator reporting the given estimated size and
@@ -1422,12 +1431,17 @@ public final class Spliterators {
                 int n = batch + BATCH_UNIT;
                 if (n > s)
                     n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                if (n > limit)
+                    n = limit;
                 int[] a = new int[n];
                 int j = 0;
-                do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
+                long start = System.nanoTime();
+                do {
+                    a[j] = holder.value;
+                } while (++j < n && !BatchPolicy.isFull(j, start) &&
+                         tryAdvance(holder));
                 batch = j;
+                limit = BatchPolicy.limit(j, start, MAX_BATCH);
                 if (est != Long.MAX_VALUE)
                     est -= j;
                 return new IntArraySpliterator(a, 0, j, characteristics());
@@ -1492,6 +1506,7 @@ public final class Spliterators {
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
+        private int limit = MAX_BATCH; // adaptive batch size limit
 
         /**
          * Creates a spliterator reporting the given estimated size and
@@ -1532,12 +1547,17 @@ public final class Spliterators {
                 int n = batch + BATCH_UNIT;
                 if (n > s)
                     n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                if (n > limit)
+                    n = limit;
                 long[] a = new long[n];
                 int j = 0;
-                do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
+                long start = System.nanoTime();
+                do {
+                    a[j] = holder.value;
+                } while (++j < n && !BatchPolicy.isFull(j, start) &&
+                         tryAdvance(holder));
                 batch = j;
+                limit = BatchPolicy.limit(j, start, MAX_BATCH);
                 if (est != Long.MAX_VALUE)
                     est -= j;
                 return new LongArraySpliterator(a, 0, j, characteristics());
@@ -1602,6 +1622,7 @@ public final class Spliterators {
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
+        private int limit = MAX_BATCH; // adaptive batch size limit
 
         /**
          * Creates a spliterator reporting the given estimated size and
@@ -1642,12 +1663,17 @@ public final class Spliterators {
                 int n = batch + BATCH_UNIT;
                 if (n > s)
                     n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                if (n > limit)
+                    n = limit;
                 double[] a = new double[n];
                 int j = 0;
-                do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
+                long start = System.nanoTime();
+                do {
+                    a[j] = holder.value;
+                } while (++j < n && !BatchPolicy.isFull(j, start) &&
+                         tryAdvance(holder));
                 batch = j;
+                limit = BatchPolicy.limit(j, start, MAX_BATCH);
                 if (est != Long.MAX_VALUE)
                     est -= j;
                 return new DoubleArraySpliterator(a, 0, j, characteristics());
@@ -1683,6 +1709,50 @@ public final class Spliterators {
 
     // Iterator-based Spliterators
 
+    /**
+     * Adaptive limits on the batches copied into arrays by the {@code
+     * trySplit} methods of the abstract and iterator-based spliterators.
+     * Batch sizes still grow arithmetically, but a batch that takes more
+     * than about TARGET_NANOS to fill is cut short, and the next batch is
+     * limited to the number of elements that took about that long to
+     * produce in the last one.  Per-element cost is thus measured on each
+     * split, so a source whose elements are expensive to produce, for
+     * example lines read from a file, yields many small batches that other
+     * threads can process, while a cheap source is not limited at all.
+     * The clock is read only when the batch size reaches a power of two,
+     * so overhead is logarithmic in the batch size.
+     */
+    static final class BatchPolicy {
+        private BatchPolicy() {}
+
+        /** Target time to produce the elements of one batch (about 4ms) */
+        static final long TARGET_NANOS = 1L << 22;
+
+        /** Minimum size of a batch that is cut short or limited */
+        static final int MIN_BATCH = 1 << 4;
+
+        /**
+         * Returns true if a batch that started filling at the given
+         * time, and now holds j elements, should end now.
+         */
+        static boolean isFull(int j, long start) {
+            return (j & (j - 1)) == 0 && j >= MIN_BATCH &&
+                System.nanoTime() - start >= TARGET_NANOS;
+        }
+
+        /**
+         * Returns the limit on the size of the next batch, given that
+         * the last one, started at the given time, held j elements.
+         */
+        static int limit(int j, long start, int max) {
+            long t = System.nanoTime() - start;
+            if (t <= 0L)
+                return max;
+            long k = (TARGET_NANOS * j) / t;
+            return (k >= max) ? max : (k <= MIN_BATCH) ? MIN_BATCH : (int) k;
+        }
+    }
+
     /**
      * A Spliterator using a given Iterator for element
      * operations. The spliterator implements {@code trySplit} to
@@ -1696,6 +1766,7 @@ public final class Spliterators {
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
+        private int limit = MAX_BATCH; // adaptive batch size limit
 
         /**
          * Creates a spliterator using the given given
@@ -1763,7 +1834,9 @@ public final class Spliterators {
              * operations, across combinations of #elements vs #cores,
              * whether or not either are known.  We generate
              * O(sqrt(#elements)) splits, allowing O(sqrt(#cores))
-             * potential speedup.
+             * potential speedup.  Batches of elements that are slow to
+             * produce are additionally bounded in time (see BatchPolicy),
+             * so that such sources split more finely.
              */
             Iterator<? extends T> i;
             long s;
@@ -1777,12 +1850,17 @@ public final class Spliterators {
                 int n = batch + BATCH_UNIT;
                 if (n > s)
                     n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                if (n > limit)
+                    n = limit;
                 Object[] a = new Object[n];
                 int j = 0;
-                do { a[j] = i.next(); } while (++j < n && i.hasNext());
+                long start = System.nanoTime();
+                do {
+                    a[j] = i.next();
+                } while (++j < n && !BatchPolicy.isFull(j, start) &&
+                         i.hasNext());
                 batch = j;
+                limit = BatchPolicy.limit(j, start, MAX_BATCH);
                 if (est != Long.MAX_VALUE)
                     est -= j;
                 return new ArraySpliterator<>(a, 0, j, characteristics);
@@ -1847,6 +1925,7 @@ public final class Spliterators {
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
+        private int limit = MAX_BATCH; // adaptive batch size limit
 
         /**
          * Creates a spliterator using the given iterator
@@ -1889,12 +1968,17 @@ public final class Spliterators {
                 int n = batch + BATCH_UNIT;
                 if (n > s)
                     n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                if (n > limit)
+                    n = limit;
                 int[] a = new int[n];
                 int j = 0;
-                do { a[j] = i.nextInt(); } while (++j < n && i.hasNext());
+                long start = System.nanoTime();
+                do {
+                    a[j] = i.nextInt();
+                } while (++j < n && !BatchPolicy.isFull(j, start) &&
+                         i.hasNext());
                 batch = j;
+                limit = BatchPolicy.limit(j, start, MAX_BATCH);
                 if (est != Long.MAX_VALUE)
                     est -= j;
                 return new IntArraySpliterator(a, 0, j, characteristics);
@@ -1941,6 +2025,7 @@ public final class Spliterators {
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
+        private int limit = MAX_BATCH; // adaptive batch size limit
 
         /**
          * Creates a spliterator using the given iterator
@@ -1983,12 +2068,17 @@ public final class Spliterators {
                 int n = batch + BATCH_UNIT;
                 if (n > s)
                     n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                if (n > limit)
+                    n = limit;
                 long[] a = new long[n];
                 int j = 0;
-                do { a[j] = i.nextLong(); } while (++j < n && i.hasNext());
+                long start = System.nanoTime();
+                do {
+                    a[j] = i.nextLong();
+                } while (++j < n && !BatchPolicy.isFull(j, start) &&
+                         i.hasNext());
                 batch = j;
+                limit = BatchPolicy.limit(j, start, MAX_BATCH);
                 if (est != Long.MAX_VALUE)
                     est -= j;
                 return new LongArraySpliterator(a, 0, j, characteristics);
@@ -2035,6 +2125,7 @@ public final class Spliterators {
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
+        private int limit = MAX_BATCH; // adaptive batch size limit
 
         /**
          * Creates a spliterator using the given iterator
@@ -2077,12 +2168,17 @@ public final class Spliterators {
                 int n = batch + BATCH_UNIT;
                 if (n > s)
                     n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                if (n > limit)
+                    n = limit;
                 double[] a = new double[n];
                 int j = 0;
-                do { a[j] = i.nextDouble(); } while (++j < n && i.hasNext());
+                long start = System.nanoTime();
+                do {
+                    a[j] = i.nextDouble();
+                } while (++j < n && !BatchPolicy.isFull(j, start) &&
+                         i.hasNext());
                 batch = j;
+                limit = BatchPolicy.limit(j, start, MAX_BATCH);
                 if (est != Long.MAX_VALUE)
                     est -= j;
                 return new DoubleArraySpliterator(a, 0, j, characteristics);
@@ -132,6 +132,13 @@ public class TreeMap<K,V>
      */
     private transient int size = 0;
 
+    /**
+     * Size above which putAll into an empty map sorts the incoming
+     * mappings and builds the tree in one pass (see buildFromUnsorted)
+     * instead of inserting them one at a time.
+     */
+    private static final int BULK_LOAD_THRESHOLD = 64;
+
     /**
      * The number of structural modifications to the tree.
      */
@@ -208,6 +215,132 @@ public class TreeMap<K,V>
         }
     }
 
+    /**
+     * Returns a new tree map containing the given mappings, ordered
+     * according to the given comparator.  The mappings need not be
+     * sorted: they are sorted with {@link Arrays#parallelSort(Object[],
+     * Comparator)}, mappings whose keys compare equal are merged as
+     * {@link #put} would merge them (the first key is kept with the value
+     * of the last such mapping, in iteration order), and the tree is
+     * then built in linear time without rebalancing.  This is much
+     * faster than inserting the mappings one at a time when loading
+     * large amounts of data.
+     *
+     * <p>The mappings are read once; later changes to the given entries
+     * are not reflected in the returned map.
+     *
+     * @param entries the mappings to be placed in the new map
+     * @param comparator the comparator that will be used to order the
+     *        new map.  If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     * @param <K> the type of keys maintained by the new map
+     * @param <V> the type of mapped values
+     * @return a new tree map containing the given mappings
+     * @throws ClassCastException if the keys are not mutually comparable
+     *         by the given ordering
+     * @throws NullPointerException if {@code entries} or any of its
+     *         elements is null, or a key is null and the ordering does not
+     *         permit null keys
+     * @since 1.8
+     */
+    public static <K,V> TreeMap<K,V> fromEntries(
+            Collection<? extends Map.Entry<? extends K, ? extends V>> entries,
+            Comparator<? super K> comparator) {
+        TreeMap<K,V> m = new TreeMap<>(comparator);
+        m.buildFromUnsorted(entries.toArray());
+        return m;
+    }
+
+    /**
+     * Returns a new tree map containing the given mappings, ordered
+     * according to the natural ordering of its keys.  Equivalent to
+     * {@code fromEntries(entries, null)}.
+     *
+     * @param entries the mappings to be placed in the new map
+     * @param <K> the type of keys maintained by the new map
+     * @param <V> the type of mapped values
+     * @return a new tree map containing the given mappings
+     * @throws ClassCastException if the keys are not {@link Comparable},
+     *         or are not mutually comparable
+     * @throws NullPointerException if {@code entries}, any of its
+     *         elements, or any key is null
+     * @see #fromEntries(Collection, Comparator)
+     * @since 1.8
+     */
+    public static <K,V> TreeMap<K,V> fromEntries(
+            Collection<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        return fromEntries(entries, null);
+    }
+
+    /**
+     * Returns a new tree map built in linear time from exactly
+     * {@code size} mappings that the iterator returns in strictly
+     * ascending key order, for example rows streamed from a file or
+     * database that is already sorted.  The input is consumed in one
+     * pass and never copied into an intermediate array.
+     *
+     * @param size the number of mappings to read from the iterator
+     * @param it an iterator returning the mappings in strictly ascending
+     *        order of their keys
+     * @param comparator the comparator that orders the keys, or
+     *        {@code null} for their natural ordering
+     * @param <K> the type of keys maintained by the new map
+     * @param <V> the type of mapped values
+     * @return a new tree map containing the mappings read from {@code it}
+     * @throws IllegalArgumentException if {@code size} is negative, or
+     *         the keys are not in strictly ascending order
+     * @throws NoSuchElementException if the iterator returns fewer than
+     *         {@code size} mappings
+     * @throws ClassCastException if the keys are not mutually comparable
+     *         by the given ordering
+     * @throws NullPointerException if {@code it} is null, or a key is
+     *         null and the ordering does not permit null keys
+     * @since 1.8
+     */
+    public static <K,V> TreeMap<K,V> fromSorted(
+            int size, Iterator<? extends Map.Entry<? extends K, ? extends V>> it,
+            Comparator<? super K> comparator) {
+        if (size < 0)
+            throw new IllegalArgumentException("Illegal size: " + size);
+        Objects.requireNonNull(it);
+        TreeMap<K,V> m = new TreeMap<>(comparator);
+        try {
+            m.buildFromSorted(size, m.new AscendingCheck(it), null, null);
+        } catch (java.io.IOException cannotHappen) {
+        } catch (ClassNotFoundException cannotHappen) {
+        }
+        return m;
+    }
+
+    /**
+     * Iterator used by fromSorted: passes entries through while
+     * checking that their keys are strictly ascending.
+     */
+    private final class AscendingCheck implements Iterator<Object> {
+        private final Iterator<?> it;
+        private Object prev;
+        private boolean started;
+
+        AscendingCheck(Iterator<?> it) {
+            this.it = it;
+        }
+
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        public Object next() {
+            Map.Entry<?,?> e = (Map.Entry<?,?>)it.next();
+            Object k = e.getKey();
+            // 与 put 一样，第一个 key 也要做类型（和 null）检查
+            if (started ? compare(prev, k) >= 0 : compare(k, k) != 0)
+                throw new IllegalArgumentException("keys out of order");
+            prev = k;
+            started = true;
+            return e;
+        }
+    }
+
 
     // Query Operations
 
@@ -341,6 +474,12 @@ public class TreeMap<K,V>
                 return;
             }
         }
+        if (size==0 && mapSize > BULK_LOAD_THRESHOLD) {
+            // 空 map 批量插入：排序后线性建树，避免逐个插入的红黑树调整
+            ++modCount;
+            buildFromUnsorted(map.entrySet().toArray());
+            return;
+        }
         super.putAll(map);
     }
 
@@ -2737,6 +2876,41 @@ public class TreeMap<K,V>
         return middle;
     }
 
+    /**
+     * Builds the tree of this empty map from an array of Map.Entries in
+     * arbitrary order: sorts the array (stably, in parallel for large
+     * arrays), merges runs of equal keys the way repeated puts would,
+     * and hands the result to buildFromSorted.  The array is modified.
+     */
+    @SuppressWarnings("unchecked")
+    private void buildFromUnsorted(Object[] a) {
+        int n = a.length;
+        if (n == 0)
+            return;
+        Object k0 = ((Map.Entry<?,?>)a[0]).getKey();
+        compare(k0, k0); // type (and possibly null) check
+        Arrays.parallelSort(a, (x, y) -> compare(((Map.Entry<?,?>)x).getKey(),
+                                                 ((Map.Entry<?,?>)y).getKey()));
+        int w = 0;
+        for (int i = 1; i < n; ++i) {
+            Map.Entry<?,?> last = (Map.Entry<?,?>)a[w];
+            Map.Entry<?,?> e = (Map.Entry<?,?>)a[i];
+            if (compare(last.getKey(), e.getKey()) == 0)
+                // 排序稳定：保留先出现的 key，采用最后出现的 value，与 put 一致
+                a[w] = new AbstractMap.SimpleImmutableEntry<>(last.getKey(),
+                                                              e.getValue());
+            else
+                a[++w] = e;
+        }
+        n = w + 1;
+        try {
+            buildFromSorted(n, Arrays.asList(a).subList(0, n).iterator(),
+                            null, null);
+        } catch (java.io.IOException cannotHappen) {
+        } catch (ClassNotFoundException cannotHappen) {
+        }
+    }
+
     /**
      * Find the level down to which to assign all nodes BLACK.  This is the
      * last `full' level of the complete binary tree produced by
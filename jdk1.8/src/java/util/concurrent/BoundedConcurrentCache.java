@@ -0,0 +1,838 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A concurrent map whose total weight is bounded, evicting entries as
+ * needed to stay within the bound.  Unlike a {@link java.util.LinkedHashMap}
+ * wrapped with {@link java.util.Collections#synchronizedMap}, retrievals
+ * never take a lock: the mappings live in a {@link ConcurrentHashMap}, and
+ * each read merely records the accessed entry in one of a set of striped,
+ * lossy ring buffers.  The buffers are drained in batches by whichever
+ * thread holds the eviction lock, replaying the accesses against a
+ * least-recently-used ordering and a frequency sketch.
+ *
+ * <p>Eviction combines recency and frequency: when the cache is over its
+ * bound, a newly added entry is admitted only if it has been requested
+ * more often (according to a compact, periodically aged count-min sketch
+ * of recent key frequencies) than the least recently used entry it would
+ * displace; otherwise the new entry itself is evicted.  This keeps
+ * one-hit wonders from flushing a working set.  All bookkeeping is
+ * amortized O(1) per operation.
+ *
+ * <p>Each entry has a weight, computed when it is stored by the weigher
+ * supplied at construction (by default every entry weighs one, so the
+ * bound is a maximum size).  The total weight may briefly exceed the
+ * bound while concurrent insertions are being processed.
+ *
+ * <p>Like {@link ConcurrentHashMap}, this class does not allow
+ * <tt>null</tt> to be used as a key or value, and its views' iterators
+ * are <i>weakly consistent</i>.  Retrievals through the views do not
+ * affect the eviction order.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ * @see ConcurrentHashMap
+ * @since 1.8
+ */
+public class BoundedConcurrentCache<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V> {
+
+    /*
+     * Overview:
+     *
+     * The map is a ConcurrentHashMap from keys to Nodes.  A Node holds
+     * the current value and weight, and links into an access-ordered
+     * doubly linked list (head is least recently used).  The list, the
+     * total weight and the frequency sketch are guarded by evictionLock.
+     *
+     * Reads append the node to a read buffer chosen by the thread's
+     * ThreadLocalRandom probe, as in Striped64 (advancing the probe on a
+     * failed CAS spreads colliding threads over the stripes).  Buffers
+     * are bounded ring buffers; when one is full the access is simply
+     * dropped, since the policy only needs a sample.  When a buffer
+     * passes its drain threshold, the reader tries (without blocking)
+     * to take evictionLock and drains all buffers.
+     *
+     * Writes apply their bookkeeping under evictionLock directly after
+     * updating the hash table; they also drain the read buffers.
+     *
+     * A node removed from the table is "retired" under the lock, after
+     * which it is unlinked and no longer counted.  Stale references to
+     * retired nodes in the read buffers are ignored when drained.
+     */
+
+    /** Number of CPUS, to size the read buffer stripes */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** Slots in a read buffer; must be a power of two. */
+    static final int READ_BUFFER_SIZE = 32;
+    static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    /** Number of pending reads after which a drain is attempted. */
+    static final int READ_BUFFER_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+    /** Upper bound on the number of read buffer stripes. */
+    static final int MAX_READ_BUFFERS = 1 << 6;
+
+    /**
+     * The default weigher: every entry weighs one.
+     */
+    static final ToIntBiFunction<Object,Object> SINGLETON_WEIGHER =
+        (k, v) -> 1;
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * Entry in the table and the access-ordered list.
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        /** Weight of the entry; guarded by evictionLock once linked */
+        int weight;
+        /** Access order links; guarded by evictionLock */
+        Node<K,V> prev, next;
+        /** True while in the access-ordered list; guarded by evictionLock */
+        boolean linked;
+        /** Set once removed from the table; guarded by evictionLock */
+        volatile boolean retired;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A bounded, lossy buffer of recent reads.  Producers claim a slot
+     * by CASing the write counter; the single consumer (the holder of
+     * evictionLock) advances the read counter.  Padded, since stripes
+     * are allocated together and written by different threads.
+     */
+    @sun.misc.Contended static final class ReadBuffer {
+        final AtomicLong writeCount = new AtomicLong();
+        volatile long readCount;
+        final AtomicReferenceArray<Node<?,?>> slots =
+            new AtomicReferenceArray<Node<?,?>>(READ_BUFFER_SIZE);
+    }
+
+    /**
+     * A count-min sketch of key frequencies with 4-bit counters, as used
+     * by TinyLFU admission.  Each key hashes to one counter in each of
+     * four rows of a single long[] table (sixteen counters per long).
+     * After a sample period proportional to the capacity, all counters
+     * are halved so that the sketch tracks recent popularity.  Accessed
+     * only under evictionLock.
+     */
+    static final class FrequencySketch {
+        static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+
+        final long[] table;
+        final int tableMask;
+        final int sampleSize;
+        int additions;
+
+        FrequencySketch(long maximum) {
+            int cap = (int)Math.min(Math.max(maximum, 16L), 1L << 26);
+            int n = Integer.highestOneBit(cap - 1) << 1;
+            table = new long[n];
+            tableMask = n - 1;
+            sampleSize = (int)Math.min(10L * cap, Integer.MAX_VALUE);
+        }
+
+        static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+
+        final int indexOf(int h, int i) {
+            long hash = (h + SEEDS[i]) * SEEDS[i];
+            hash += hash >>> 32;
+            return ((int)hash) & tableMask;
+        }
+
+        /** Returns the estimated frequency of the key, at most 15. */
+        final int frequency(Object key) {
+            int h = spread(key.hashCode()), start = (h & 3) << 2;
+            int freq = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; ++i) {
+                int index = indexOf(h, i);
+                int count = (int)((table[index] >>> ((start + i) << 2)) & 0xfL);
+                freq = Math.min(freq, count);
+            }
+            return freq;
+        }
+
+        /** Increments the popularity of the key, aging if needed. */
+        final void increment(Object key) {
+            int h = spread(key.hashCode()), start = (h & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; ++i) {
+                int index = indexOf(h, i), shift = (start + i) << 2;
+                long mask = 0xfL << shift;
+                if ((table[index] & mask) != mask) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize)
+                reset();
+        }
+
+        /** Halves every counter. */
+        final void reset() {
+            long[] t = table;
+            for (int i = 0; i < t.length; ++i)
+                t[i] = (t[i] >>> 1) & RESET_MASK;
+            additions >>>= 1;
+        }
+    }
+
+    /* ---------------- Fields -------------- */
+
+    /** The backing table */
+    final ConcurrentHashMap<K,Node<K,V>> data;
+
+    /** The maximum total weight */
+    final long maximumWeight;
+
+    /** Computes entry weights */
+    final ToIntBiFunction<? super K, ? super V> weigher;
+
+    /** Guards the access order, weights and sketch */
+    final ReentrantLock evictionLock = new ReentrantLock();
+
+    /** Read buffer stripes, length a power of two */
+    final ReadBuffer[] readBuffers;
+
+    /** Recency and frequency state; guarded by evictionLock */
+    final FrequencySketch sketch;
+    Node<K,V> head, tail;
+    long weightedSize;
+
+    /** Statistics */
+    final LongAdder hitCount = new LongAdder();
+    final LongAdder missCount = new LongAdder();
+    final LongAdder evictionCount = new LongAdder();
+
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Creates a new, empty cache holding at most the given total weight,
+     * as computed by the given weigher.
+     *
+     * @param maximumWeight the maximum total weight of the entries
+     * @param weigher computes the weight of an entry when it is stored;
+     *        must return a non-negative value
+     * @throws IllegalArgumentException if the maximum weight is negative
+     * @throws NullPointerException if the weigher is null
+     */
+    public BoundedConcurrentCache(long maximumWeight,
+                                  ToIntBiFunction<? super K, ? super V> weigher) {
+        if (maximumWeight < 0L)
+            throw new IllegalArgumentException();
+        if (weigher == null)
+            throw new NullPointerException();
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.data = new ConcurrentHashMap<K,Node<K,V>>(
+            (int)Math.min(maximumWeight, 1 << 16));
+        this.sketch = new FrequencySketch(maximumWeight);
+        int n = 1;
+        while (n < NCPU && n < MAX_READ_BUFFERS)
+            n <<= 1;
+        ReadBuffer[] rb = new ReadBuffer[n];
+        for (int i = 0; i < n; ++i)
+            rb[i] = new ReadBuffer();
+        this.readBuffers = rb;
+    }
+
+    /**
+     * Creates a new, empty cache holding at most the given number of
+     * entries.
+     *
+     * @param maximumSize the maximum number of entries
+     * @throws IllegalArgumentException if the maximum size is negative
+     */
+    public BoundedConcurrentCache(long maximumSize) {
+        this(maximumSize, SINGLETON_WEIGHER);
+    }
+
+    final int weigh(K key, V value) {
+        int w = weigher.applyAsInt(key, value);
+        if (w < 0)
+            throw new IllegalArgumentException("Negative weight: " + w);
+        return w;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this cache contains no mapping for the key.  A
+     * successful retrieval counts as an access for eviction purposes.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        Node<K,V> node = data.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        afterRead(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, without
+     * recording an access.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getQuietly(Object key) {
+        Node<K,V> node = data.get(key);
+        return (node == null) ? null : node.value;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return data.containsKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (Node<K,V> node : data.values()) {
+            if (value.equals(node.value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Maps the specified key to the specified value, evicting entries if
+     * the cache is then over its bound.
+     *
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or <tt>null</tt> if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    final V put(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        int weight = weigh(key, value);
+        Node<K,V> node = new Node<K,V>(key, value, weight);
+        for (;;) {
+            Node<K,V> prior = data.putIfAbsent(key, node);
+            if (prior == null) {
+                afterAdd(node);
+                return null;
+            }
+            if (onlyIfAbsent) {
+                V v = prior.value;
+                if (!prior.retired) {
+                    afterRead(prior);
+                    return v;
+                }
+            }
+            else {
+                V old = update(prior, value, weight, null);
+                if (old != null)
+                    return old;
+            }
+            // prior was concurrently removed; help unlink and retry
+            data.remove(key, prior);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        Node<K,V> node = data.remove(key);
+        if (node == null)
+            return null;
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            retire(node);
+        } finally {
+            lock.unlock();
+        }
+        return node.value;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        Node<K,V> node = data.get(key);
+        if (node == null || value == null)
+            return false;
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            if (node.retired || !value.equals(node.value) ||
+                !data.remove(key, node))
+                return false;
+            retire(node);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        Node<K,V> node = data.get(key);
+        return node != null &&
+            update(node, newValue, weigh(key, newValue), oldValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or <tt>null</tt> if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        Node<K,V> node = data.get(key);
+        return (node == null) ? null :
+            update(node, value, weigh(key, value), null);
+    }
+
+    /**
+     * Removes all of the mappings from this cache.
+     */
+    public void clear() {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            for (Node<K,V> node : data.values()) {
+                if (data.remove(node.key, node))
+                    retire(node);
+            }
+            drainReadBuffers();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this
+     * cache.  Reading entries through the view does not count as an
+     * access.  The view's iterators are weakly consistent.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) != null ? es : (entrySet = new EntrySet());
+    }
+
+    /**
+     * Returns the maximum total weight of this cache.
+     *
+     * @return the maximum weight
+     */
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns the total weight of the entries in this cache, after
+     * applying any pending bookkeeping.
+     *
+     * @return the total weight
+     */
+    public long weightedSize() {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            drainReadBuffers();
+            return weightedSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of successful {@link #get} calls.
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of {@link #get} calls that found no mapping.
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the number of entries evicted to respect the bound.
+     *
+     * @return the eviction count
+     */
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    /* ---------------- Policy -------------- */
+
+    /**
+     * Records a read in the calling thread's read buffer, draining the
+     * buffers if this one is filling up and the lock is free.
+     */
+    final void afterRead(Node<K,V> node) {
+        int probe;
+        if ((probe = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit(); // force initialization
+            probe = ThreadLocalRandom.getProbe();
+        }
+        ReadBuffer[] rbs = readBuffers;
+        ReadBuffer b = rbs[probe & (rbs.length - 1)];
+        long w = b.writeCount.get();
+        long pending = w - b.readCount;
+        if (pending < READ_BUFFER_SIZE) {
+            if (b.writeCount.compareAndSet(w, w + 1L)) {
+                b.slots.lazySet((int)w & READ_BUFFER_MASK, node);
+                ++pending;
+            }
+            else
+                ThreadLocalRandom.advanceProbe(probe);
+        }
+        if (pending >= READ_BUFFER_DRAIN_THRESHOLD) {
+            final ReentrantLock lock = evictionLock;
+            if (lock.tryLock()) {
+                try {
+                    drainReadBuffers();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Links a newly inserted node and evicts if over the bound.
+     */
+    final void afterAdd(Node<K,V> node) {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            drainReadBuffers();
+            if (!node.retired) {
+                linkLast(node);
+                weightedSize += node.weight;
+                sketch.increment(node.key);
+                evict(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the value of a live node, if it is still live and (when
+     * expect is non-null) its value equals expect.  Returns the old
+     * value, or null if not replaced.
+     */
+    final V update(Node<K,V> node, V value, int weight, V expect) {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            V old = node.value;
+            if (node.retired || (expect != null && !expect.equals(old)))
+                return null;
+            node.value = value;
+            if (node.linked) {
+                weightedSize += weight - node.weight;
+                onAccess(node);
+            }
+            node.weight = weight;
+            drainReadBuffers();
+            evict(null);
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drains all read buffers, applying the recorded accesses.
+     */
+    final void drainReadBuffers() {
+        for (ReadBuffer b : readBuffers) {
+            long r = b.readCount, w = b.writeCount.get();
+            AtomicReferenceArray<Node<?,?>> slots = b.slots;
+            for (; r < w; ++r) {
+                int i = (int)r & READ_BUFFER_MASK;
+                @SuppressWarnings("unchecked")
+                Node<K,V> node = (Node<K,V>)slots.get(i);
+                if (node == null)
+                    break; // slot claimed but not yet published
+                slots.lazySet(i, null);
+                onAccess(node);
+            }
+            b.readCount = r;
+        }
+    }
+
+    /**
+     * Applies an access: bumps the node's frequency and moves it to the
+     * most recently used position.
+     */
+    final void onAccess(Node<K,V> node) {
+        if (node.linked) {
+            sketch.increment(node.key);
+            if (node != tail) {
+                unlink(node);
+                linkLast(node);
+            }
+        }
+    }
+
+    /**
+     * Evicts entries while over the bound.  The first choice is between
+     * the least recently used entry and the given candidate (a newly
+     * added entry, or null): the one with the lower estimated frequency
+     * goes.
+     */
+    final void evict(Node<K,V> candidate) {
+        while (weightedSize > maximumWeight) {
+            Node<K,V> victim = head;
+            if (victim == null)
+                break;
+            if (candidate != null && candidate != victim &&
+                candidate.linked) {
+                if (sketch.frequency(candidate.key) <=
+                    sketch.frequency(victim.key))
+                    victim = candidate;
+                candidate = null;
+            }
+            if (data.remove(victim.key, victim))
+                evictionCount.increment();
+            retire(victim);
+        }
+    }
+
+    /**
+     * Marks a node removed from the table and drops its bookkeeping.
+     */
+    final void retire(Node<K,V> node) {
+        if (!node.retired) {
+            node.retired = true;
+            if (node.linked) {
+                unlink(node);
+                weightedSize -= node.weight;
+            }
+        }
+    }
+
+    final void linkLast(Node<K,V> node) {
+        Node<K,V> t = tail;
+        node.prev = t;
+        node.next = null;
+        if (t == null)
+            head = node;
+        else
+            t.next = node;
+        tail = node;
+        node.linked = true;
+    }
+
+    final void unlink(Node<K,V> node) {
+        Node<K,V> p = node.prev, n = node.next;
+        if (p == null)
+            head = n;
+        else
+            p.next = n;
+        if (n == null)
+            tail = p;
+        else
+            n.prev = p;
+        node.prev = node.next = null;
+        node.linked = false;
+    }
+
+    /* ---------------- Views -------------- */
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey(), v;
+            Node<K,V> node;
+            return k != null && (node = data.get(k)) != null &&
+                (v = e.getValue()) != null && v.equals(node.value);
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey();
+            return k != null &&
+                BoundedConcurrentCache.this.remove(k, e.getValue());
+        }
+        public int size() {
+            return BoundedConcurrentCache.this.size();
+        }
+        public boolean isEmpty() {
+            return BoundedConcurrentCache.this.isEmpty();
+        }
+        public void clear() {
+            BoundedConcurrentCache.this.clear();
+        }
+    }
+
+    /**
+     * Exported Entry for EntryIterator; writes go through to the cache.
+     */
+    final class WriteThroughEntry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = -7591433129427418340L;
+        WriteThroughEntry(K k, V v) { super(k, v); }
+        public V setValue(V value) {
+            if (value == null)
+                throw new NullPointerException();
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        final Iterator<Node<K,V>> it = data.values().iterator();
+        Node<K,V> lastReturned;
+
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        public Map.Entry<K,V> next() {
+            Node<K,V> node = it.next();
+            lastReturned = node;
+            return new WriteThroughEntry(node.key, node.value);
+        }
+
+        public void remove() {
+            Node<K,V> node = lastReturned;
+            if (node == null)
+                throw new IllegalStateException();
+            lastReturned = null;
+            if (data.remove(node.key, node)) {
+                final ReentrantLock lock = evictionLock;
+                lock.lock();
+                try {
+                    retire(node);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -51,6 +51,7 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.locks.LockSupport;
+import java.util.Arrays;
 
 /**
  * A {@link Future} that may be explicitly completed (setting its
@@ -196,6 +197,14 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      * one exists) for further processing by its caller (see method
      * postFire).
      *
+     * Method fused() replaces a linear chain of synchronous one-input
+     * stages with one FusedChain Completion on the source that
+     * completes each FusedStage in turn, saving a Completion per
+     * stage. A chain only grows at its tail and before it fires,
+     * checked under the FusedChain monitor; any other use of a stage
+     * falls back to the ordinary mechanics. A stage completed directly
+     * cuts the chain after itself and runs the cut-off stages at once.
+     *
      * Blocking methods get() and join() rely on Signaller Completions
      * that wake up waiting threads.  The mechanics are similar to
      * Treiber stack wait-nodes used in FutureTask, Phaser, and
@@ -416,6 +425,29 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return e;
     }
 
+    /**
+     * Executor returned by affinityExecutor. Tasks submitted from a
+     * ForkJoinWorkerThread are pushed onto that worker's own queue,
+     * where it will usually run them itself next, unless stolen.
+     * Tasks submitted from other threads go to asyncPool.
+     */
+    static final class AffinityExecutor implements Executor {
+        public void execute(Runnable r) {
+            Thread t;
+            if (r == null) throw new NullPointerException();
+            if ((t = Thread.currentThread()) instanceof ForkJoinWorkerThread) {
+                if (r instanceof ForkJoinTask)
+                    ((ForkJoinTask<?>)r).fork();
+                else
+                    ((ForkJoinWorkerThread)t).pool.execute(r);
+            }
+            else
+                asyncPool.execute(r);
+        }
+    }
+
+    private static final Executor affinityPool = new AffinityExecutor();
+
     // Modes for Completion.tryFire. Signedness matters.
     static final int SYNC   =  0;
     static final int ASYNC  =  1;
@@ -990,6 +1022,214 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return d;
     }
 
+    /* ------------- Fused chains -------------- */
+
+    // Step kinds of a FusedChain
+    static final byte RELAY  = 0;
+    static final byte APPLY  = 1;
+    static final byte ACCEPT = 2;
+    static final byte RUN    = 3;
+    static final byte HANDLE = 4;
+
+    /**
+     * A single Completion standing for a linear chain of synchronous
+     * stages. Stage i is completed from stage i-1 (stage 0 relays the
+     * source) by the same uniApply etc methods that the ordinary
+     * Completions use, so results, exception wrapping and external
+     * completion of a stage behave as if each stage had its own
+     * Completion. Steps are appended under the monitor until the
+     * chain fires, which seals it. A stage completed other than by
+     * the chain (complete, cancel etc) detaches the stages after it,
+     * which are then run from that stage by fireFrom.
+     */
+    @SuppressWarnings("serial")
+    static final class FusedChain<T> extends UniCompletion<T,T> {
+        FusedStage<?>[] stages;            // stages[size-1] is the tail
+        Object[] fns;                      // the action of each stage
+        byte[] kinds;                      // RELAY, APPLY, etc
+        int size;
+        boolean sealed;                    // true once fired
+
+        FusedChain(CompletableFuture<T> src) {
+            super(null, null, src);
+            FusedStage<T> h = new FusedStage<T>(this);
+            dep = h;
+            stages = new FusedStage<?>[4];
+            fns = new Object[4];
+            kinds = new byte[4];
+            stages[0] = h;
+            kinds[0] = RELAY;
+            size = 1;
+        }
+
+        /**
+         * Adds a stage after tail, returning it, or null if tail is
+         * not the last stage or the chain has already fired.
+         */
+        final synchronized <U> FusedStage<U> append(FusedStage<?> tail,
+                                                    byte kind, Object fn) {
+            int n = size;
+            if (sealed || stages[n - 1] != tail || tail.result != null)
+                return null;
+            if (n == stages.length) {
+                int m = n << 1;
+                stages = Arrays.copyOf(stages, m);
+                fns = Arrays.copyOf(fns, m);
+                kinds = Arrays.copyOf(kinds, m);
+            }
+            FusedStage<U> s = new FusedStage<U>(this);
+            stages[n] = s;
+            fns[n] = fn;
+            kinds[n] = kind;
+            size = n + 1;
+            return s;
+        }
+
+        final CompletableFuture<?> tryFire(int mode) {
+            CompletableFuture<T> a; FusedStage<?>[] ss;
+            Object[] fs; byte[] ks; int n;
+            if (dep == null || (a = src) == null || a.result == null ||
+                !claim())
+                return null;
+            synchronized (this) {
+                sealed = true;
+                ss = stages; fs = fns; ks = kinds; n = size;
+                stages = null; fns = null; kinds = null;
+            }
+            dep = null; src = null;
+            CompletableFuture<?> p = a;
+            for (int i = 0; i < n; ++i) {
+                FusedStage<?> s = ss[i];
+                s.fire(ks[i], fs[i], p);
+                p = s;
+            }
+            // 中间阶段上可能挂有普通依赖
+            for (int i = 0; i < n - 1; ++i) {
+                if (ss[i].stack != null)
+                    ss[i].postComplete();
+            }
+            return ss[n - 1].postFire(a, mode);
+        }
+
+        /**
+         * Called after stage s was completed other than by this chain.
+         * Unless the chain has fired, cuts it after s and completes the
+         * stages that followed s from s, in order.
+         */
+        final void fireFrom(FusedStage<?> s) {
+            FusedStage<?>[] ss; Object[] fs; byte[] ks; int i, n;
+            synchronized (this) {
+                if (sealed || (ss = stages) == null)
+                    return;
+                n = size;
+                for (i = n - 1; i >= 0 && ss[i] != s; --i)
+                    ;
+                if (i < 0 || i == n - 1)
+                    return;
+                ss = Arrays.copyOfRange(stages, i + 1, n);
+                fs = Arrays.copyOfRange(fns, i + 1, n);
+                ks = Arrays.copyOfRange(kinds, i + 1, n);
+                Arrays.fill(stages, i + 1, n, null);
+                Arrays.fill(fns, i + 1, n, null);
+                size = i + 1;
+            }
+            CompletableFuture<?> p = s;
+            for (int j = 0; j < ss.length; ++j) {
+                ss[j].fire(ks[j], fs[j], p);
+                p = ss[j];
+            }
+            for (FusedStage<?> d : ss) {
+                if (d.stack != null)
+                    d.postComplete();
+            }
+        }
+    }
+
+    /**
+     * A stage of a FusedChain. The synchronous forms of thenApply,
+     * thenAccept, thenRun and handle called on the tail of an
+     * unfired chain extend the chain rather than pushing a new
+     * Completion; all other methods, and these ones once the chain
+     * has fired or branched, behave as for any CompletableFuture.
+     */
+    static final class FusedStage<T> extends CompletableFuture<T> {
+        final FusedChain<?> chain;
+
+        FusedStage(FusedChain<?> chain) {
+            this.chain = chain;
+        }
+
+        /** Completes this stage from a, using the action of kind k. */
+        @SuppressWarnings("unchecked")
+        final void fire(byte k, Object f, CompletableFuture<?> a) {
+            CompletableFuture<Object> d = (CompletableFuture<Object>)this;
+            CompletableFuture<Object> b = (CompletableFuture<Object>)a;
+            switch (k) {
+            case RELAY:
+                d.uniRelay(b);
+                break;
+            case APPLY:
+                d.uniApply(b, (Function<Object,Object>)f, null);
+                break;
+            case ACCEPT:
+                d.uniAccept(b, (Consumer<Object>)f, null);
+                break;
+            case RUN:
+                d.uniRun(b, (Runnable)f, null);
+                break;
+            default:
+                d.uniHandle(b, (BiFunction<Object,Throwable,Object>)f, null);
+            }
+        }
+
+        public boolean complete(T value) {
+            boolean triggered = super.complete(value);
+            if (triggered)
+                chain.fireFrom(this);
+            return triggered;
+        }
+
+        public boolean completeExceptionally(Throwable ex) {
+            boolean triggered = super.completeExceptionally(ex);
+            if (triggered)
+                chain.fireFrom(this);
+            return triggered;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled)
+                chain.fireFrom(this);
+            return cancelled;
+        }
+
+        public <U> CompletableFuture<U> thenApply(
+            Function<? super T,? extends U> fn) {
+            if (fn == null) throw new NullPointerException();
+            CompletableFuture<U> d = chain.append(this, APPLY, fn);
+            return (d != null) ? d : super.thenApply(fn);
+        }
+
+        public CompletableFuture<Void> thenAccept(Consumer<? super T> action) {
+            if (action == null) throw new NullPointerException();
+            CompletableFuture<Void> d = chain.append(this, ACCEPT, action);
+            return (d != null) ? d : super.thenAccept(action);
+        }
+
+        public CompletableFuture<Void> thenRun(Runnable action) {
+            if (action == null) throw new NullPointerException();
+            CompletableFuture<Void> d = chain.append(this, RUN, action);
+            return (d != null) ? d : super.thenRun(action);
+        }
+
+        public <U> CompletableFuture<U> handle(
+            BiFunction<? super T, Throwable, ? extends U> fn) {
+            if (fn == null) throw new NullPointerException();
+            CompletableFuture<U> d = chain.append(this, HANDLE, fn);
+            return (d != null) ? d : super.handle(fn);
+        }
+    }
+
     /* ------------- Two-input Completions -------------- */
 
     /** A Completion for an action with two sources */
@@ -2188,6 +2428,59 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return uniExceptionallyStage(fn);
     }
 
+    /**
+     * Returns a new CompletableFuture that is completed with the same
+     * value or exception as this CompletableFuture, and that starts a
+     * <em>fused</em> chain of dependent stages.
+     *
+     * <p>A stage of a fused chain is an ordinary CompletableFuture,
+     * except that the non-async methods {@code thenApply}, {@code
+     * thenAccept}, {@code thenRun} and {@code handle}, when invoked
+     * on the most recent stage of the chain before this
+     * CompletableFuture completes, append the new stage to the chain
+     * instead of registering a separate dependent action. When this
+     * CompletableFuture completes, the whole chain is run as a single
+     * action, completing each of its stages in order. A long linear
+     * pipeline such as {@code f.fused().thenApply(a).thenApply(b)
+     * .thenAccept(c)} thus allocates one stage object per step but
+     * only one completion action overall.
+     *
+     * <p>Each stage still completes with exactly the value or
+     * exception it would have had in an unfused chain, and may be
+     * used in any other way, for example by attaching further
+     * dependents or by completing it directly, which then completes
+     * the stages after it without waiting for this CompletableFuture.
+     * Calling one of the above methods on a stage that is not the most
+     * recent one, or after this CompletableFuture has completed,
+     * creates an ordinary dependent stage.
+     *
+     * @return the first stage of a new fused chain
+     */
+    public CompletableFuture<T> fused() {
+        FusedChain<T> c = new FusedChain<T>(this);
+        CompletableFuture<T> d = c.dep;
+        push(c);
+        c.tryFire(SYNC);
+        return d;
+    }
+
+    /**
+     * Returns an Executor that runs each task in the {@link
+     * ForkJoinPool} of the thread submitting it. When used as the
+     * Executor argument of an <em>async</em> method, a dependent
+     * action is submitted by the thread that completes its source, so
+     * the action is queued on that thread's own work queue, and
+     * usually runs next on the same thread and its warm caches rather
+     * than being handed to another thread. Tasks submitted from a
+     * thread that is not a {@link ForkJoinWorkerThread} are run as
+     * by the async methods without an Executor argument.
+     *
+     * @return the executor
+     */
+    public static Executor affinityExecutor() {
+        return affinityPool;
+    }
+
     /* ------------- Arbitrary-arity constructions -------------- */
 
     /**
@@ -329,6 +329,30 @@ public class CountDownLatch {
         return sync.getCount();
     }
 
+    /**
+     * Enables or disables adaptive spinning. When enabled, a thread
+     * calling {@code await} before the count has reached zero spins
+     * briefly before blocking, which avoids a park and unpark when
+     * the latch is about to be released. Disabled by default.
+     *
+     * @param on {@code true} to enable adaptive spinning
+     * @see java.util.concurrent.locks.AbstractQueuedSynchronizer#setAdaptiveSpinning
+     * @since 1.8
+     */
+    public void setAdaptiveSpinning(boolean on) {
+        sync.setAdaptiveSpinning(on);
+    }
+
+    /**
+     * Returns {@code true} if adaptive spinning is enabled.
+     *
+     * @return {@code true} if adaptive spinning is enabled
+     * @since 1.8
+     */
+    public boolean isAdaptiveSpinning() {
+        return sync.isAdaptiveSpinning();
+    }
+
     /**
      * Returns a string identifying this latch, as well as its state.
      * The state, in brackets, includes the String {@code "Count ="}
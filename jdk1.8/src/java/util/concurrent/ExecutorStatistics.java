@@ -0,0 +1,280 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.lang.management.ExecutorMXBean;
+import java.lang.management.ManagementFactory;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Task statistics of one executor, published as an {@link
+ * ExecutorMXBean}. Instances are created by {@link ThreadPoolExecutor}
+ * and {@link ForkJoinPool} when statistics are enabled, and live in a
+ * registry that the platform MXBean support reads through {@link
+ * #getMXBeans}.
+ *
+ * <p>Every counter is a {@link LongAdder}, so worker threads recording
+ * a task never contend on a shared word or take a lock; readers sum
+ * the cells and see an estimate. Times are bucketed by their binary
+ * logarithm: bucket 0 holds times below {@code 2^MIN_SHIFT}
+ * nanoseconds, bucket {@code k} holds times in {@code
+ * [2^(MIN_SHIFT+k-1), 2^(MIN_SHIFT+k))}, and the last bucket is open
+ * ended, so the bucket of a sample is found with one {@link
+ * Long#numberOfLeadingZeros} instruction.
+ *
+ * <p>Queue wait is known only for tasks that carry their own start
+ * time: {@link TimedFutureTask}s created by {@code
+ * ThreadPoolExecutor.newTaskFor} while statistics are enabled, and
+ * {@link Delayed} tasks, whose wait is the time by which they ran late
+ * after becoming due. Other tasks contribute to execution time only.
+ */
+abstract class ExecutorStatistics implements ExecutorMXBean {
+
+    /** Number of histogram buckets. */
+    static final int BUCKETS = 32;
+
+    /** Bucket 0 holds times below 2^MIN_SHIFT (about one microsecond). */
+    static final int MIN_SHIFT = 10;
+
+    /** Executors with statistics enabled, by name. */
+    private static final ConcurrentHashMap<String, ExecutorStatistics>
+        registry = new ConcurrentHashMap<>();
+
+    /** Sequence number for default executor names. */
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    final String name;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder active = new LongAdder();
+    private final LongAdder totalWait = new LongAdder();
+    private final LongAdder totalExec = new LongAdder();
+    private final LongAdder[] waitHistogram = newHistogram();
+    private final LongAdder[] execHistogram = newHistogram();
+
+    /** True while this object is registered with the platform MBeanServer. */
+    private volatile boolean serverRegistered;
+
+    ExecutorStatistics(Object executor) {
+        this.name = executor.getClass().getSimpleName() + "-" +
+            sequence.incrementAndGet();
+    }
+
+    private static LongAdder[] newHistogram() {
+        LongAdder[] h = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; ++i)
+            h[i] = new LongAdder();
+        return h;
+    }
+
+    /**
+     * Returns the histogram bucket of the given time in nanoseconds.
+     */
+    static int bucketFor(long nanos) {
+        int k = (64 - MIN_SHIFT) - Long.numberOfLeadingZeros(nanos);
+        return (k <= 0) ? 0 : (k >= BUCKETS) ? BUCKETS - 1 : k;
+    }
+
+    // Recording, called by the executor
+
+    /**
+     * Records that a worker is about to run the given task, and the
+     * task's queue wait if it can be determined.
+     *
+     * @param task the task
+     * @param now the current {@link System#nanoTime}
+     */
+    final void taskStarted(Object task, long now) {
+        active.increment();
+        long wait;
+        if (task instanceof TimedFutureTask)
+            wait = now - ((TimedFutureTask<?>)task).submitTime;
+        else if (task instanceof Delayed)
+            wait = -((Delayed)task).getDelay(NANOSECONDS);
+        else
+            return;
+        if (wait < 0L)
+            wait = 0L;
+        totalWait.add(wait);
+        waitHistogram[bucketFor(wait)].increment();
+    }
+
+    /**
+     * Records that a task started by {@link #taskStarted} has finished.
+     *
+     * @param start the {@link System#nanoTime} at which it started
+     */
+    final void taskFinished(long start) {
+        long t = System.nanoTime() - start;
+        if (t < 0L)
+            t = 0L;
+        active.decrement();
+        completed.increment();
+        totalExec.add(t);
+        execHistogram[bucketFor(t)].increment();
+    }
+
+    /**
+     * Records a rejected task.
+     */
+    final void taskRejected() {
+        rejected.increment();
+    }
+
+    // Registration
+
+    /**
+     * Adds the given statistics to the registry and, when permitted,
+     * registers them with the platform MBeanServer.
+     */
+    static void register(final ExecutorStatistics s) {
+        registry.put(s.name, s);
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            public Void run() {
+                try {
+                    MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+                    // 创建 MBeanServer 时可能已经从 registry 注册过
+                    if (!mbs.isRegistered(s.getObjectName()))
+                        mbs.registerMBean(s, s.getObjectName());
+                    s.serverRegistered = true;
+                } catch (JMException | SecurityException ignore) {
+                    // still available through getPlatformMXBeans
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Removes the given statistics from the registry and the platform
+     * MBeanServer. Calling this more than once has no further effect.
+     */
+    static void unregister(final ExecutorStatistics s) {
+        if (s == null || !registry.remove(s.name, s) || !s.serverRegistered)
+            return;
+        s.serverRegistered = false;
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            public Void run() {
+                try {
+                    ManagementFactory.getPlatformMBeanServer()
+                        .unregisterMBean(s.getObjectName());
+                } catch (JMException | SecurityException ignore) {
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Returns the statistics of all executors that have them enabled.
+     * Called reflectively by {@code java.lang.management.PlatformComponent}.
+     */
+    static List<ExecutorMXBean> getMXBeans() {
+        return new ArrayList<ExecutorMXBean>(registry.values());
+    }
+
+    // ExecutorMXBean
+
+    public ObjectName getObjectName() {
+        try {
+            return new ObjectName("java.util.concurrent:type=Executor,name=" +
+                                  name);
+        } catch (JMException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActiveCount() {
+        int n = active.intValue();
+        return (n < 0) ? 0 : n;
+    }
+
+    public long getCompletedTaskCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedTaskCount() {
+        return rejected.sum();
+    }
+
+    public long getTotalQueueWaitTime() {
+        return totalWait.sum();
+    }
+
+    public long getTotalExecutionTime() {
+        return totalExec.sum();
+    }
+
+    public long[] getQueueWaitTimeHistogram() {
+        return snapshot(waitHistogram);
+    }
+
+    public long[] getExecutionTimeHistogram() {
+        return snapshot(execHistogram);
+    }
+
+    public long[] getHistogramBucketLimits() {
+        long[] limits = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS - 1; ++i)
+            limits[i] = 1L << (MIN_SHIFT + i);
+        limits[BUCKETS - 1] = Long.MAX_VALUE;
+        return limits;
+    }
+
+    private static long[] snapshot(LongAdder[] h) {
+        long[] a = new long[h.length];
+        for (int i = 0; i < h.length; ++i)
+            a[i] = h[i].sum();
+        return a;
+    }
+
+    /**
+     * A FutureTask that remembers when it was created, which for tasks
+     * created by {@code newTaskFor} is when they were submitted.
+     */
+    static final class TimedFutureTask<V> extends FutureTask<V> {
+        final long submitTime = System.nanoTime();
+
+        TimedFutureTask(Callable<V> callable) {
+            super(callable);
+        }
+
+        TimedFutureTask(Runnable runnable, V result) {
+            super(runnable, result);
+        }
+    }
+}
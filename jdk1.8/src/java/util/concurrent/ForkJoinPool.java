@@ -880,8 +880,12 @@ public class ForkJoinPool extends AbstractExecutorService {
         final ForkJoinTask<?>[] growArray() {
             ForkJoinTask<?>[] oldA = array;
             int size = oldA != null ? oldA.length << 1 : INITIAL_QUEUE_CAPACITY;
-            if (size > MAXIMUM_QUEUE_CAPACITY)
+            if (size > MAXIMUM_QUEUE_CAPACITY) {
+                ForkJoinPool p; ExecutorStatistics stats;
+                if ((p = pool) != null && (stats = p.statistics) != null)
+                    stats.taskRejected();
                 throw new RejectedExecutionException("Queue capacity exceeded");
+            }
             int oldMask, t, b;
             ForkJoinTask<?>[] a = array = new ForkJoinTask<?>[size];
             if (oldA != null && (oldMask = oldA.length - 1) >= 0 &&
@@ -1053,7 +1057,15 @@ public class ForkJoinPool extends AbstractExecutorService {
         final void runTask(ForkJoinTask<?> task) {
             if (task != null) {
                 scanState &= ~SCANNING; // mark as busy
-                (currentSteal = task).doExec();
+                ForkJoinPool p; ExecutorStatistics stats;
+                if ((p = pool) != null && (stats = p.statistics) != null) {
+                    long start = System.nanoTime();
+                    stats.taskStarted(task, start);
+                    (currentSteal = task).doExec(); // doExec 不会抛出异常
+                    stats.taskFinished(start);
+                }
+                else
+                    (currentSteal = task).doExec();
                 U.putOrderedObject(this, QCURRENTSTEAL, null); // release for GC
                 execLocalTasks();
                 ForkJoinWorkerThread thread = owner;
@@ -1393,6 +1405,7 @@ public class ForkJoinPool extends AbstractExecutorService {
     final UncaughtExceptionHandler ueh;  // per-worker UEH
     final String workerNamePrefix;       // to create worker name string
     volatile AtomicLong stealCounter;    // also used as sync monitor
+    volatile ExecutorStatistics statistics; // null unless enabled
 
     /**
      * Acquires the runState lock; returns current (locked) runState.
@@ -2262,7 +2275,11 @@ public class ForkJoinPool extends AbstractExecutorService {
                 if ((runState & TERMINATED) == 0) {
                     rs = lockRunState();          // done
                     unlockRunState(rs, (rs & ~RSLOCK) | TERMINATED);
-                    synchronized (this) { notifyAll(); } // for awaitTermination
+                    synchronized (this) {
+                        notifyAll();                  // for awaitTermination
+                        ExecutorStatistics.unregister(statistics);
+                        statistics = null;
+                    }
                 }
                 break;
             }
@@ -2322,6 +2339,9 @@ public class ForkJoinPool extends AbstractExecutorService {
             boolean move = false;
             if ((rs = runState) < 0) {
                 tryTerminate(false, false);     // help terminate
+                ExecutorStatistics stats = statistics;
+                if (stats != null)
+                    stats.taskRejected();
                 throw new RejectedExecutionException();
             }
             else if ((rs & STARTED) == 0 ||     // initialize
@@ -2970,6 +2990,86 @@ public class ForkJoinPool extends AbstractExecutorService {
         return count;
     }
 
+    /**
+     * Enables or disables the collection of task statistics for this
+     * pool. While enabled, the pool counts rejected and completed
+     * tasks, records the execution time of each task in a histogram,
+     * and publishes them, together with the pool size, queued task
+     * count and steal count, as an {@link
+     * java.lang.management.ExecutorMXBean} that is returned by {@link
+     * java.lang.management.ManagementFactory#getPlatformMXBeans(Class)}
+     * and registered with the platform {@code MBeanServer}. Recording
+     * uses no locks, but does read {@link System#nanoTime} twice per
+     * task, so statistics are disabled by default.
+     *
+     * <p>Execution time is measured for each top-level task that a
+     * worker takes from a queue, and includes the time spent running
+     * subtasks that it joins. Tasks are not timestamped on submission,
+     * so queue wait times are not recorded. Enabling statistics again
+     * after disabling them starts from zero. Statistics are disabled
+     * automatically when the pool terminates.
+     *
+     * @param value {@code true} to enable statistics, else {@code false}
+     * @since 1.8
+     */
+    public void setStatisticsEnabled(boolean value) {
+        synchronized (this) {
+            ExecutorStatistics stats = statistics;
+            if (value == (stats != null))
+                return;
+            if (value) {
+                if ((runState & TERMINATED) != 0)
+                    return;
+                statistics = stats = new Statistics(this);
+                ExecutorStatistics.register(stats);
+            } else {
+                statistics = null;
+                ExecutorStatistics.unregister(stats);
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if task statistics are being collected for
+     * this pool.
+     *
+     * @return {@code true} if statistics are enabled
+     * @see #setStatisticsEnabled
+     * @since 1.8
+     */
+    public boolean isStatisticsEnabled() {
+        return statistics != null;
+    }
+
+    /**
+     * Statistics of a ForkJoinPool, read through the pool's own
+     * lock-free estimates.
+     */
+    static final class Statistics extends ExecutorStatistics {
+        final ForkJoinPool pool;
+
+        Statistics(ForkJoinPool pool) {
+            super(pool);
+            this.pool = pool;
+        }
+
+        public String getExecutorType() {
+            return pool.getClass().getName();
+        }
+
+        public int getPoolSize() {
+            return pool.getPoolSize();
+        }
+
+        public long getQueuedTaskCount() {
+            return pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount();
+        }
+
+        public long getStealCount() {
+            return pool.getStealCount();
+        }
+    }
+
     /**
      * Returns a string identifying this pool, as well as its state,
      * including indications of run state, parallelism level, and
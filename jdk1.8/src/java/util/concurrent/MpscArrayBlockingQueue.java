@@ -0,0 +1,768 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by an array,
+ * whose non-blocking operations are lock-free.  This queue orders
+ * elements FIFO (first-in-first-out).  It is designed for many producer
+ * threads handing work to a single consumer, such as an event loop or a
+ * one-thread {@link ThreadPoolExecutor}, but remains correct with several
+ * consumers (for example the workers of a larger pool), which then
+ * contend only on the head index.
+ *
+ * <p>Unlike {@link LinkedBlockingQueue}, inserting an element allocates
+ * nothing, and neither producers nor consumers take a lock unless they
+ * have to wait.  Each array slot carries a sequence number, in the style
+ * of Dmitry Vyukov's bounded queue: a producer claims a slot with one CAS
+ * on the tail index and publishes the element by advancing the slot's
+ * sequence, and a consumer claims it with one CAS on the head index.
+ * The head and tail indices are padded onto separate cache lines.
+ * {@link #drainTo(Collection, int)} claims a whole run of published
+ * elements with a single CAS.
+ *
+ * <p>The capacity is rounded up to a power of two.  Threads that need to
+ * wait (in {@link #put}, {@link #take} and the timed variants) block on
+ * a lock and condition that are only touched when the queue is full or
+ * empty.
+ *
+ * <p>Removal of arbitrary elements ({@link #remove(Object)}, as used by
+ * {@link ThreadPoolExecutor#remove}) marks the slot so that consumers
+ * skip it.  Removed slots at the head of the queue are freed eagerly,
+ * and {@link #size} and {@link #isEmpty} do not count removed slots,
+ * so that they agree with {@link #poll}.  The iterator is <i>weakly consistent</i>: it
+ * traverses a snapshot taken when it is created.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ * @see SpscArrayQueue
+ */
+public class MpscArrayBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E>, java.io.Serializable {
+
+    private static final long serialVersionUID = 1740536914718624263L;
+
+    /** Marks a slot whose element was removed by remove(Object). */
+    static final Object REMOVED = new Object();
+
+    /** Largest supported capacity. */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** The queued items */
+    transient Object[] items;
+
+    /**
+     * Per-slot sequence numbers.  Slot i is free for the producer that
+     * holds ticket t when sequences[i] == t, and holds a published
+     * element for the consumer holding ticket t when sequences[i] == t+1.
+     */
+    transient long[] sequences;
+
+    /** items.length - 1 */
+    final int mask;
+
+    /** Ticket of the next element to take */
+    @sun.misc.Contended("head")
+    transient volatile long head;
+
+    /** Ticket of the next element to put */
+    @sun.misc.Contended("tail")
+    transient volatile long tail;
+
+    /** Lock and conditions used only by waiting threads */
+    final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    /** Numbers of threads waiting; checked by the lock-free paths */
+    transient volatile int waitingConsumers;
+    transient volatile int waitingProducers;
+
+    /**
+     * Number of slots marked REMOVED and not yet freed.  Only a hint,
+     * telling size whether it needs to scan for removed slots.
+     */
+    transient volatile int removedSlots;
+
+    /**
+     * Creates a {@code MpscArrayBlockingQueue} with at least the given
+     * (fixed) capacity.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     */
+    public MpscArrayBlockingQueue(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+        int n = (capacity >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY :
+            (capacity <= 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.items = new Object[n];
+        long[] seqs = new long[n];
+        for (int i = 0; i < n; ++i)
+            seqs[i] = i;
+        this.sequences = seqs;
+        this.mask = n - 1;
+    }
+
+    /**
+     * Creates a {@code MpscArrayBlockingQueue} with at least the given
+     * capacity, initially containing the elements of the given
+     * collection, added in traversal order of the collection's iterator.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @param c the collection of elements to initially contain
+     * @throws IllegalArgumentException if {@code capacity} is less than
+     *         {@code c.size()}, or less than 1.
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public MpscArrayBlockingQueue(int capacity, Collection<? extends E> c) {
+        this(capacity);
+        for (E e : c) {
+            if (!offer(e))
+                throw new IllegalArgumentException();
+        }
+    }
+
+    private static long byteOffset(int i) {
+        return ((long)i << ASHIFT) + ABASE;
+    }
+
+    private static long seqOffset(int i) {
+        return ((long)i << SSHIFT) + SBASE;
+    }
+
+    /* ---------------- Lock-free core -------------- */
+
+    /**
+     * Tries to claim a slot and store e.  Returns false if full.
+     */
+    final boolean tryOffer(Object e) {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int mask = this.mask;
+        for (long t = tail;;) {
+            int i = (int)t & mask;
+            long seq = UNSAFE.getLongVolatile(seqs, seqOffset(i));
+            long dif = seq - t;
+            if (dif == 0L) {
+                if (UNSAFE.compareAndSwapLong(this, tailOffset, t, t + 1L)) {
+                    UNSAFE.putObject(items, byteOffset(i), e);
+                    // full fence, pairs with the waitingConsumers check
+                    UNSAFE.putLongVolatile(seqs, seqOffset(i), t + 1L);
+                    return true;
+                }
+                t = tail;
+            }
+            else if (dif < 0L) {
+                if (t - head > mask)
+                    return false;       // full
+                t = tail;               // slot still being consumed
+            }
+            else
+                t = tail;               // lost race with another producer
+        }
+    }
+
+    /**
+     * Tries to claim and remove the head element, skipping removed
+     * slots.  Returns null if empty.
+     */
+    @SuppressWarnings("unchecked")
+    final E tryPoll() {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int mask = this.mask;
+        for (long h = head;;) {
+            int i = (int)h & mask;
+            long seq = UNSAFE.getLongVolatile(seqs, seqOffset(i));
+            long dif = seq - (h + 1L);
+            if (dif == 0L) {
+                if (UNSAFE.compareAndSwapLong(this, headOffset, h, h + 1L)) {
+                    Object x = UNSAFE.getAndSetObject(items, byteOffset(i),
+                                                      null);
+                    UNSAFE.putLongVolatile(seqs, seqOffset(i), h + mask + 1L);
+                    if (x != REMOVED)
+                        return (E)x;
+                    UNSAFE.getAndAddInt(this, removedSlotsOffset, -1);
+                    signalNotFull();    // a removed slot was freed
+                }
+                h = head;
+            }
+            else if (dif < 0L) {
+                if (h == tail)
+                    return null;        // empty
+                h = head;               // element claimed, not yet published
+            }
+            else
+                h = head;               // lost race with another consumer
+        }
+    }
+
+    /**
+     * Frees removed slots at the head of the queue, advancing head past
+     * them, so that the queue is seen empty once only removed slots
+     * remain.  Stops at the first slot that is unpublished or holds an
+     * element.
+     */
+    final void skipRemoved() {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int mask = this.mask;
+        boolean freed = false;
+        for (long h = head;;) {
+            int i = (int)h & mask;
+            if (UNSAFE.getLongVolatile(seqs, seqOffset(i)) != h + 1L ||
+                UNSAFE.getObjectVolatile(items, byteOffset(i)) != REMOVED)
+                break;
+            // 成功推进 head 即独占该槽；槽内只可能仍是 REMOVED
+            if (UNSAFE.compareAndSwapLong(this, headOffset, h, h + 1L)) {
+                UNSAFE.putObjectVolatile(items, byteOffset(i), null);
+                UNSAFE.putLongVolatile(seqs, seqOffset(i), h + mask + 1L);
+                UNSAFE.getAndAddInt(this, removedSlotsOffset, -1);
+                freed = true;
+            }
+            h = head;
+        }
+        if (freed)
+            signalNotFull();
+    }
+
+    final void signalNotEmpty() {
+        if (waitingConsumers != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    final void signalNotFull() {
+        if (waitingProducers != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /* ---------------- Queue operations -------------- */
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and throwing an
+     * {@code IllegalStateException} if this queue is full.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Collection#add})
+     * @throws IllegalStateException if this queue is full
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean add(E e) {
+        return super.add(e);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false} if
+     * this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        if (!tryOffer(e))
+            return false;
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (!tryOffer(e)) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++waitingProducers;
+                try {
+                    while (!tryOffer(e))
+                        notFull.await();
+                } finally {
+                    --waitingProducers;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotEmpty();
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (!tryOffer(e)) {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++waitingProducers;
+                try {
+                    while (!tryOffer(e)) {
+                        if (nanos <= 0)
+                            return false;
+                        nanos = notFull.awaitNanos(nanos);
+                    }
+                } finally {
+                    --waitingProducers;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotEmpty();
+        return true;
+    }
+
+    public E poll() {
+        E x = tryPoll();
+        if (x != null)
+            signalNotFull();
+        return x;
+    }
+
+    public E take() throws InterruptedException {
+        E x = tryPoll();
+        if (x == null) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++waitingConsumers;
+                try {
+                    while ((x = tryPoll()) == null)
+                        notEmpty.await();
+                } finally {
+                    --waitingConsumers;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotFull();
+        return x;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E x = tryPoll();
+        if (x == null) {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++waitingConsumers;
+                try {
+                    while ((x = tryPoll()) == null) {
+                        if (nanos <= 0)
+                            return null;
+                        nanos = notEmpty.awaitNanos(nanos);
+                    }
+                } finally {
+                    --waitingConsumers;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotFull();
+        return x;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int mask = this.mask;
+        restart: for (;;) {
+            for (long h = head; h != tail; ++h) {
+                int i = (int)h & mask;
+                Object x = UNSAFE.getObjectVolatile(items, byteOffset(i));
+                if (UNSAFE.getLongVolatile(seqs, seqOffset(i)) != h + 1L ||
+                    head > h)
+                    continue restart;   // not yet published, or taken
+                if (x != null && x != REMOVED)
+                    return (E)x;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of elements in this queue.  Slots whose element
+     * was removed by {@link #remove(Object)} are not counted; while there
+     * are any, this method traverses the queue.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        skipRemoved();
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        for (;;) {
+            long h = head, t = tail;
+            if (h == head) {
+                long n = t - h;
+                if (n > 0L && removedSlots != 0) {
+                    for (long k = h; k < t; ++k) {
+                        int i = (int)k & mask;
+                        if (UNSAFE.getObjectVolatile(items, byteOffset(i)) == REMOVED &&
+                            UNSAFE.getLongVolatile(seqs, seqOffset(i)) == k + 1L)
+                            --n;
+                    }
+                }
+                return (n <= 0L) ? 0 : (n > mask + 1L) ? mask + 1 : (int)n;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        skipRemoved();
+        return head == tail;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints) accept
+     * without blocking.
+     */
+    public int remainingCapacity() {
+        return mask + 1 - size();
+    }
+
+    /**
+     * Removes a single instance of the specified element from this
+     * queue, if it is present.  The slot is marked and skipped by
+     * consumers, and freed at once if it is at the head of the queue.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o == null)
+            return false;
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        for (long h = head, t = tail; h < t; ++h) {
+            int i = (int)h & mask;
+            long off = byteOffset(i);
+            Object x = UNSAFE.getObjectVolatile(items, off);
+            if (x != null && x != REMOVED && o.equals(x) &&
+                UNSAFE.getLongVolatile(seqs, seqOffset(i)) == h + 1L &&
+                UNSAFE.compareAndSwapObject(items, off, x, REMOVED)) {
+                UNSAFE.getAndAddInt(this, removedSlotsOffset, 1);
+                skipRemoved();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(Object o) {
+        if (o == null)
+            return false;
+        for (Object x : toArray())
+            if (o.equals(x))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns a snapshot of the elements in this queue, in proper
+     * sequence.  Elements concurrently taken may or may not appear.
+     */
+    public Object[] toArray() {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        ArrayList<Object> list = new ArrayList<Object>();
+        for (long h = head, t = tail; h < t; ++h) {
+            int i = (int)h & mask;
+            Object x = UNSAFE.getObjectVolatile(items, byteOffset(i));
+            if (x != null && x != REMOVED &&
+                UNSAFE.getLongVolatile(seqs, seqOffset(i)) == h + 1L)
+                list.add(x);
+        }
+        return list.toArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        Object[] snapshot = toArray();
+        int n = snapshot.length;
+        if (a.length < n)
+            a = (T[])java.lang.reflect.Array.newInstance(
+                a.getClass().getComponentType(), n);
+        System.arraycopy(snapshot, 0, a, 0, n);
+        if (a.length > n)
+            a[n] = null;
+        return a;
+    }
+
+    public void clear() {
+        boolean any = false;
+        while (tryPoll() != null)
+            any = true;
+        if (any)
+            signalNotFull();
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes at most the given number of available elements from this
+     * queue and adds them to the given collection.  Consecutive published
+     * elements are claimed together with a single CAS on the head index;
+     * if adding one of them to the collection fails, the rest of that
+     * batch are discarded.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int mask = this.mask;
+        int drained = 0;
+        while (drained < maxElements) {
+            long h = head;
+            // count the run of published slots starting at h
+            int n = 0, limit = Math.min(maxElements - drained, mask + 1);
+            while (n < limit &&
+                   UNSAFE.getLongVolatile(seqs, seqOffset((int)(h + n) & mask))
+                   == h + n + 1L)
+                ++n;
+            if (n == 0) {
+                if (h == tail)
+                    break;
+                Thread.yield();          // producer mid-publish
+                continue;
+            }
+            if (!UNSAFE.compareAndSwapLong(this, headOffset, h, h + n))
+                continue;
+            int k = 0;
+            try {
+                for (; k < n; ++k) {
+                    long tk = h + k;
+                    int i = (int)tk & mask;
+                    Object x = UNSAFE.getAndSetObject(items, byteOffset(i), null);
+                    UNSAFE.putOrderedLong(seqs, seqOffset(i), tk + mask + 1L);
+                    if (x != REMOVED) {
+                        c.add((E)x);
+                        ++drained;
+                    }
+                    else
+                        UNSAFE.getAndAddInt(this, removedSlotsOffset, -1);
+                }
+            } finally {
+                if (k < n) {
+                    // c.add 抛出异常：其余已认领的槽位也必须释放，
+                    // 否则生产者永远等不到这些槽位（其中的元素被丢弃）
+                    while (++k < n) {
+                        long tk = h + k;
+                        int i = (int)tk & mask;
+                        if (UNSAFE.getAndSetObject(items, byteOffset(i), null)
+                            == REMOVED)
+                            UNSAFE.getAndAddInt(this, removedSlotsOffset, -1);
+                        UNSAFE.putOrderedLong(seqs, seqOffset(i), tk + mask + 1L);
+                    }
+                    signalNotFull();
+                }
+            }
+        }
+        if (drained > 0)
+            signalNotFull();
+        return drained;
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this queue,
+     * in proper sequence.  The iterator's {@code remove} removes the
+     * element from the queue if it is still present.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    final class Itr implements Iterator<E> {
+        final Object[] snapshot;
+        int cursor;
+        int lastRet = -1;
+
+        Itr(Object[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public boolean hasNext() {
+            return cursor < snapshot.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= snapshot.length)
+                throw new NoSuchElementException();
+            return (E)snapshot[lastRet = cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            MpscArrayBlockingQueue.this.remove(snapshot[lastRet]);
+            lastRet = -1;
+        }
+    }
+
+    /**
+     * Saves this queue to a stream (that is, serializes it).
+     *
+     * @serialData The capacity mask (int), followed by all of its elements
+     * (each an {@code Object}) in the proper order, followed by a null
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        for (Object x : toArray())
+            s.writeObject(x);
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this queue from a stream (that is, deserializes it).
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = mask + 1;
+        long[] seqs = new long[n];
+        for (int i = 0; i < n; ++i)
+            seqs[i] = i;
+        items = new Object[n];
+        sequences = seqs;
+        for (;;) {
+            E item = (E)s.readObject();
+            if (item == null)
+                break;
+            tryOffer(item);
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long headOffset;
+    private static final long tailOffset;
+    private static final long removedSlotsOffset;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    private static final long SBASE;
+    private static final int SSHIFT;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = MpscArrayBlockingQueue.class;
+            headOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("head"));
+            tailOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("tail"));
+            removedSlotsOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("removedSlots"));
+            ABASE = UNSAFE.arrayBaseOffset(Object[].class);
+            int scale = UNSAFE.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            SBASE = UNSAFE.arrayBaseOffset(long[].class);
+            int sscale = UNSAFE.arrayIndexScale(long[].class);
+            if ((sscale & (sscale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            SSHIFT = 31 - Integer.numberOfLeadingZeros(sscale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
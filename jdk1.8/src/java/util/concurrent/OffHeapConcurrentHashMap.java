@@ -0,0 +1,1183 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.lang.management.BufferPoolMXBean;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * A hash table supporting full concurrency of retrievals and high
+ * expected concurrency for updates, whose keys and values are held as
+ * raw bytes outside of the Java heap.  Keys and values are
+ * {@link ByteBuffer}s (or <tt>byte[]</tt> arrays through the convenience
+ * overloads); the bytes between a buffer's position and limit are copied
+ * into the table, and retrievals return fresh heap buffers holding a copy
+ * of the stored bytes.  Keys are compared by content, as with
+ * {@link ByteBuffer#equals}.
+ *
+ * <p>The table is divided into segments, as in the JDK 7 version of
+ * {@link ConcurrentHashMap}.  Each segment keeps a compact on-heap index
+ * (a <tt>long</tt> reference and an <tt>int</tt> hash per mapping, with
+ * no per-mapping objects) and stores the serialized mappings in
+ * <i>slabs</i> of direct memory obtained from
+ * {@link ByteBuffer#allocateDirect}.  Slab allocation therefore goes
+ * through the usual direct buffer accounting: it counts against
+ * <tt>-XX:MaxDirectMemorySize</tt> and appears in the platform
+ * <tt>"direct"</tt> {@link BufferPoolMXBean}.  The footprint of this map
+ * alone is reported by {@link #getBufferPoolMXBean}.
+ *
+ * <p>Retrievals are performed under {@link StampedLock} optimistic reads
+ * and so generally do not block; updates lock only the affected segment.
+ * Within a slab, space is bump allocated; space freed by removals and
+ * replacements is reclaimed by relocating the live mappings of sparse
+ * slabs, and a slab whose mappings are all gone is released to the
+ * garbage collector, which frees its memory once no reader can still be
+ * using it.
+ *
+ * <p>Iterators and the other views are <i>weakly consistent</i>, as in
+ * {@link ConcurrentHashMap}.  Like <tt>ConcurrentHashMap</tt>, this
+ * class does not allow <tt>null</tt> to be used as a key or value.  It
+ * is not serializable.
+ *
+ * @see ConcurrentHashMap
+ * @since 1.8
+ */
+public class OffHeapConcurrentHashMap extends AbstractMap<ByteBuffer,ByteBuffer>
+    implements ConcurrentMap<ByteBuffer,ByteBuffer> {
+
+    /* ---------------- Constants -------------- */
+
+    /**
+     * The default initial capacity of the whole table.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The default concurrency level, i.e. number of segments.
+     */
+    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * The default size of a slab, in bytes.  Mappings larger than a slab
+     * are given a dedicated slab of their own.
+     */
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    /**
+     * The smallest slab size accepted by the constructor.
+     */
+    static final int MIN_SLAB_SIZE = 1 << 12;
+
+    /**
+     * The maximum number of segments to allow.
+     */
+    static final int MAX_SEGMENTS = 1 << 16;
+
+    /**
+     * The minimum and maximum capacity of a segment index.
+     */
+    static final int MIN_SEGMENT_TABLE_CAPACITY = 4;
+    static final int MAXIMUM_SEGMENT_CAPACITY = 1 << 30;
+
+    /**
+     * Size of the header preceding the key and value bytes of a stored
+     * mapping: hash, key length and value length, one int each.
+     */
+    static final int HEADER_SIZE = 12;
+
+    /**
+     * Sequence used to name unnamed maps.
+     */
+    private static final AtomicInteger poolNumber = new AtomicInteger();
+
+    /* ---------------- Fields -------------- */
+
+    /**
+     * Mask value for indexing into segments. The upper bits of a key's
+     * hash code are used to choose the segment.
+     */
+    final int segmentMask;
+
+    /**
+     * Shift value for indexing within segments.
+     */
+    final int segmentShift;
+
+    /**
+     * The segments, each of which is a specialized hash table.
+     */
+    final Segment[] segments;
+
+    /**
+     * The name reported by the buffer pool view.
+     */
+    final String name;
+
+    /**
+     * The size of regular slabs.
+     */
+    final int slabSize;
+
+    transient Set<Map.Entry<ByteBuffer,ByteBuffer>> entrySet;
+    transient BufferPoolMXBean bufferPool;
+
+    /* ---------------- Small Utilities -------------- */
+
+    /**
+     * Computes the content hash of the remaining bytes of a buffer and
+     * applies the supplemental Wang/Jenkins hash used by the JDK 7
+     * ConcurrentHashMap, since segment selection depends on the upper
+     * bits.
+     */
+    static int hash(ByteBuffer b) {
+        int h = 1;
+        for (int i = b.position(), lim = b.limit(); i < lim; ++i)
+            h = 31 * h + b.get(i);
+        h += (h <<  15) ^ 0xffffcd7d;
+        h ^= (h >>> 10);
+        h += (h <<   3);
+        h ^= (h >>>  6);
+        h += (h <<   2) + (h << 14);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the size a mapping occupies in a slab, padded to eight
+     * bytes so that headers stay aligned.
+     */
+    static int entrySize(int keyLength, int valueLength) {
+        long size = (long)HEADER_SIZE + keyLength + valueLength;
+        if (size > Integer.MAX_VALUE - 7)
+            throw new IllegalArgumentException("Mapping too large: " + size);
+        return ((int)size + 7) & ~7;
+    }
+
+    static long makeRef(int slab, int offset) {
+        return ((long)(slab + 1) << 32) | (offset & 0xffffffffL);
+    }
+
+    static int slabOf(long ref)   { return (int)(ref >>> 32) - 1; }
+    static int offsetOf(long ref) { return (int)ref; }
+
+    /**
+     * Returns true if the key stored at the given offset equals the
+     * remaining bytes of the given buffer.
+     */
+    static boolean keyEquals(ByteBuffer slab, int off, ByteBuffer key,
+                             int klen) {
+        if (slab.getInt(off + 4) != klen)
+            return false;
+        int p = off + HEADER_SIZE, k = key.position(), i = 0;
+        if (key.order() == slab.order()) {
+            for (; i + 8 <= klen; i += 8) {
+                if (slab.getLong(p + i) != key.getLong(k + i))
+                    return false;
+            }
+        }
+        for (; i < klen; ++i) {
+            if (slab.get(p + i) != key.get(k + i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copies length bytes starting at off out of the slab.  The length is
+     * checked against the slab bounds first, so that a racing optimistic
+     * read cannot request an absurd allocation.
+     */
+    static byte[] copyOut(ByteBuffer slab, int off, int length) {
+        if (length < 0 || off < 0 || length > slab.capacity() - off)
+            throw new IndexOutOfBoundsException();
+        byte[] b = new byte[length];
+        ByteBuffer d = slab.duplicate();
+        d.position(off);
+        d.get(b);
+        return b;
+    }
+
+    static ByteBuffer toBuffer(Object o) {
+        if (o instanceof ByteBuffer)
+            return (ByteBuffer)o;
+        if (o instanceof byte[])
+            return ByteBuffer.wrap((byte[])o);
+        return null;
+    }
+
+    static ByteBuffer wrap(byte[] b) {
+        return (b == null) ? null : ByteBuffer.wrap(b);
+    }
+
+    /* ---------------- Segments -------------- */
+
+    /** Update modes for Segment.put */
+    static final int PUT = 0, PUT_IF_ABSENT = 1, REPLACE = 2;
+
+    /**
+     * Segments are specialized versions of hash tables.  The lock is
+     * taken exclusively for every update; retrievals use optimistic
+     * reads, falling back to the read lock when validation fails or the
+     * racing read observes inconsistent state (which surfaces as a
+     * runtime exception, since every slab access is bounds checked).
+     *
+     * The index is an open-addressed table of entry references with
+     * linear probing and backward-shift deletion, parallel to a table of
+     * hashes so that rehashing never touches the slabs.  A reference
+     * encodes the slab number (plus one, so that zero marks a free slot)
+     * in its high word and the offset of the mapping in its low word.
+     */
+    @SuppressWarnings("serial")
+    static final class Segment extends StampedLock {
+        final int slabSize;
+
+        /** Entry references; zero denotes a free slot. */
+        long[] refs;
+
+        /** Hashes of the entries in refs. */
+        int[] hashes;
+
+        /** Number of mappings; read without locking by size(). */
+        volatile int count;
+
+        /** Resize threshold of the index. */
+        int threshold;
+
+        /** The slabs, with null holes for released ones. */
+        ByteBuffer[] slabs = new ByteBuffer[4];
+
+        /** Bytes bump allocated in each slab. */
+        int[] used = new int[4];
+
+        /** Bytes held by live mappings in each slab. */
+        int[] live = new int[4];
+
+        /** Slab receiving new regular-sized mappings, or -1. */
+        int active = -1;
+
+        /** Footprint, read without locking by the buffer pool view. */
+        volatile long capacity;
+        volatile int slabCount;
+        long liveBytes;
+
+        /** Incremented whenever mappings are relocated. */
+        int relocations;
+
+        Segment(int initialCapacity, int slabSize) {
+            this.slabSize = slabSize;
+            int cap = MIN_SEGMENT_TABLE_CAPACITY;
+            while (cap < initialCapacity && cap < MAXIMUM_SEGMENT_CAPACITY)
+                cap <<= 1;
+            refs = new long[cap];
+            hashes = new int[cap];
+            threshold = (int)(cap * 0.75f);
+        }
+
+        /**
+         * Returns the index slot of the mapping for key, or -1.  Used
+         * both under lock and in optimistic reads.
+         */
+        final int indexOf(int h, ByteBuffer key) {
+            long[] rs = refs; int[] hs = hashes; ByteBuffer[] ss = slabs;
+            int n = rs.length, m = n - 1, klen = key.remaining();
+            long r;
+            for (int i = h & m, probes = 0; (r = rs[i]) != 0L &&
+                     probes < n; i = (i + 1) & m, ++probes) {
+                if (hs[i] == h && keyEquals(ss[slabOf(r)], offsetOf(r),
+                                            key, klen))
+                    return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the index slot holding exactly the given reference, or
+         * -1.  Must be called under lock.
+         */
+        final int indexOfRef(int h, long ref) {
+            long[] rs = refs;
+            int m = rs.length - 1;
+            long r;
+            for (int i = h & m; (r = rs[i]) != 0L; i = (i + 1) & m) {
+                if (r == ref)
+                    return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Reads the value stored for the key, or null.
+         */
+        final byte[] read(int h, ByteBuffer key) {
+            int i = indexOf(h, key);
+            if (i < 0)
+                return null;
+            long r = refs[i];
+            ByteBuffer s = slabs[slabOf(r)];
+            int off = offsetOf(r);
+            int klen = s.getInt(off + 4), vlen = s.getInt(off + 8);
+            return copyOut(s, off + HEADER_SIZE + klen, vlen);
+        }
+
+        final byte[] get(int h, ByteBuffer key) {
+            long stamp = tryOptimisticRead();
+            if (stamp != 0L) {
+                try {
+                    byte[] v = read(h, key);
+                    if (validate(stamp))
+                        return v;
+                } catch (RuntimeException ignore) {
+                    // raced with an update; retry under the read lock
+                }
+            }
+            stamp = readLock();
+            try {
+                return read(h, key);
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        final boolean containsKey(int h, ByteBuffer key) {
+            long stamp = tryOptimisticRead();
+            if (stamp != 0L) {
+                try {
+                    boolean found = indexOf(h, key) >= 0;
+                    if (validate(stamp))
+                        return found;
+                } catch (RuntimeException ignore) {
+                    // raced with an update; retry under the read lock
+                }
+            }
+            stamp = readLock();
+            try {
+                return indexOf(h, key) >= 0;
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        final boolean containsValue(ByteBuffer value) {
+            long stamp = readLock();
+            try {
+                long[] rs = refs;
+                int vlen = value.remaining();
+                for (int i = 0; i < rs.length; ++i) {
+                    long r;
+                    if ((r = rs[i]) != 0L) {
+                        ByteBuffer s = slabs[slabOf(r)];
+                        int off = offsetOf(r);
+                        if (s.getInt(off + 8) == vlen &&
+                            ByteBuffer.wrap(copyOut(s, off + HEADER_SIZE +
+                                                    s.getInt(off + 4), vlen))
+                            .equals(value))
+                            return true;
+                    }
+                }
+                return false;
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Stores a mapping according to mode, returning the previous
+         * value, or null if there was none.  For REPLACE with a non-null
+         * expect, the mapping is only replaced if its value equals expect,
+         * and null is returned when it does not.
+         */
+        final byte[] put(int h, ByteBuffer key, ByteBuffer value, int mode,
+                         ByteBuffer expect) {
+            long stamp = writeLock();
+            try {
+                int i = indexOf(h, key);
+                if (i >= 0) {
+                    long r = refs[i];
+                    ByteBuffer s = slabs[slabOf(r)];
+                    int off = offsetOf(r);
+                    byte[] old = copyOut(s, off + HEADER_SIZE +
+                                         s.getInt(off + 4), s.getInt(off + 8));
+                    if (mode == PUT_IF_ABSENT)
+                        return old;
+                    if (expect != null && !ByteBuffer.wrap(old).equals(expect))
+                        return null;
+                    long nr = store(h, key, value);
+                    // store may have relocated the old mapping
+                    i = indexOf(h, key);
+                    r = refs[i];
+                    refs[i] = nr;
+                    free(r);
+                    return old;
+                }
+                if (mode == REPLACE)
+                    return null;
+                long nr = store(h, key, value);
+                insert(h, nr);
+                return null;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Removes the mapping for key, if its value equals expect (when
+         * expect is non-null).  Returns the previous value, or null.
+         */
+        final byte[] remove(int h, ByteBuffer key, ByteBuffer expect) {
+            long stamp = writeLock();
+            try {
+                int i = indexOf(h, key);
+                if (i < 0)
+                    return null;
+                long r = refs[i];
+                ByteBuffer s = slabs[slabOf(r)];
+                int off = offsetOf(r);
+                byte[] old = copyOut(s, off + HEADER_SIZE + s.getInt(off + 4),
+                                     s.getInt(off + 8));
+                if (expect != null && !ByteBuffer.wrap(old).equals(expect))
+                    return null;
+                deleteSlot(i);
+                free(r);
+                return old;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        final void clear() {
+            long stamp = writeLock();
+            try {
+                Arrays.fill(refs, 0L);
+                Arrays.fill(hashes, 0);
+                int n = slabs.length;
+                slabs = new ByteBuffer[n];
+                used = new int[n];
+                live = new int[n];
+                active = -1;
+                capacity = 0L;
+                slabCount = 0;
+                liveBytes = 0L;
+                count = 0;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        /* ----- index maintenance, all under write lock ----- */
+
+        final void insert(int h, long ref) {
+            if (count >= threshold)
+                rehash();
+            long[] rs = refs;
+            int m = rs.length - 1, i = h & m;
+            while (rs[i] != 0L)
+                i = (i + 1) & m;
+            hashes[i] = h;
+            rs[i] = ref;
+            count = count + 1;
+        }
+
+        final void deleteSlot(int pos) {
+            long[] rs = refs; int[] hs = hashes;
+            int m = rs.length - 1;
+            for (int last;;) {
+                pos = ((last = pos) + 1) & m;
+                long r;
+                for (;;) {
+                    if ((r = rs[pos]) == 0L) {
+                        rs[last] = 0L;
+                        hs[last] = 0;
+                        count = count - 1;
+                        return;
+                    }
+                    int slot = hs[pos] & m;
+                    if (last <= pos ? (last >= slot || slot > pos)
+                                    : (last >= slot && slot > pos))
+                        break;
+                    pos = (pos + 1) & m;
+                }
+                rs[last] = r;
+                hs[last] = hs[pos];
+            }
+        }
+
+        /**
+         * Doubles the index.  New arrays are fully populated before being
+         * published, so optimistic readers never see a table without a
+         * free slot.
+         */
+        final void rehash() {
+            long[] oldRefs = refs; int[] oldHashes = hashes;
+            int oldCap = oldRefs.length;
+            if (oldCap >= MAXIMUM_SEGMENT_CAPACITY) {
+                if (count >= oldCap - 1)
+                    throw new IllegalStateException("Segment is full");
+                threshold = Integer.MAX_VALUE;
+                return;
+            }
+            int n = oldCap << 1, m = n - 1;
+            long[] rs = new long[n];
+            int[] hs = new int[n];
+            for (int j = 0; j < oldCap; ++j) {
+                long r;
+                if ((r = oldRefs[j]) != 0L) {
+                    int h = oldHashes[j], i = h & m;
+                    while (rs[i] != 0L)
+                        i = (i + 1) & m;
+                    rs[i] = r;
+                    hs[i] = h;
+                }
+            }
+            threshold = (int)(n * 0.75f);
+            hashes = hs;
+            refs = rs;
+        }
+
+        /* ----- slab management, all under write lock ----- */
+
+        /**
+         * Serializes a mapping into slab memory and returns its reference.
+         */
+        final long store(int h, ByteBuffer key, ByteBuffer value) {
+            int klen = key.remaining(), vlen = value.remaining();
+            int size = entrySize(klen, vlen);
+            long ref = allocate(size);
+            ByteBuffer s = slabs[slabOf(ref)];
+            int off = offsetOf(ref);
+            s.putInt(off, h);
+            s.putInt(off + 4, klen);
+            s.putInt(off + 8, vlen);
+            ByteBuffer d = s.duplicate();
+            d.position(off + HEADER_SIZE);
+            d.put(key.duplicate());
+            d.put(value.duplicate());
+            return ref;
+        }
+
+        final long allocate(int size) {
+            int s;
+            if (size > slabSize) {
+                s = newSlab(size);
+            }
+            else {
+                while (active < 0 || slabSize - used[active] < size) {
+                    int old = active;
+                    active = newSlab(slabSize);
+                    if (old >= 0 && live[old] == 0)
+                        dropSlab(old);
+                    compact(slabSize - size);
+                }
+                s = active;
+            }
+            int off = used[s];
+            used[s] = off + size;
+            live[s] += size;
+            liveBytes += size;
+            return makeRef(s, off);
+        }
+
+        /**
+         * Releases the space of a mapping no longer referenced from the
+         * index.
+         */
+        final void free(long ref) {
+            int s = slabOf(ref), off = offsetOf(ref);
+            ByteBuffer b = slabs[s];
+            int size = entrySize(b.getInt(off + 4), b.getInt(off + 8));
+            live[s] -= size;
+            liveBytes -= size;
+            if (live[s] == 0 && s != active)
+                dropSlab(s);
+        }
+
+        final int newSlab(int size) {
+            ByteBuffer[] ss = slabs;
+            int s = 0, n = ss.length;
+            while (s < n && ss[s] != null)
+                ++s;
+            if (s == n) {
+                slabs = ss = Arrays.copyOf(ss, n << 1);
+                used = Arrays.copyOf(used, n << 1);
+                live = Arrays.copyOf(live, n << 1);
+            }
+            ss[s] = ByteBuffer.allocateDirect(size);
+            used[s] = live[s] = 0;
+            capacity += size;
+            slabCount = slabCount + 1;
+            return s;
+        }
+
+        /**
+         * Unlinks a slab.  Its memory is not freed eagerly: a racing
+         * optimistic reader may still hold it, so the buffer's cleaner is
+         * left to run once it becomes unreachable.
+         */
+        final void dropSlab(int s) {
+            capacity -= slabs[s].capacity();
+            slabCount = slabCount - 1;
+            slabs[s] = null;
+            used[s] = live[s] = 0;
+        }
+
+        /**
+         * If more than half of the allocated slab space is dead, moves
+         * the live mappings of the sparsest regular slab into the active
+         * slab (which has just been allocated) and drops it.  Only slabs
+         * with at most limit live bytes are considered, so that the
+         * allocation that triggered the call still fits afterwards.
+         */
+        final void compact(int limit) {
+            long cap = capacity;
+            if (cap - liveBytes <= cap >>> 1)
+                return;
+            ByteBuffer[] ss = slabs;
+            int victim = -1, min = Math.min(slabSize >>> 1, limit) + 1;
+            for (int s = 0; s < ss.length; ++s) {
+                if (s != active && ss[s] != null &&
+                    ss[s].capacity() == slabSize && live[s] < min) {
+                    min = live[s];
+                    victim = s;
+                }
+            }
+            if (victim < 0)
+                return;
+            ByteBuffer from = ss[victim], to = ss[active];
+            for (int off = 0, end = used[victim]; off < end; ) {
+                int h = from.getInt(off);
+                int size = entrySize(from.getInt(off + 4),
+                                     from.getInt(off + 8));
+                int i = indexOfRef(h, makeRef(victim, off));
+                if (i >= 0) {
+                    int noff = used[active];
+                    ByteBuffer src = from.duplicate();
+                    src.limit(off + size);
+                    src.position(off);
+                    ByteBuffer dst = to.duplicate();
+                    dst.position(noff);
+                    dst.put(src);
+                    used[active] = noff + size;
+                    live[active] += size;
+                    refs[i] = makeRef(active, noff);
+                }
+                off += size;
+            }
+            liveBytes -= live[victim];
+            live[victim] = 0;
+            dropSlab(victim);
+            ++relocations;
+        }
+
+        /**
+         * Returns copies of the keys of all mappings, for iteration.
+         * Keys rather than references are copied, since compaction may
+         * relocate a mapping, and release the slab it was read from,
+         * without the mapping changing.
+         */
+        final byte[][] snapshotKeys() {
+            long stamp = readLock();
+            try {
+                long[] rs = refs;
+                byte[][] keys = new byte[count][];
+                int j = 0;
+                for (long r : rs) {
+                    if (r != 0L) {
+                        ByteBuffer s = slabs[slabOf(r)];
+                        int off = offsetOf(r);
+                        keys[j++] = copyOut(s, off + HEADER_SIZE,
+                                            s.getInt(off + 4));
+                    }
+                }
+                return keys;
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Creates a new, empty map with the specified name, initial capacity,
+     * concurrency level and slab size.
+     *
+     * @param name the name reported by {@link #getBufferPoolMXBean}, or
+     * null to generate one
+     * @param initialCapacity the initial capacity. The implementation
+     * performs internal sizing to accommodate this many elements.
+     * @param concurrencyLevel the estimated number of concurrently
+     * updating threads.
+     * @param slabSize the size in bytes of the direct buffers mappings are
+     * stored in; rounded up to a power of two
+     * @throws IllegalArgumentException if the initial capacity is
+     * negative or the concurrency level or slab size are nonpositive.
+     */
+    public OffHeapConcurrentHashMap(String name, int initialCapacity,
+                                    int concurrencyLevel, int slabSize) {
+        if (initialCapacity < 0 || concurrencyLevel <= 0 || slabSize <= 0)
+            throw new IllegalArgumentException();
+        if (concurrencyLevel > MAX_SEGMENTS)
+            concurrencyLevel = MAX_SEGMENTS;
+        if (slabSize < MIN_SLAB_SIZE)
+            slabSize = MIN_SLAB_SIZE;
+        else if (slabSize > (1 << 30))
+            slabSize = 1 << 30;
+        else
+            slabSize = Integer.highestOneBit(slabSize - 1) << 1;
+        // Find power-of-two sizes best matching arguments
+        int sshift = 0;
+        int ssize = 1;
+        while (ssize < concurrencyLevel) {
+            ++sshift;
+            ssize <<= 1;
+        }
+        this.segmentShift = 32 - sshift;
+        this.segmentMask = ssize - 1;
+        int c = initialCapacity / ssize;
+        if (c * ssize < initialCapacity)
+            ++c;
+        int cap = (int)Math.min((long)c * 4 / 3 + 1, MAXIMUM_SEGMENT_CAPACITY);
+        Segment[] ss = new Segment[ssize];
+        for (int i = 0; i < ssize; ++i)
+            ss[i] = new Segment(cap, slabSize);
+        this.segments = ss;
+        this.slabSize = slabSize;
+        this.name = (name != null) ? name :
+            "offheap-map-" + poolNumber.incrementAndGet();
+    }
+
+    /**
+     * Creates a new, empty map with the specified initial capacity and
+     * default concurrency level (16) and slab size (1 MiB).
+     *
+     * @param initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public OffHeapConcurrentHashMap(int initialCapacity) {
+        this(null, initialCapacity, DEFAULT_CONCURRENCY_LEVEL,
+             DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Creates a new, empty map with a default initial capacity (16),
+     * concurrency level (16) and slab size (1 MiB).
+     */
+    public OffHeapConcurrentHashMap() {
+        this(null, DEFAULT_INITIAL_CAPACITY, DEFAULT_CONCURRENCY_LEVEL,
+             DEFAULT_SLAB_SIZE);
+    }
+
+    final Segment segmentFor(int h) {
+        return segments[(h >>> segmentShift) & segmentMask];
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.  If the map
+     * contains more than <tt>Integer.MAX_VALUE</tt> elements, returns
+     * <tt>Integer.MAX_VALUE</tt>.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        long n = 0L;
+        for (Segment s : segments)
+            n += s.count;
+        return (n > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        for (Segment s : segments)
+            if (s.count != 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns a copy of the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.  The
+     * key may be a {@code ByteBuffer} or a {@code byte[]}; the position
+     * of a buffer is not changed.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public ByteBuffer get(Object key) {
+        ByteBuffer k = toBuffer(key);
+        if (k == null) {
+            if (key == null)
+                throw new NullPointerException();
+            return null;
+        }
+        int h = hash(k);
+        return wrap(segmentFor(h).get(h, k));
+    }
+
+    /**
+     * Returns a copy of the value to which the specified key is mapped,
+     * or {@code null} if none.
+     *
+     * @param key the key
+     * @return the value bytes, or {@code null}
+     * @throws NullPointerException if the specified key is null
+     */
+    public byte[] get(byte[] key) {
+        ByteBuffer k = ByteBuffer.wrap(key);
+        int h = hash(k);
+        return segmentFor(h).get(h, k);
+    }
+
+    /**
+     * Tests if the specified object is a key in this map.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        ByteBuffer k = toBuffer(key);
+        if (k == null) {
+            if (key == null)
+                throw new NullPointerException();
+            return false;
+        }
+        int h = hash(k);
+        return segmentFor(h).containsKey(h, k);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value. This method requires a full traversal of the map
+     * and of the stored values.
+     *
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        ByteBuffer v = toBuffer(value);
+        if (v == null) {
+            if (value == null)
+                throw new NullPointerException();
+            return false;
+        }
+        for (Segment s : segments)
+            if (s.containsValue(v))
+                return true;
+        return false;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this table.  The
+     * remaining bytes of both buffers are copied; their positions are
+     * not changed.
+     *
+     * @return a copy of the previous value associated with <tt>key</tt>,
+     *         or <tt>null</tt> if there was no mapping for <tt>key</tt>
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public ByteBuffer put(ByteBuffer key, ByteBuffer value) {
+        if (value == null)
+            throw new NullPointerException();
+        int h = hash(key);
+        return wrap(segmentFor(h).put(h, key, value, PUT, null));
+    }
+
+    /**
+     * Maps the specified key to the specified value in this table.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previous value bytes, or {@code null}
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public byte[] put(byte[] key, byte[] value) {
+        ByteBuffer k = ByteBuffer.wrap(key), v = ByteBuffer.wrap(value);
+        int h = hash(k);
+        return segmentFor(h).put(h, k, v, PUT, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or <tt>null</tt> if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public ByteBuffer putIfAbsent(ByteBuffer key, ByteBuffer value) {
+        if (value == null)
+            throw new NullPointerException();
+        int h = hash(key);
+        return wrap(segmentFor(h).put(h, key, value, PUT_IF_ABSENT, null));
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @return a copy of the previous value associated with <tt>key</tt>,
+     *         or <tt>null</tt> if there was no mapping for <tt>key</tt>
+     * @throws NullPointerException if the specified key is null
+     */
+    public ByteBuffer remove(Object key) {
+        ByteBuffer k = toBuffer(key);
+        if (k == null) {
+            if (key == null)
+                throw new NullPointerException();
+            return null;
+        }
+        int h = hash(k);
+        return wrap(segmentFor(h).remove(h, k, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        ByteBuffer k = toBuffer(key), v;
+        if (k == null) {
+            if (key == null)
+                throw new NullPointerException();
+            return false;
+        }
+        if ((v = toBuffer(value)) == null)
+            return false;
+        int h = hash(k);
+        return segmentFor(h).remove(h, k, v) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(ByteBuffer key, ByteBuffer oldValue,
+                           ByteBuffer newValue) {
+        if (oldValue == null || newValue == null)
+            throw new NullPointerException();
+        int h = hash(key);
+        return segmentFor(h).put(h, key, newValue, REPLACE, oldValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or <tt>null</tt> if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public ByteBuffer replace(ByteBuffer key, ByteBuffer value) {
+        if (value == null)
+            throw new NullPointerException();
+        int h = hash(key);
+        return wrap(segmentFor(h).put(h, key, value, REPLACE, null));
+    }
+
+    /**
+     * Removes all of the mappings from this map, unlinking all slabs.
+     */
+    public void clear() {
+        for (Segment s : segments)
+            s.clear();
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map for removals.  Entries are copies;
+     * {@code setValue} writes through with {@link #put}.
+     *
+     * <p>The view's <tt>iterator</tt> is a "weakly consistent" iterator
+     * that will never throw {@link ConcurrentModificationException}, and
+     * reflects mappings present when it reaches each segment; mappings
+     * updated or relocated after that may not be returned.
+     */
+    public Set<Map.Entry<ByteBuffer,ByteBuffer>> entrySet() {
+        Set<Map.Entry<ByteBuffer,ByteBuffer>> es;
+        return (es = entrySet) != null ? es : (entrySet = new EntrySet());
+    }
+
+    /**
+     * Returns a {@link BufferPoolMXBean} describing the slabs of this map:
+     * the number of slabs, and their total capacity in bytes.  These are
+     * also included in the platform <tt>"direct"</tt> buffer pool.  The
+     * bean may be registered with an {@code MBeanServer} under its
+     * {@link BufferPoolMXBean#getObjectName object name}.
+     *
+     * @return the buffer pool view of this map
+     */
+    public BufferPoolMXBean getBufferPoolMXBean() {
+        BufferPoolMXBean b;
+        return (b = bufferPool) != null ? b : (bufferPool = new SlabPool());
+    }
+
+    /* ---------------- Views -------------- */
+
+    final class SlabPool implements BufferPoolMXBean {
+        public String getName() {
+            return name;
+        }
+        public ObjectName getObjectName() {
+            try {
+                return ObjectName.getInstance(
+                    "java.nio:type=BufferPool,name=" +
+                    ObjectName.quote(name));
+            } catch (MalformedObjectNameException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+        public long getCount() {
+            long n = 0L;
+            for (Segment s : segments)
+                n += s.slabCount;
+            return n;
+        }
+        public long getTotalCapacity() {
+            long n = 0L;
+            for (Segment s : segments)
+                n += s.capacity;
+            return n;
+        }
+        public long getMemoryUsed() {
+            return getTotalCapacity();
+        }
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<ByteBuffer,ByteBuffer>> {
+        public Iterator<Map.Entry<ByteBuffer,ByteBuffer>> iterator() {
+            return new EntryIterator();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            ByteBuffer v = (e.getKey() == null) ? null : get(e.getKey());
+            return v != null && v.equals(toBuffer(e.getValue()));
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return e.getKey() != null &&
+                OffHeapConcurrentHashMap.this.remove(e.getKey(), e.getValue());
+        }
+        public int size() {
+            return OffHeapConcurrentHashMap.this.size();
+        }
+        public boolean isEmpty() {
+            return OffHeapConcurrentHashMap.this.isEmpty();
+        }
+        public void clear() {
+            OffHeapConcurrentHashMap.this.clear();
+        }
+    }
+
+    /**
+     * Entry returned by the iterator.
+     */
+    final class MapEntry extends AbstractMap.SimpleEntry<ByteBuffer,ByteBuffer> {
+        private static final long serialVersionUID = 8591876264138925634L;
+        MapEntry(ByteBuffer k, ByteBuffer v) { super(k, v); }
+        public ByteBuffer setValue(ByteBuffer value) {
+            if (value == null)
+                throw new NullPointerException();
+            ByteBuffer old = super.setValue(value);
+            put(getKey(), value);
+            return old;
+        }
+    }
+
+    /**
+     * Walks the segments from last to first, taking a snapshot of each
+     * segment's keys on arrival.  The value of each key is looked up
+     * when the iterator reaches it, so keys removed since the snapshot
+     * are skipped, and every other mapping of the snapshot is returned
+     * wherever compaction has moved it.
+     */
+    final class EntryIterator implements Iterator<Map.Entry<ByteBuffer,ByteBuffer>> {
+        int nextSegment = segments.length - 1;
+        byte[][] keys;
+        int nextIndex;
+        Segment current;
+        MapEntry next, lastReturned;
+
+        EntryIterator() {
+            advance();
+        }
+
+        final void advance() {
+            for (;;) {
+                if (keys != null) {
+                    while (nextIndex < keys.length) {
+                        ByteBuffer k = ByteBuffer.wrap(keys[nextIndex]);
+                        keys[nextIndex++] = null;
+                        byte[] v = current.get(hash(k), k);
+                        if (v != null) {
+                            next = new MapEntry(k, ByteBuffer.wrap(v));
+                            return;
+                        }
+                    }
+                }
+                if (nextSegment < 0) {
+                    next = null;
+                    return;
+                }
+                current = segments[nextSegment--];
+                keys = current.snapshotKeys();
+                nextIndex = 0;
+            }
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Map.Entry<ByteBuffer,ByteBuffer> next() {
+            MapEntry e = next;
+            if (e == null)
+                throw new NoSuchElementException();
+            lastReturned = e;
+            advance();
+            return e;
+        }
+
+        public void remove() {
+            if (lastReturned == null)
+                throw new IllegalStateException();
+            OffHeapConcurrentHashMap.this.remove(lastReturned.getKey());
+            lastReturned = null;
+        }
+    }
+}
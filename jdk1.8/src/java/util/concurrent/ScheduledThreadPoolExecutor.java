@@ -136,6 +136,9 @@ public class ScheduledThreadPoolExecutor
      *    the fact that corePoolSize and maximumPoolSize are
      *    effectively identical simplifies some execution mechanics
      *    (see delayedExecute) compared to ThreadPoolExecutor.
+     *    Pools constructed with a queueShards argument instead use a
+     *    ShardedDelayedWorkQueue, which spreads the same heap over
+     *    independently locked shards.
      *
      * 3. Supporting optional run-after-shutdown parameters, which
      *    leads to overrides of shutdown methods to remove and cancel
@@ -202,6 +205,14 @@ public class ScheduledThreadPoolExecutor
          */
         int heapIndex;
 
+        /**
+         * Shard of a ShardedDelayedWorkQueue holding this task, and
+         * whether the task has been removed from it lazily but is
+         * still in its heap.  Guarded by the shard lock.
+         */
+        int shardIndex = -1;
+        boolean lazilyRemoved;
+
         /**
          * Creates a one-shot action with given nanoTime-based trigger time.
          */
@@ -486,6 +497,50 @@ public class ScheduledThreadPoolExecutor
               new DelayedWorkQueue(), threadFactory, handler);
     }
 
+    /**
+     * Creates a new ScheduledThreadPoolExecutor with the given
+     * initial parameters, whose work queue is split into the given
+     * number of independently locked shards.
+     *
+     * <p>With a single shared work queue, every {@code schedule},
+     * every removal of a cancelled task and every worker waiting for
+     * a task contend on one lock.  A sharded queue lets threads
+     * scheduling tasks use different shards, and removes a cancelled
+     * task (see {@link #setRemoveOnCancelPolicy}) in amortized
+     * constant time by marking it and discarding it later, rather
+     * than restoring heap order immediately.  Workers still take
+     * tasks in order of their delays; finding the earliest task costs
+     * a scan of the shards, so the number of shards should be of the
+     * order of the number of threads scheduling tasks concurrently.
+     * The number of shards is rounded up to a power of two.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @param queueShards the number of shards of the work queue
+     * @throws IllegalArgumentException if {@code corePoolSize < 0} or
+     *         {@code queueShards <= 0}
+     * @throws NullPointerException if {@code threadFactory} or
+     *         {@code handler} is null
+     * @since 1.8
+     */
+    public ScheduledThreadPoolExecutor(int corePoolSize,
+                                       ThreadFactory threadFactory,
+                                       RejectedExecutionHandler handler,
+                                       int queueShards) {
+        super(corePoolSize, Integer.MAX_VALUE, 0, NANOSECONDS,
+              newShardedQueue(queueShards), threadFactory, handler);
+    }
+
+    private static BlockingQueue<Runnable> newShardedQueue(int queueShards) {
+        if (queueShards <= 0)
+            throw new IllegalArgumentException();
+        return new ShardedDelayedWorkQueue(queueShards);
+    }
+
     /**
      * Returns the trigger time of a delayed action.
      */
@@ -1280,4 +1335,652 @@ public class ScheduledThreadPoolExecutor
             }
         }
     }
+
+    /**
+     * Delay queue split into independently locked shards, used when a
+     * pool is created with a {@code queueShards} argument.  Like
+     * DelayedWorkQueue it can only hold RunnableScheduledFutures.
+     */
+    static class ShardedDelayedWorkQueue extends AbstractQueue<Runnable>
+        implements BlockingQueue<Runnable> {
+
+        /*
+         * Each shard is a heap like the one in DelayedWorkQueue, with
+         * its own lock, and publishes its first element in a volatile
+         * field.  Producers add to the shard selected by their
+         * ThreadLocalRandom probe, moving to another shard when the
+         * lock is contended, so concurrent schedule calls rarely meet.
+         * Consumers find the earliest task by scanning the published
+         * heads without locking, and lock only the shard holding it.
+         *
+         * Removal of a ScheduledFutureTask (as on cancellation under
+         * the remove-on-cancel policy) is lazy: the task is marked
+         * under its shard lock and left in place, and is discarded
+         * when it reaches the top of its heap.  A shard whose heap is
+         * more than half made up of such tasks is rebuilt, in time
+         * linear in its size, so removal costs amortized O(1) instead
+         * of an O(log n) sift, and garbage retention is bounded.
+         * Other kinds of RunnableScheduledFuture are found by linear
+         * search and removed immediately, as in DelayedWorkQueue.
+         * Every shard's first element is a task that has not been
+         * removed.
+         *
+         * Threads waiting for a task use the leader-follower scheme of
+         * DelayedWorkQueue, under a separate lock that producers take
+         * only when they have changed the first element of a shard
+         * while some thread is waiting.  Waiters announce themselves
+         * in the volatile waiters count before scanning the shards,
+         * and producers publish the new head before reading it, so a
+         * new earliest task cannot be missed.
+         */
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        /** Maximum number of shards */
+        private static final int MAXIMUM_SHARDS = 1 << 16;
+
+        private final Shard[] shards;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** Thread designated to wait for the earliest task */
+        private Thread leader = null;
+
+        /**
+         * Condition signalled when a newer task becomes available at the
+         * head of a shard or a new thread may need to become leader.
+         */
+        private final Condition available = lock.newCondition();
+
+        /** Number of threads waiting on available; updated under lock */
+        private volatile int waiters;
+
+        ShardedDelayedWorkQueue(int nShards) {
+            int n = (nShards >= MAXIMUM_SHARDS) ? MAXIMUM_SHARDS :
+                (nShards <= 1) ? 1 : Integer.highestOneBit(nShards - 1) << 1;
+            Shard[] ss = new Shard[n];
+            for (int i = 0; i < n; ++i)
+                ss[i] = new Shard(i);
+            this.shards = ss;
+        }
+
+        /**
+         * A heap of tasks.  All fields but head are guarded by lock.
+         */
+        @sun.misc.Contended static final class Shard {
+            final ReentrantLock lock = new ReentrantLock();
+            final int index;
+            RunnableScheduledFuture<?>[] queue =
+                new RunnableScheduledFuture<?>[INITIAL_CAPACITY];
+            /** Number of elements, including lazily removed ones */
+            int size;
+            /** Number of lazily removed elements */
+            int removed;
+            /** queue[0], for lock-free scans */
+            volatile RunnableScheduledFuture<?> head;
+
+            Shard(int index) {
+                this.index = index;
+            }
+
+            static void setIndex(RunnableScheduledFuture<?> f, int idx) {
+                if (f instanceof ScheduledFutureTask)
+                    ((ScheduledFutureTask)f).heapIndex = idx;
+            }
+
+            static boolean isRemoved(RunnableScheduledFuture<?> f) {
+                return (f instanceof ScheduledFutureTask) &&
+                    ((ScheduledFutureTask)f).lazilyRemoved;
+            }
+
+            void siftUp(int k, RunnableScheduledFuture<?> key) {
+                while (k > 0) {
+                    int parent = (k - 1) >>> 1;
+                    RunnableScheduledFuture<?> e = queue[parent];
+                    if (key.compareTo(e) >= 0)
+                        break;
+                    queue[k] = e;
+                    setIndex(e, k);
+                    k = parent;
+                }
+                queue[k] = key;
+                setIndex(key, k);
+            }
+
+            void siftDown(int k, RunnableScheduledFuture<?> key) {
+                int half = size >>> 1;
+                while (k < half) {
+                    int child = (k << 1) + 1;
+                    RunnableScheduledFuture<?> c = queue[child];
+                    int right = child + 1;
+                    if (right < size && c.compareTo(queue[right]) > 0)
+                        c = queue[child = right];
+                    if (key.compareTo(c) <= 0)
+                        break;
+                    queue[k] = c;
+                    setIndex(c, k);
+                    k = child;
+                }
+                queue[k] = key;
+                setIndex(key, k);
+            }
+
+            /**
+             * Adds e, returning true if it became the first element.
+             */
+            boolean add(RunnableScheduledFuture<?> e) {
+                if (e instanceof ScheduledFutureTask) {
+                    ScheduledFutureTask<?> t = (ScheduledFutureTask<?>)e;
+                    t.shardIndex = index;
+                    t.lazilyRemoved = false;
+                }
+                int i = size;
+                if (i >= queue.length) {
+                    int newCapacity = i + (i >> 1); // grow 50%
+                    if (newCapacity < 0) // overflow
+                        newCapacity = Integer.MAX_VALUE;
+                    queue = Arrays.copyOf(queue, newCapacity);
+                }
+                size = i + 1;
+                siftUp(i, e);
+                if (queue[0] == e) {
+                    head = e;
+                    return true;
+                }
+                return false;
+            }
+
+            /**
+             * Removes the element at index i, then discards lazily
+             * removed elements from the top and republishes head.
+             */
+            void removeAt(int i) {
+                setIndex(queue[i], -1);
+                int s = --size;
+                RunnableScheduledFuture<?> replacement = queue[s];
+                queue[s] = null;
+                if (s != i) {
+                    siftDown(i, replacement);
+                    if (queue[i] == replacement)
+                        siftUp(i, replacement);
+                }
+                // 替换元素可能上浮到堆顶，堆顶必须是未删除的任务
+                RunnableScheduledFuture<?> first;
+                while ((first = queue[0]) != null && isRemoved(first)) {
+                    --removed;
+                    ((ScheduledFutureTask)first).lazilyRemoved = false;
+                    removeAt0();
+                }
+                head = queue[0];
+            }
+
+            private void removeAt0() {
+                setIndex(queue[0], -1);
+                int s = --size;
+                RunnableScheduledFuture<?> x = queue[s];
+                queue[s] = null;
+                if (s != 0)
+                    siftDown(0, x);
+            }
+
+            RunnableScheduledFuture<?> pollFirst() {
+                RunnableScheduledFuture<?> f = queue[0];
+                removeAt(0);
+                return f;
+            }
+
+            /**
+             * Index of x if present and not removed, else -1.
+             */
+            int indexOf(Object x) {
+                if (x instanceof ScheduledFutureTask) {
+                    ScheduledFutureTask<?> t = (ScheduledFutureTask<?>)x;
+                    int i = t.heapIndex;
+                    if (t.shardIndex == index && i >= 0 && i < size &&
+                        queue[i] == x && !t.lazilyRemoved)
+                        return i;
+                } else if (x != null) {
+                    for (int i = 0; i < size; i++)
+                        if (x.equals(queue[i]))
+                            return i;
+                }
+                return -1;
+            }
+
+            /**
+             * Removes the element at index i, lazily if possible.
+             */
+            void remove(int i) {
+                RunnableScheduledFuture<?> x = queue[i];
+                if (i == 0 || !(x instanceof ScheduledFutureTask))
+                    removeAt(i);
+                else {
+                    ((ScheduledFutureTask)x).lazilyRemoved = true;
+                    if (++removed > (size >>> 1))
+                        purge();
+                }
+            }
+
+            /**
+             * Drops all lazily removed elements and re-heapifies.
+             */
+            void purge() {
+                RunnableScheduledFuture<?>[] q = queue;
+                int n = 0;
+                for (int i = 0, s = size; i < s; ++i) {
+                    RunnableScheduledFuture<?> x = q[i];
+                    q[i] = null;
+                    if (isRemoved(x)) {
+                        ((ScheduledFutureTask)x).lazilyRemoved = false;
+                        setIndex(x, -1);
+                    } else
+                        q[n++] = x;
+                }
+                size = n;
+                removed = 0;
+                for (int i = (n >>> 1) - 1; i >= 0; --i)
+                    siftDown(i, q[i]);
+                for (int i = 0; i < n; ++i)
+                    setIndex(q[i], i);
+                head = q[0];
+            }
+
+            void clear() {
+                for (int i = 0; i < size; i++) {
+                    RunnableScheduledFuture<?> t = queue[i];
+                    if (t != null) {
+                        queue[i] = null;
+                        if (isRemoved(t))
+                            ((ScheduledFutureTask)t).lazilyRemoved = false;
+                        setIndex(t, -1);
+                    }
+                }
+                size = removed = 0;
+                head = null;
+            }
+
+            void addLiveTo(Collection<Object> c) {
+                for (int i = 0; i < size; i++) {
+                    RunnableScheduledFuture<?> t = queue[i];
+                    if (!isRemoved(t))
+                        c.add(t);
+                }
+            }
+        }
+
+        /**
+         * Returns the shard holding x, or null if x cannot be located
+         * without a search.
+         */
+        private Shard shardOf(Object x) {
+            if (x instanceof ScheduledFutureTask) {
+                int i = ((ScheduledFutureTask)x).shardIndex;
+                return (i >= 0 && i < shards.length) ? shards[i] : null;
+            }
+            return null;
+        }
+
+        /**
+         * Returns the shard whose first element is earliest, or null
+         * if all are empty.  Does not lock.
+         */
+        private Shard earliestShard() {
+            Shard best = null;
+            RunnableScheduledFuture<?> min = null;
+            for (Shard s : shards) {
+                RunnableScheduledFuture<?> h = s.head;
+                if (h != null && (min == null || h.compareTo(min) < 0)) {
+                    min = h;
+                    best = s;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Removes and returns the earliest task if its delay has
+         * elapsed, else returns null.
+         */
+        private RunnableScheduledFuture<?> pollExpired(Collection<? super Runnable> c) {
+            for (;;) {
+                Shard s = earliestShard();
+                if (s == null)
+                    return null;
+                RunnableScheduledFuture<?> first = s.head;
+                if (first == null)
+                    continue;
+                if (first.getDelay(NANOSECONDS) > 0)
+                    return null;
+                final ReentrantLock lock = s.lock;
+                lock.lock();
+                try {
+                    if (s.head == first) {
+                        if (c != null)
+                            c.add(first);   // In this order, in case add() throws.
+                        return s.pollFirst();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Wakes a waiting thread after a shard's head has changed.
+         */
+        private void signalWaiter() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                leader = null;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean contains(Object x) {
+            Shard s = shardOf(x);
+            if (s != null) {
+                s.lock.lock();
+                try {
+                    return s.indexOf(x) >= 0;
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+            if (x == null)
+                return false;
+            for (Shard t : shards) {
+                t.lock.lock();
+                try {
+                    if (t.indexOf(x) >= 0)
+                        return true;
+                } finally {
+                    t.lock.unlock();
+                }
+            }
+            return false;
+        }
+
+        public boolean remove(Object x) {
+            if (x instanceof ScheduledFutureTask) {
+                Shard s = shardOf(x);
+                if (s == null)
+                    return false;
+                s.lock.lock();
+                try {
+                    int i = s.indexOf(x);
+                    if (i < 0)
+                        return false;
+                    s.remove(i);
+                    return true;
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+            if (x == null)
+                return false;
+            for (Shard s : shards) {
+                s.lock.lock();
+                try {
+                    int i = s.indexOf(x);
+                    if (i >= 0) {
+                        s.remove(i);
+                        return true;
+                    }
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+            return false;
+        }
+
+        public int size() {
+            int n = 0;
+            for (Shard s : shards) {
+                s.lock.lock();
+                try {
+                    n += s.size - s.removed;
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+            return n;
+        }
+
+        public boolean isEmpty() {
+            return earliestShard() == null;
+        }
+
+        public int remainingCapacity() {
+            return Integer.MAX_VALUE;
+        }
+
+        public RunnableScheduledFuture<?> peek() {
+            for (;;) {
+                Shard s = earliestShard();
+                if (s == null)
+                    return null;
+                RunnableScheduledFuture<?> first = s.head;
+                if (first != null)
+                    return first;
+            }
+        }
+
+        public boolean offer(Runnable x) {
+            if (x == null)
+                throw new NullPointerException();
+            RunnableScheduledFuture<?> e = (RunnableScheduledFuture<?>)x;
+            final Shard[] ss = shards;
+            final int mask = ss.length - 1;
+            int h = ThreadLocalRandom.getProbe();
+            if (h == 0) {
+                ThreadLocalRandom.localInit();
+                h = ThreadLocalRandom.getProbe();
+            }
+            Shard s = ss[h & mask];
+            // 分片锁被占用时换一个分片，尝试若干次后再阻塞加锁
+            for (int tries = ss.length; !s.lock.tryLock(); ) {
+                if (--tries <= 0) {
+                    s.lock.lock();
+                    break;
+                }
+                h = ThreadLocalRandom.advanceProbe(h);
+                s = ss[h & mask];
+            }
+            boolean first;
+            try {
+                first = s.add(e);
+            } finally {
+                s.lock.unlock();
+            }
+            if (first && waiters > 0)
+                signalWaiter();
+            return true;
+        }
+
+        public void put(Runnable e) {
+            offer(e);
+        }
+
+        public boolean add(Runnable e) {
+            return offer(e);
+        }
+
+        public boolean offer(Runnable e, long timeout, TimeUnit unit) {
+            return offer(e);
+        }
+
+        public RunnableScheduledFuture<?> poll() {
+            return pollExpired(null);
+        }
+
+        public RunnableScheduledFuture<?> take() throws InterruptedException {
+            for (;;) {
+                RunnableScheduledFuture<?> f = pollExpired(null);
+                if (f != null)
+                    return f;
+                final ReentrantLock lock = this.lock;
+                lock.lockInterruptibly();
+                try {
+                    ++waiters;
+                    try {
+                        RunnableScheduledFuture<?> first = peek();
+                        if (first == null)
+                            available.await();
+                        else {
+                            long delay = first.getDelay(NANOSECONDS);
+                            first = null; // don't retain ref while waiting
+                            if (delay <= 0)
+                                continue;
+                            if (leader != null)
+                                available.await();
+                            else {
+                                Thread thisThread = Thread.currentThread();
+                                leader = thisThread;
+                                try {
+                                    available.awaitNanos(delay);
+                                } finally {
+                                    if (leader == thisThread)
+                                        leader = null;
+                                }
+                            }
+                        }
+                    } finally {
+                        --waiters;
+                    }
+                } finally {
+                    if (leader == null && earliestShard() != null)
+                        available.signal();
+                    lock.unlock();
+                }
+            }
+        }
+
+        public RunnableScheduledFuture<?> poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            for (;;) {
+                RunnableScheduledFuture<?> f = pollExpired(null);
+                if (f != null)
+                    return f;
+                if (nanos <= 0)
+                    return null;
+                final ReentrantLock lock = this.lock;
+                lock.lockInterruptibly();
+                try {
+                    ++waiters;
+                    try {
+                        RunnableScheduledFuture<?> first = peek();
+                        if (first == null)
+                            nanos = available.awaitNanos(nanos);
+                        else {
+                            long delay = first.getDelay(NANOSECONDS);
+                            first = null; // don't retain ref while waiting
+                            if (delay <= 0)
+                                continue;
+                            if (nanos < delay || leader != null)
+                                nanos = available.awaitNanos(nanos);
+                            else {
+                                Thread thisThread = Thread.currentThread();
+                                leader = thisThread;
+                                try {
+                                    long timeLeft = available.awaitNanos(delay);
+                                    nanos -= delay - timeLeft;
+                                } finally {
+                                    if (leader == thisThread)
+                                        leader = null;
+                                }
+                            }
+                        }
+                    } finally {
+                        --waiters;
+                    }
+                } finally {
+                    if (leader == null && earliestShard() != null)
+                        available.signal();
+                    lock.unlock();
+                }
+            }
+        }
+
+        public void clear() {
+            for (Shard s : shards) {
+                s.lock.lock();
+                try {
+                    s.clear();
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+        }
+
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            if (c == null)
+                throw new NullPointerException();
+            if (c == this)
+                throw new IllegalArgumentException();
+            int n = 0;
+            while (n < maxElements && pollExpired(c) != null)
+                ++n;
+            return n;
+        }
+
+        public Object[] toArray() {
+            ArrayList<Object> list = new ArrayList<Object>();
+            for (Shard s : shards) {
+                s.lock.lock();
+                try {
+                    s.addLiveTo(list);
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+            return list.toArray();
+        }
+
+        /**
+         * Returns a snapshot iterator.  Iteration is not in the order
+         * in which tasks will execute.
+         */
+        public Iterator<Runnable> iterator() {
+            return new Itr(toArray());
+        }
+
+        /**
+         * Snapshot iterator that works off a copy of the shards.
+         */
+        private class Itr implements Iterator<Runnable> {
+            final Object[] array;
+            int cursor = 0;     // index of next element to return
+            int lastRet = -1;   // index of last element, or -1 if no such
+
+            Itr(Object[] array) {
+                this.array = array;
+            }
+
+            public boolean hasNext() {
+                return cursor < array.length;
+            }
+
+            public Runnable next() {
+                if (cursor >= array.length)
+                    throw new NoSuchElementException();
+                lastRet = cursor;
+                return (Runnable)array[cursor++];
+            }
+
+            public void remove() {
+                if (lastRet < 0)
+                    throw new IllegalStateException();
+                ShardedDelayedWorkQueue.this.remove(array[lastRet]);
+                lastRet = -1;
+            }
+        }
+    }
 }
@@ -668,6 +668,30 @@ public class Semaphore implements java.io.Serializable {
         return sync instanceof FairSync;
     }
 
+    /**
+     * Enables or disables adaptive spinning. When enabled, a thread
+     * that finds too few permits available, and no other thread
+     * waiting, spins briefly before blocking in case permits are
+     * released soon. Disabled by default.
+     *
+     * @param on {@code true} to enable adaptive spinning
+     * @see java.util.concurrent.locks.AbstractQueuedSynchronizer#setAdaptiveSpinning
+     * @since 1.8
+     */
+    public void setAdaptiveSpinning(boolean on) {
+        sync.setAdaptiveSpinning(on);
+    }
+
+    /**
+     * Returns {@code true} if adaptive spinning is enabled.
+     *
+     * @return {@code true} if adaptive spinning is enabled
+     * @since 1.8
+     */
+    public boolean isAdaptiveSpinning() {
+        return sync.isAdaptiveSpinning();
+    }
+
     /**
      * Queries whether any threads are waiting to acquire. Note that
      * because cancellations may occur at any time, a {@code true}
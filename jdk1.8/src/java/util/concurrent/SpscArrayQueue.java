@@ -0,0 +1,320 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, wait-free queue for exactly one producer thread and one
+ * consumer thread, backed by an array.  This queue orders elements FIFO
+ * (first-in-first-out).
+ *
+ * <p>The producer is the only writer of the tail index and the consumer
+ * the only writer of the head index, so neither side ever performs a
+ * CAS: each publishes its progress with an ordered (lazy) store.  Each
+ * side also keeps a private cached copy of the other side's index and
+ * re-reads the shared one only when the cached value says the queue is
+ * full (for the producer) or empty (for the consumer), so in steady state
+ * the two threads do not touch each other's cache lines.  The indices
+ * are padded onto separate cache lines.
+ *
+ * <p>The capacity is rounded up to a power of two.  Calling {@link
+ * #offer} from more than one thread at a time, or {@link #poll}, {@link
+ * #drain} or {@link #drainTo} from more than one thread at a time, has
+ * undefined results; use {@link MpscArrayBlockingQueue} when producers
+ * or consumers are shared.  Methods that only observe the queue
+ * ({@link #size}, {@link #peek} from the consumer, {@link #iterator})
+ * may be called from any thread and return an estimate.
+ *
+ * <p>This class does not support {@link #remove(Object)}, and its
+ * iterator is read-only.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ * @see MpscArrayBlockingQueue
+ */
+public class SpscArrayQueue<E> extends AbstractQueue<E> {
+
+    /** The queued items */
+    final Object[] items;
+
+    /** items.length - 1 */
+    final int mask;
+
+    /** Next index to take; written only by the consumer */
+    @sun.misc.Contended("consumer")
+    volatile long head;
+
+    /** Consumer's cached copy of tail */
+    @sun.misc.Contended("consumer")
+    long tailCache;
+
+    /** Next index to put; written only by the producer */
+    @sun.misc.Contended("producer")
+    volatile long tail;
+
+    /** Producer's cached copy of head */
+    @sun.misc.Contended("producer")
+    long headCache;
+
+    /**
+     * Creates a {@code SpscArrayQueue} with at least the given (fixed)
+     * capacity.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     */
+    public SpscArrayQueue(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+        int n = (capacity >= MpscArrayBlockingQueue.MAXIMUM_CAPACITY) ?
+            MpscArrayBlockingQueue.MAXIMUM_CAPACITY :
+            (capacity <= 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.items = new Object[n];
+        this.mask = n - 1;
+    }
+
+    private static long byteOffset(int i) {
+        return ((long)i << ASHIFT) + ABASE;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if there
+     * is room.  Must only be called by the producer thread.
+     *
+     * @return {@code true} if the element was added, else {@code false}
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        final long t = tail;
+        if (t - headCache > mask) {
+            // 缓存的 head 显示已满，才重新读取共享的 head
+            if (t - (headCache = head) > mask)
+                return false;
+        }
+        UNSAFE.putObject(items, byteOffset((int)t & mask), e);
+        UNSAFE.putOrderedLong(this, tailOffset, t + 1L);
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns
+     * {@code null} if this queue is empty.  Must only be called by the
+     * consumer thread.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        final long h = head;
+        if (h >= tailCache) {
+            if (h >= (tailCache = tail))
+                return null;
+        }
+        long off = byteOffset((int)h & mask);
+        Object x = UNSAFE.getObject(items, off);
+        UNSAFE.putObject(items, off, null);
+        UNSAFE.putOrderedLong(this, headOffset, h + 1L);
+        return (E)x;
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of this queue, or
+     * returns {@code null} if this queue is empty.  Exact when called
+     * by the consumer thread.
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long h = head;
+        if (h >= tail)
+            return null;
+        return (E)UNSAFE.getObjectVolatile(items, byteOffset((int)h & mask));
+    }
+
+    /**
+     * Removes up to {@code limit} available elements and passes each
+     * to the given action, publishing the new head once for the whole
+     * batch.  Must only be called by the consumer thread.  If the
+     * action throws, the element it was given and those before it have
+     * been removed, and the rest remain in this queue.
+     *
+     * @param action the action to perform on each element
+     * @param limit the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws NullPointerException if the action is null
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super E> action, int limit) {
+        if (action == null)
+            throw new NullPointerException();
+        final Object[] items = this.items;
+        final long h = head;
+        long t = tailCache;
+        if (h + limit > t)
+            t = tailCache = tail;
+        int n = (int)Math.min(t - h, (long)Math.max(limit, 0));
+        int k = 0;
+        try {
+            for (; k < n; ++k) {
+                long off = byteOffset((int)(h + k) & mask);
+                Object x = UNSAFE.getObject(items, off);
+                UNSAFE.putObject(items, off, null);
+                action.accept((E)x);
+            }
+        } finally {
+            // action 抛出异常时也要发布已取走（已置空）的槽位
+            int taken = (k < n) ? k + 1 : n;
+            if (taken > 0)
+                UNSAFE.putOrderedLong(this, headOffset, h + taken);
+        }
+        return n;
+    }
+
+    /**
+     * Removes all available elements from this queue and adds them to
+     * the given collection.  Must only be called by the consumer thread.
+     *
+     * @param c the collection to transfer elements into
+     * @return the number of elements transferred
+     * @throws NullPointerException if the collection is null
+     * @throws IllegalArgumentException if the collection is this queue
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes at most the given number of available elements from this
+     * queue and adds them to the given collection.  Must only be called
+     * by the consumer thread.
+     *
+     * @param c the collection to transfer elements into
+     * @param maxElements the maximum number of elements to transfer
+     * @return the number of elements transferred
+     * @throws NullPointerException if the collection is null
+     * @throws IllegalArgumentException if the collection is this queue
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        return drain(c::add, maxElements);
+    }
+
+    /**
+     * Returns an estimate of the number of elements in this queue.
+     */
+    public int size() {
+        for (;;) {
+            long h = head, t = tail;
+            if (h == head) {
+                long n = t - h;
+                return (n <= 0L) ? 0 : (n > mask + 1L) ? mask + 1 : (int)n;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return head >= tail;
+    }
+
+    /**
+     * Returns the capacity of this queue.
+     *
+     * @return the capacity of this queue
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Always throws {@code UnsupportedOperationException}: removing
+     * interior elements would require the consumer's cooperation.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns a read-only iterator over a snapshot of the elements in
+     * this queue, in proper sequence.  Elements concurrently taken may
+     * or may not appear.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        final Object[] items = this.items;
+        final ArrayList<Object> list = new ArrayList<Object>();
+        for (long h = head, t = tail; h < t; ++h) {
+            Object x = UNSAFE.getObjectVolatile(items, byteOffset((int)h & mask));
+            if (x != null)
+                list.add(x);
+        }
+        return new Iterator<E>() {
+            int cursor;
+            public boolean hasNext() {
+                return cursor < list.size();
+            }
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (cursor >= list.size())
+                    throw new NoSuchElementException();
+                return (E)list.get(cursor++);
+            }
+        };
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long headOffset;
+    private static final long tailOffset;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = SpscArrayQueue.class;
+            headOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("head"));
+            tailOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("tail"));
+            ABASE = UNSAFE.arrayBaseOffset(Object[].class);
+            int scale = UNSAFE.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
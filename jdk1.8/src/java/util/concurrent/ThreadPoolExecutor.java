@@ -540,6 +540,12 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     private volatile int maximumPoolSize;
 
+    /**
+     * Task statistics, or null if statistics are disabled. Written
+     * under mainLock; read without locking by workers and submitters.
+     */
+    private volatile ExecutorStatistics statistics;
+
     /**
      * The default rejected execution handler
      */
@@ -718,6 +724,8 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                         // 线程池状态转为TERMINATED
                         ctl.set(ctlOf(TERMINATED, 0));
                         termination.signalAll();
+                        ExecutorStatistics.unregister(statistics);
+                        statistics = null;
                     }
                     return;
                 }
@@ -831,6 +839,9 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * Package-protected for use by ScheduledThreadPoolExecutor.
      */
     final void reject(Runnable command) {
+        ExecutorStatistics stats = statistics;
+        if (stats != null)
+            stats.taskRejected();
         handler.rejectedExecution(command, this);
     }
 
@@ -1198,6 +1209,11 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                     // 自定义方法
                     beforeExecute(wt, task);
                     Throwable thrown = null;
+                    // 统计开启时记录排队等待时间和执行时间
+                    ExecutorStatistics stats = statistics;
+                    long start = 0L;
+                    if (stats != null)
+                        stats.taskStarted(task, start = System.nanoTime());
                     try {
                         // 执行任务
                         task.run();
@@ -1208,6 +1224,8 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                     } catch (Throwable x) {
                         thrown = x; throw new Error(x);
                     } finally {
+                        if (stats != null)
+                            stats.taskFinished(start);
                         afterExecute(task, thrown);
                     }
                 } finally {
@@ -1981,6 +1999,121 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         }
     }
 
+    /**
+     * Enables or disables the collection of task statistics for this
+     * pool. While enabled, the pool counts rejected and completed
+     * tasks, records the queue wait and execution time of each task
+     * in histograms, and publishes them as an {@link
+     * java.lang.management.ExecutorMXBean} that is returned by {@link
+     * java.lang.management.ManagementFactory#getPlatformMXBeans(Class)}
+     * and registered with the platform {@code MBeanServer}. Recording
+     * uses no locks, but does read {@link System#nanoTime} twice per
+     * task, so statistics are disabled by default.
+     *
+     * <p>Queue wait is recorded for tasks given to {@code submit} and
+     * {@code invoke} methods, and for delayed tasks, where it is the
+     * time by which a task ran after becoming due. It is not known for
+     * tasks given directly to {@link #execute}, which contribute to
+     * execution time only. Enabling statistics again after disabling
+     * them starts from zero. Statistics are disabled automatically
+     * when the pool terminates.
+     *
+     * @param value {@code true} to enable statistics, else {@code false}
+     * @since 1.8
+     */
+    public void setStatisticsEnabled(boolean value) {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            ExecutorStatistics stats = statistics;
+            if (value == (stats != null))
+                return;
+            if (value) {
+                if (runStateAtLeast(ctl.get(), TERMINATED))
+                    return;
+                statistics = stats = new Statistics(this);
+                ExecutorStatistics.register(stats);
+            } else {
+                statistics = null;
+                ExecutorStatistics.unregister(stats);
+            }
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /**
+     * Returns {@code true} if task statistics are being collected for
+     * this pool.
+     *
+     * @return {@code true} if statistics are enabled
+     * @see #setStatisticsEnabled
+     * @since 1.8
+     */
+    public boolean isStatisticsEnabled() {
+        return statistics != null;
+    }
+
+    /**
+     * Returns the number of tasks taken by one worker from another.
+     * Zero here; overridden by WorkStealingThreadPoolExecutor.
+     */
+    long stealCount() {
+        return 0L;
+    }
+
+    /**
+     * Returns a {@code RunnableFuture} for the given runnable and
+     * default value, recording its submission time if statistics are
+     * enabled.
+     *
+     * @since 1.8
+     */
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return (statistics == null) ? super.newTaskFor(runnable, value)
+            : new ExecutorStatistics.TimedFutureTask<T>(runnable, value);
+    }
+
+    /**
+     * Returns a {@code RunnableFuture} for the given callable task,
+     * recording its submission time if statistics are enabled.
+     *
+     * @since 1.8
+     */
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return (statistics == null) ? super.newTaskFor(callable)
+            : new ExecutorStatistics.TimedFutureTask<T>(callable);
+    }
+
+    /**
+     * Statistics of a ThreadPoolExecutor. Pool and queue sizes are
+     * read without taking mainLock.
+     */
+    static final class Statistics extends ExecutorStatistics {
+        final ThreadPoolExecutor pool;
+
+        Statistics(ThreadPoolExecutor pool) {
+            super(pool);
+            this.pool = pool;
+        }
+
+        public String getExecutorType() {
+            return pool.getClass().getName();
+        }
+
+        public int getPoolSize() {
+            return workerCountOf(pool.ctl.get());
+        }
+
+        public long getQueuedTaskCount() {
+            return pool.workQueue.size();
+        }
+
+        public long getStealCount() {
+            return pool.stealCount();
+        }
+    }
+
     /**
      * Returns a string identifying this pool, as well as its state,
      * including indications of run state and estimated worker and
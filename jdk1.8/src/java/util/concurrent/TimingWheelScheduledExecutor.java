@@ -0,0 +1,752 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps its delayed tasks in a
+ * hashed timing wheel, for applications that schedule and cancel very
+ * large numbers of short timeouts.
+ *
+ * <p>Time is divided into <em>ticks</em> of a fixed duration, and the
+ * wheel is an array of buckets, one per tick, that is used circularly.
+ * A task is placed in the bucket of the tick in which it becomes due,
+ * together with the number of whole turns of the wheel still to go, so
+ * scheduling a task and cancelling it both take constant time, where a
+ * {@link ScheduledThreadPoolExecutor} or {@link java.util.Timer} pays
+ * {@code O(log n)} in its binary heap.  A cancelled task is unlinked
+ * from its bucket at the next tick rather than lingering until it
+ * would have run.
+ *
+ * <p>A single timer thread advances the wheel once per tick and hands
+ * each task that has become due to the <em>task executor</em> given at
+ * construction.  Tasks therefore run no earlier than scheduled, and
+ * typically up to one tick duration later; the tick duration is the
+ * resolution of this executor.  If no task executor is given, tasks
+ * run on the timer thread itself, as with {@link java.util.Timer}, and
+ * should complete quickly so as not to delay other tasks.  Tasks
+ * submitted with {@link #execute} or {@link #submit} are treated as
+ * tasks with zero delay and so also run at the next tick.  When no
+ * task is scheduled the timer thread parks instead of ticking.
+ *
+ * <p>Producers hand new tasks to the timer thread through a lock-free
+ * queue, and cancelled tasks through another, so only the timer
+ * thread ever touches the wheel.
+ *
+ * <p>Once this executor has been {@linkplain #shutdown shut down},
+ * periodic tasks are cancelled and delayed one-shot tasks still run
+ * when due, as with the default policies of {@link
+ * ScheduledThreadPoolExecutor}.  The executor terminates when no task
+ * remains in the wheel; tasks already handed to the task executor may
+ * still be running at that point.  The task executor is not shut down
+ * by this executor.
+ *
+ * <p>Successive executions of a periodic task scheduled via {@link
+ * #scheduleAtFixedRate} or {@link #scheduleWithFixedDelay} do not
+ * overlap, and if any execution encounters an exception subsequent
+ * executions are suppressed.  If the task executor rejects a due task,
+ * the task's future completes exceptionally with the {@link
+ * RejectedExecutionException}.
+ *
+ * @since 1.8
+ * @see ScheduledThreadPoolExecutor
+ */
+public class TimingWheelScheduledExecutor extends AbstractExecutorService
+        implements ScheduledExecutorService {
+
+    /*
+     * The wheel itself (buckets, and the links and remaining rounds
+     * held in each task) is confined to the timer thread.  Other
+     * threads communicate with it only through the pending and
+     * cancelled queues and the volatile runState, and wake it with
+     * LockSupport.unpark when it is idle.
+     *
+     * Ticks are counted from a start time that is reset whenever the
+     * wheel becomes empty and the timer thread parks, so an idle
+     * executor costs nothing and tick numbers stay small.
+     */
+
+    /** Default tick duration, in milliseconds */
+    private static final long DEFAULT_TICK_MILLIS = 10L;
+
+    /** Default number of buckets */
+    private static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    /** Maximum number of buckets */
+    private static final int MAXIMUM_TICKS_PER_WHEEL = 1 << 30;
+
+    /*
+     * runState values.  Only transitions to higher values are allowed.
+     */
+    private static final int RUNNING    = 0;
+    private static final int SHUTDOWN   = 1;
+    private static final int STOP       = 2;
+    private static final int TERMINATED = 3;
+
+    private volatile int runState;
+
+    /** Tick duration in nanoseconds */
+    private final long tickNanos;
+
+    /** The buckets, each the head of a doubly-linked list of tasks */
+    private final WheelTask<?>[] wheel;
+
+    /** wheel.length - 1 */
+    private final int mask;
+
+    /** Executor that due tasks are handed to, or null to run them inline */
+    private final Executor taskExecutor;
+
+    /** Newly scheduled (and rescheduled periodic) tasks */
+    private final ConcurrentLinkedQueue<WheelTask<?>> pending =
+        new ConcurrentLinkedQueue<WheelTask<?>>();
+
+    /** Cancelled tasks still to be unlinked from the wheel */
+    private final ConcurrentLinkedQueue<WheelTask<?>> cancelled =
+        new ConcurrentLinkedQueue<WheelTask<?>>();
+
+    /** The timer thread */
+    private final Thread timer;
+
+    /** True while the timer thread is parked waiting for work */
+    private volatile boolean idle;
+
+    /** Released when the timer thread exits */
+    private final CountDownLatch termination = new CountDownLatch(1);
+
+    /** Tasks collected by the timer thread on shutdownNow */
+    private volatile List<Runnable> unstarted;
+
+    /** Number of tasks in the wheel; timer thread only */
+    private int wheelSize;
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with a 10
+     * millisecond tick and 512 buckets that runs tasks on its timer
+     * thread.
+     */
+    public TimingWheelScheduledExecutor() {
+        this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS,
+             DEFAULT_TICKS_PER_WHEEL, Executors.defaultThreadFactory(), null);
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with a 10
+     * millisecond tick and 512 buckets that hands due tasks to the
+     * given executor.
+     *
+     * @param taskExecutor the executor to run due tasks
+     * @throws NullPointerException if {@code taskExecutor} is null
+     */
+    public TimingWheelScheduledExecutor(Executor taskExecutor) {
+        this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS,
+             DEFAULT_TICKS_PER_WHEEL, Executors.defaultThreadFactory(),
+             checkNotNull(taskExecutor));
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * parameters.  The number of buckets is rounded up to a power of
+     * two.
+     *
+     * @param tickDuration the duration of one tick
+     * @param unit the time unit of {@code tickDuration}
+     * @param ticksPerWheel the number of buckets in the wheel
+     * @param threadFactory the factory to use to create the timer thread
+     * @param taskExecutor the executor to run due tasks, or {@code null}
+     *        to run them on the timer thread
+     * @throws IllegalArgumentException if {@code tickDuration} is less
+     *         than one millisecond or {@code ticksPerWheel} is not
+     *         positive
+     * @throws NullPointerException if {@code unit} or
+     *         {@code threadFactory} is null
+     */
+    public TimingWheelScheduledExecutor(long tickDuration, TimeUnit unit,
+                                        int ticksPerWheel,
+                                        ThreadFactory threadFactory,
+                                        Executor taskExecutor) {
+        if (unit == null || threadFactory == null)
+            throw new NullPointerException();
+        long nanos = unit.toNanos(tickDuration);
+        if (nanos < TimeUnit.MILLISECONDS.toNanos(1L) || ticksPerWheel <= 0)
+            throw new IllegalArgumentException();
+        int n = (ticksPerWheel >= MAXIMUM_TICKS_PER_WHEEL) ?
+            MAXIMUM_TICKS_PER_WHEEL :
+            (ticksPerWheel <= 1) ? 1 : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        this.tickNanos = nanos;
+        this.wheel = new WheelTask<?>[n];
+        this.mask = n - 1;
+        this.taskExecutor = taskExecutor;
+        this.timer = threadFactory.newThread(new Runnable() {
+            public void run() { runTimer(); }
+        });
+        if (timer == null)
+            throw new NullPointerException();
+        timer.start();
+    }
+
+    private static Executor checkNotNull(Executor e) {
+        if (e == null)
+            throw new NullPointerException();
+        return e;
+    }
+
+    /**
+     * A task in the wheel.
+     */
+    private class WheelTask<V>
+            extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /** The time the task is enabled to execute in nanoTime units */
+        private long time;
+
+        /**
+         * Period in nanoseconds for repeating tasks.  A positive
+         * value indicates fixed-rate execution.  A negative value
+         * indicates fixed-delay execution.  A value of 0 indicates a
+         * non-repeating task.
+         */
+        private final long period;
+
+        /*
+         * Wheel linkage; accessed only by the timer thread.  bucket is
+         * -1 when the task is not in the wheel.
+         */
+        WheelTask<?> prev, next;
+        int bucket = -1;
+        long remainingRounds;
+
+        WheelTask(Runnable r, V result, long ns, long period) {
+            super(r, result);
+            this.time = ns;
+            this.period = period;
+        }
+
+        WheelTask(Callable<V> callable, long ns) {
+            super(callable);
+            this.time = ns;
+            this.period = 0;
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) // compare zero if same object
+                return 0;
+            long diff = (other instanceof WheelTask) ?
+                time - ((WheelTask<?>)other).time :
+                getDelay(NANOSECONDS) - other.getDelay(NANOSECONDS);
+            return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+        }
+
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        private void setNextRunTime() {
+            long p = period;
+            if (p > 0)
+                time += p;
+            else
+                time = triggerTime(-p);
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean c = super.cancel(mayInterruptIfRunning);
+            if (c) {
+                // 只入队，由计时线程在下一个 tick 从桶中摘除
+                cancelled.offer(this);
+                if (idle)
+                    LockSupport.unpark(timer);
+            }
+            return c;
+        }
+
+        /**
+         * Overrides FutureTask version so as to reset/requeue if periodic.
+         */
+        public void run() {
+            boolean periodic = isPeriodic();
+            if (periodic && runState != RUNNING)
+                cancel(false);
+            else if (!periodic)
+                WheelTask.super.run();
+            else if (WheelTask.super.runAndReset()) {
+                setNextRunTime();
+                reExecutePeriodic(this);
+            }
+        }
+
+        void reject(RuntimeException ex) {
+            setException(ex);
+        }
+    }
+
+    /**
+     * Returns the trigger time of a delayed action.
+     */
+    private static long triggerTime(long delay, TimeUnit unit) {
+        return triggerTime(unit.toNanos((delay < 0) ? 0 : delay));
+    }
+
+    /**
+     * Returns the trigger time of a delayed action, keeping it far
+     * enough from overflow for tick arithmetic.
+     */
+    private static long triggerTime(long delay) {
+        return System.nanoTime() + Math.min(delay, Long.MAX_VALUE >> 2);
+    }
+
+    /**
+     * Hands a new task to the timer thread, or rejects it if this
+     * executor has been shut down.
+     */
+    private <V> WheelTask<V> enqueue(WheelTask<V> task) {
+        if (runState != RUNNING)
+            throw new RejectedExecutionException();
+        pending.offer(task);
+        // 与 shutdown 竞争：若计时线程可能已看不到该任务则撤回并拒绝
+        if (runState != RUNNING && pending.remove(task)) {
+            task.cancel(false);
+            throw new RejectedExecutionException();
+        }
+        if (idle)
+            LockSupport.unpark(timer);
+        return task;
+    }
+
+    /**
+     * Requeues a periodic task after it has run, unless shut down.
+     */
+    void reExecutePeriodic(WheelTask<?> task) {
+        if (runState == RUNNING) {
+            pending.offer(task);
+            if (runState == RUNNING || !pending.remove(task)) {
+                if (idle)
+                    LockSupport.unpark(timer);
+                return;
+            }
+        }
+        task.cancel(false);
+    }
+
+    // Timer thread
+
+    private void runTimer() {
+        long start = System.nanoTime();
+        long tick = 0L;
+        boolean periodicCancelled = false;
+        try {
+            for (;;) {
+                if (wheelSize == 0) {
+                    cancelled.clear();
+                    // state must be read before pending (see enqueue)
+                    if (runState != RUNNING && pending.isEmpty())
+                        break;
+                    if (pending.isEmpty()) {
+                        idle = true;
+                        if (pending.isEmpty() && cancelled.isEmpty() &&
+                            runState == RUNNING)
+                            LockSupport.park(this);
+                        idle = false;
+                        Thread.interrupted();
+                        start = System.nanoTime();
+                        tick = 0L;
+                    }
+                    if (runState >= STOP)
+                        break;
+                    transferPending(start, tick);
+                    continue;
+                }
+
+                long deadline = start + (tick + 1L) * tickNanos;
+                long now;
+                while ((now = System.nanoTime()) - deadline < 0L &&
+                       runState < STOP)
+                    LockSupport.parkNanos(this, deadline - now);
+                Thread.interrupted();
+                if (runState >= STOP)
+                    break;
+
+                processCancelled();
+                transferPending(start, tick);
+                if (runState == SHUTDOWN && !periodicCancelled) {
+                    cancelPeriodic();
+                    periodicCancelled = true;
+                }
+                expire((int)tick & mask, now);
+                ++tick;
+            }
+        } finally {
+            List<Runnable> tasks = new ArrayList<Runnable>();
+            if (runState >= STOP)
+                drainWheel(tasks);
+            unstarted = tasks;
+            runState = TERMINATED;
+            termination.countDown();
+        }
+    }
+
+    /**
+     * Moves newly scheduled tasks into their buckets.
+     */
+    private void transferPending(long start, long tick) {
+        for (WheelTask<?> t; (t = pending.poll()) != null; ) {
+            if (t.isDone())
+                continue;
+            if (t.isPeriodic() && runState != RUNNING) {
+                t.cancel(false);
+                continue;
+            }
+            long due = (t.time - start) / tickNanos;
+            if (due < tick)
+                due = tick;
+            t.remainingRounds = (due - tick) / wheel.length;
+            link(t, (int)due & mask);
+        }
+    }
+
+    /**
+     * Unlinks cancelled tasks from the wheel.
+     */
+    private void processCancelled() {
+        for (WheelTask<?> t; (t = cancelled.poll()) != null; ) {
+            if (t.bucket >= 0)
+                unlink(t);
+        }
+    }
+
+    /**
+     * Cancels the periodic tasks in the wheel, once shut down.
+     */
+    private void cancelPeriodic() {
+        for (WheelTask<?> h : wheel) {
+            for (WheelTask<?> t = h, n; t != null; t = n) {
+                n = t.next;
+                if (t.isPeriodic()) {
+                    unlink(t);
+                    t.cancel(false);
+                }
+            }
+        }
+        cancelled.clear();
+    }
+
+    /**
+     * Runs or hands off every task in the given bucket that is due.
+     */
+    private void expire(int b, long now) {
+        for (WheelTask<?> t = wheel[b], n; t != null && runState < STOP; t = n) {
+            n = t.next;
+            if (t.remainingRounds > 0L) {
+                --t.remainingRounds;
+                continue;
+            }
+            unlink(t);
+            if (t.isDone())
+                continue;
+            if (t.time - now > 0L) {
+                // due later in this tick's time span; keep it for next turn
+                t.remainingRounds = 0L;
+                link(t, (b + 1) & mask);
+                continue;
+            }
+            Executor e = taskExecutor;
+            if (e == null) {
+                t.run();
+            } else {
+                try {
+                    e.execute(t);
+                } catch (RuntimeException ex) {
+                    t.reject(ex);
+                }
+            }
+        }
+    }
+
+    private void drainWheel(List<Runnable> tasks) {
+        for (WheelTask<?> h : wheel) {
+            for (WheelTask<?> t = h, n; t != null; t = n) {
+                n = t.next;
+                unlink(t);
+                if (!t.isDone())
+                    tasks.add(t);
+            }
+        }
+        for (WheelTask<?> t; (t = pending.poll()) != null; ) {
+            if (!t.isDone())
+                tasks.add(t);
+        }
+        cancelled.clear();
+    }
+
+    private void link(WheelTask<?> t, int b) {
+        WheelTask<?> h = wheel[b];
+        t.bucket = b;
+        t.prev = null;
+        t.next = h;
+        if (h != null)
+            h.prev = t;
+        wheel[b] = t;
+        ++wheelSize;
+    }
+
+    private void unlink(WheelTask<?> t) {
+        WheelTask<?> p = t.prev, n = t.next;
+        if (p == null)
+            wheel[t.bucket] = n;
+        else
+            p.next = n;
+        if (n != null)
+            n.prev = p;
+        t.prev = t.next = null;
+        t.bucket = -1;
+        --wheelSize;
+    }
+
+    // Public methods
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public ScheduledFuture<?> schedule(Runnable command,
+                                       long delay,
+                                       TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        return enqueue(new WheelTask<Void>(command, null,
+                                           triggerTime(delay, unit), 0L));
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable,
+                                           long delay,
+                                           TimeUnit unit) {
+        if (callable == null || unit == null)
+            throw new NullPointerException();
+        return enqueue(new WheelTask<V>(callable, triggerTime(delay, unit)));
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                  long initialDelay,
+                                                  long period,
+                                                  TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        return enqueue(new WheelTask<Void>(command, null,
+                                           triggerTime(initialDelay, unit),
+                                           unit.toNanos(period)));
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                     long initialDelay,
+                                                     long delay,
+                                                     TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (delay <= 0)
+            throw new IllegalArgumentException();
+        return enqueue(new WheelTask<Void>(command, null,
+                                           triggerTime(initialDelay, unit),
+                                           unit.toNanos(-delay)));
+    }
+
+    /**
+     * Executes {@code command} with zero required delay, that is, at
+     * the next tick.
+     *
+     * @throws RejectedExecutionException if this executor has been
+     *         shut down
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void execute(Runnable command) {
+        schedule(command, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public Future<?> submit(Runnable task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Runnable task, T result) {
+        return schedule(Executors.callable(task, result), 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * Initiates an orderly shutdown in which periodic tasks are
+     * cancelled and delayed one-shot tasks still run when due, but no
+     * new tasks will be accepted.  Invocation has no additional effect
+     * if already shut down.
+     *
+     * <p>This method does not wait for previously submitted tasks to
+     * complete execution.  Use {@link #awaitTermination awaitTermination}
+     * to do that.
+     */
+    public void shutdown() {
+        advanceRunState(SHUTDOWN);
+        LockSupport.unpark(timer);
+    }
+
+    /**
+     * Attempts to stop all actively executing tasks, halts the
+     * processing of waiting tasks, and returns a list of the tasks
+     * that were awaiting execution.  These tasks are drained (removed)
+     * from the wheel upon return from this method.
+     *
+     * <p>The wheel is owned by the timer thread, so this method waits
+     * for the timer thread to collect the tasks; when tasks run on the
+     * timer thread, that includes waiting for the task that is running,
+     * which is interrupted.  If invoked from the timer thread itself
+     * it returns an empty list, and the tasks awaiting execution are
+     * discarded when the running task completes.
+     *
+     * <p>There are no guarantees beyond best-effort attempts to stop
+     * processing actively executing tasks.  Tasks already handed to
+     * the task executor are not affected.
+     *
+     * @return list of tasks that never commenced execution.
+     *         Each element of this list is a {@link ScheduledFuture}.
+     */
+    public List<Runnable> shutdownNow() {
+        advanceRunState(STOP);
+        timer.interrupt();
+        if (Thread.currentThread() == timer)
+            return new ArrayList<Runnable>();
+        boolean interrupted = false;
+        for (;;) {
+            try {
+                termination.await();
+                break;
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return unstarted;
+    }
+
+    private void advanceRunState(int targetState) {
+        for (;;) {
+            int rs = runState;
+            if (rs >= targetState ||
+                UNSAFE.compareAndSwapInt(this, runStateOffset, rs, targetState))
+                break;
+        }
+    }
+
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return termination.getCount() == 0L;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return termination.await(timeout, unit);
+    }
+
+    /**
+     * Returns the duration of one tick, the resolution of this
+     * executor.
+     *
+     * @param unit the time unit of the result
+     * @return the tick duration
+     */
+    public long getTickDuration(TimeUnit unit) {
+        return unit.convert(tickNanos, NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of buckets in the wheel.
+     *
+     * @return the number of buckets in the wheel
+     */
+    public int getTicksPerWheel() {
+        return wheel.length;
+    }
+
+    /**
+     * Returns the executor that due tasks are handed to, or {@code null}
+     * if they run on the timer thread.
+     *
+     * @return the task executor, or {@code null}
+     */
+    public Executor getTaskExecutor() {
+        return taskExecutor;
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long runStateOffset;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = TimingWheelScheduledExecutor.class;
+            runStateOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("runState"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,716 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ThreadPoolExecutor} whose work queue gives each worker
+ * thread a local queue and lets idle workers steal from the others, in
+ * the style of {@link ForkJoinPool}.
+ *
+ * <p>A {@code ThreadPoolExecutor} hands every task through a single
+ * shared {@link BlockingQueue}, which becomes the point of contention
+ * when many threads submit and run tasks concurrently.  This class is
+ * configured and behaves like a {@code ThreadPoolExecutor}: core and
+ * maximum pool sizes, keep-alive, {@link ThreadFactory}, {@link
+ * RejectedExecutionHandler}, the {@link #beforeExecute beforeExecute},
+ * {@link #afterExecute afterExecute} and {@link #terminated terminated}
+ * hooks, shutdown and statistics all work as documented there.  Only
+ * the queue differs, and it is created by the constructor rather than
+ * supplied:
+ *
+ * <ul>
+ *
+ * <li>A task submitted by one of this pool's workers (for example by a
+ * task that forks further work) is placed in that worker's local queue,
+ * a bounded lock-free ring, and the worker takes it when it finishes
+ * its current task, while its cache is still warm.
+ *
+ * <li>A task submitted by any other thread is placed in one of several
+ * submission queues, chosen by the submitting thread, so concurrent
+ * submitters rarely touch the same queue.  Tasks also overflow to the
+ * submission queues when a local queue is full.
+ *
+ * <li>A worker looks for a task first in its own queue, then in the
+ * submission queues, and then steals from the other workers' local
+ * queues.  Only when all are empty does it block, and a submitter takes
+ * the lock used for blocking only when some worker is waiting.
+ *
+ * </ul>
+ *
+ * <p>All queues are first-in-first-out, as in {@link ForkJoinPool}'s
+ * asynchronous mode, but there is no global order: a task may start
+ * before another that was submitted earlier from a different thread.
+ *
+ * <p>The queue is unbounded by default, in which case, as with an
+ * unbounded {@link LinkedBlockingQueue}, no more than {@code
+ * corePoolSize} threads are ever created.  With a capacity, the queue
+ * refuses tasks once it holds about that many, and the pool then grows
+ * towards {@code maximumPoolSize} and finally rejects tasks, as a
+ * {@code ThreadPoolExecutor} with a bounded queue does.  The capacity
+ * is checked against a striped count, so it may be exceeded slightly
+ * under concurrent submission.
+ *
+ * <p>The queue returned by {@link #getQueue} supports monitoring,
+ * {@link #remove} and {@link #purge}; its iterator traverses a snapshot
+ * of all the queues, and {@link BlockingQueue#size size} is an
+ * estimate.
+ *
+ * @since 1.8
+ * @see ThreadPoolExecutor
+ * @see ForkJoinPool
+ */
+public class WorkStealingThreadPoolExecutor extends ThreadPoolExecutor {
+
+    /**
+     * Creates a new {@code WorkStealingThreadPoolExecutor} with the
+     * given initial parameters, an unbounded queue, the default thread
+     * factory and the default rejected execution handler.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}
+     */
+    public WorkStealingThreadPoolExecutor(int corePoolSize,
+                                          int maximumPoolSize,
+                                          long keepAliveTime,
+                                          TimeUnit unit) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+              new WorkStealingQueue(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Creates a new {@code WorkStealingThreadPoolExecutor} with the
+     * given initial parameters, an unbounded queue and the default
+     * rejected execution handler.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}
+     * @throws NullPointerException if {@code threadFactory} is null
+     */
+    public WorkStealingThreadPoolExecutor(int corePoolSize,
+                                          int maximumPoolSize,
+                                          long keepAliveTime,
+                                          TimeUnit unit,
+                                          ThreadFactory threadFactory) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+              new WorkStealingQueue(Integer.MAX_VALUE), threadFactory);
+    }
+
+    /**
+     * Creates a new {@code WorkStealingThreadPoolExecutor} with the
+     * given initial parameters, an unbounded queue and the default
+     * thread factory.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}
+     * @throws NullPointerException if {@code handler} is null
+     */
+    public WorkStealingThreadPoolExecutor(int corePoolSize,
+                                          int maximumPoolSize,
+                                          long keepAliveTime,
+                                          TimeUnit unit,
+                                          RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+              new WorkStealingQueue(Integer.MAX_VALUE), handler);
+    }
+
+    /**
+     * Creates a new {@code WorkStealingThreadPoolExecutor} with the
+     * given initial parameters and an unbounded queue.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}
+     * @throws NullPointerException if {@code threadFactory} or
+     *         {@code handler} is null
+     */
+    public WorkStealingThreadPoolExecutor(int corePoolSize,
+                                          int maximumPoolSize,
+                                          long keepAliveTime,
+                                          TimeUnit unit,
+                                          ThreadFactory threadFactory,
+                                          RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+              new WorkStealingQueue(Integer.MAX_VALUE), threadFactory, handler);
+    }
+
+    /**
+     * Creates a new {@code WorkStealingThreadPoolExecutor} with the
+     * given initial parameters and a queue of the given (approximate)
+     * capacity.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param queueCapacity the number of tasks the queue holds before
+     *        refusing more
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}<br>
+     *         {@code queueCapacity <= 0}
+     * @throws NullPointerException if {@code threadFactory} or
+     *         {@code handler} is null
+     */
+    public WorkStealingThreadPoolExecutor(int corePoolSize,
+                                          int maximumPoolSize,
+                                          long keepAliveTime,
+                                          TimeUnit unit,
+                                          int queueCapacity,
+                                          ThreadFactory threadFactory,
+                                          RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+              new WorkStealingQueue(queueCapacity), threadFactory, handler);
+    }
+
+    /**
+     * Returns an estimate of the total number of tasks that workers
+     * have taken from another worker's local queue.
+     *
+     * @return the number of steals
+     */
+    public long getStealCount() {
+        return ((WorkStealingQueue)getQueue()).steals.sum();
+    }
+
+    long stealCount() {
+        return getStealCount();
+    }
+
+    /**
+     * The work queue.  Only the blocking methods, and offer from a
+     * thread that has called them, use the calling thread's local
+     * queue; all other methods treat the queue as a whole.
+     */
+    static final class WorkStealingQueue extends AbstractQueue<Runnable>
+        implements BlockingQueue<Runnable> {
+
+        /*
+         * A thread gets a local queue (registered in the copy-on-write
+         * array locals) the first time it calls take or timed poll,
+         * which in a ThreadPoolExecutor only workers do.  The local
+         * queue is an MpscArrayBlockingQueue used only through its
+         * lock-free offer and poll, so that the owner and any number
+         * of stealers contend only on its head index, and through
+         * remove(Object), for ThreadPoolExecutor.remove.  A removed
+         * task only marks its slot, but the local queue's isEmpty
+         * frees marked slots at its head, so after shutdown and
+         * remove, tryTerminate sees this queue empty and idle workers
+         * are released from take.  A local queue
+         * is unregistered when a timed poll by its owner times out
+         * (the worker is then about to exit, unless ThreadPoolExecutor
+         * keeps it as the last worker, in which case it registers
+         * again), or by a stealer that finds it empty with its owner
+         * dead, as after a worker was terminated by an exception.
+         *
+         * Blocking uses a lock and condition that only waiting
+         * consumers and, when the volatile waiters count is nonzero,
+         * producers take.  A consumer increments waiters and then
+         * rescans every queue before awaiting; a producer inserts and
+         * then reads waiters, so one of them always sees the other.
+         *
+         * The number of queued tasks is kept in a LongAdder, so that
+         * neither size() nor a capacity check needs to traverse the
+         * linked submission queues.
+         */
+
+        /** Capacity of each local queue */
+        static final int LOCAL_CAPACITY = 1 << 10;
+
+        /** Interval at which put retries on a full queue */
+        static final long RETRY_NANOS = 1000L * 1000L;
+
+        /** Maximum number of submission queues */
+        static final int MAX_SUBMISSION_QUEUES = 1 << 6;
+
+        static final LocalQueue[] NO_LOCALS = new LocalQueue[0];
+
+        /** Queues for tasks submitted by threads without a local queue */
+        final ConcurrentLinkedQueue<Runnable>[] submissions;
+
+        /** Registered local queues; replaced under lock */
+        volatile LocalQueue[] locals = NO_LOCALS;
+
+        /** The calling thread's local queue, if any */
+        final ThreadLocal<LocalQueue> local = new ThreadLocal<LocalQueue>();
+
+        /** Approximate number of queued tasks */
+        final LongAdder count = new LongAdder();
+
+        /** Number of tasks taken from another thread's local queue */
+        final LongAdder steals = new LongAdder();
+
+        final int capacity;
+
+        /** Lock used for registration and by waiting threads */
+        final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+
+        /** Number of threads waiting on notEmpty; updated under lock */
+        private volatile int waiters;
+
+        /**
+         * A registered local queue and its owner.
+         */
+        static final class LocalQueue {
+            final Thread owner;
+            final MpscArrayBlockingQueue<Runnable> tasks =
+                new MpscArrayBlockingQueue<Runnable>(LOCAL_CAPACITY);
+            LocalQueue(Thread owner) {
+                this.owner = owner;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        WorkStealingQueue(int capacity) {
+            if (capacity <= 0)
+                throw new IllegalArgumentException();
+            this.capacity = capacity;
+            int p = Runtime.getRuntime().availableProcessors();
+            int n = (p >= MAX_SUBMISSION_QUEUES) ? MAX_SUBMISSION_QUEUES :
+                (p <= 1) ? 1 : Integer.highestOneBit(p - 1) << 1;
+            ConcurrentLinkedQueue<Runnable>[] qs =
+                (ConcurrentLinkedQueue<Runnable>[])new ConcurrentLinkedQueue<?>[n];
+            for (int i = 0; i < n; ++i)
+                qs[i] = new ConcurrentLinkedQueue<Runnable>();
+            this.submissions = qs;
+        }
+
+        private static int probe() {
+            int h = ThreadLocalRandom.getProbe();
+            if (h == 0) {
+                ThreadLocalRandom.localInit();
+                h = ThreadLocalRandom.getProbe();
+            }
+            return h;
+        }
+
+        /**
+         * Returns the calling thread's local queue, registering one if
+         * it has none.
+         */
+        private LocalQueue registerLocal() {
+            LocalQueue w = local.get();
+            if (w == null) {
+                w = new LocalQueue(Thread.currentThread());
+                final ReentrantLock lock = this.lock;
+                lock.lock();
+                try {
+                    LocalQueue[] ws = locals;
+                    LocalQueue[] nws = Arrays.copyOf(ws, ws.length + 1);
+                    nws[ws.length] = w;
+                    locals = nws;
+                } finally {
+                    lock.unlock();
+                }
+                local.set(w);
+            }
+            return w;
+        }
+
+        /**
+         * Unregisters the given local queue if it is empty, returning
+         * false if it is not.
+         */
+        private boolean unregisterLocal(LocalQueue w) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                // 只有所有者线程会向 w 中 offer，判空之后不会再有新任务进入
+                if (!w.tasks.isEmpty())
+                    return false;
+                LocalQueue[] ws = locals;
+                for (int i = 0; i < ws.length; ++i) {
+                    if (ws[i] == w) {
+                        LocalQueue[] nws = new LocalQueue[ws.length - 1];
+                        System.arraycopy(ws, 0, nws, 0, i);
+                        System.arraycopy(ws, i + 1, nws, i, ws.length - i - 1);
+                        locals = nws;
+                        break;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (w.owner == Thread.currentThread())
+                local.remove();
+            return true;
+        }
+
+        /**
+         * Removes and returns a task, looking in the given local queue
+         * (if non-null), then the submission queues, then the other
+         * local queues; or returns null if all are empty.
+         */
+        private Runnable tryTake(LocalQueue w) {
+            Runnable r;
+            if (w != null && (r = w.tasks.poll()) != null)
+                return taken(r);
+            final ConcurrentLinkedQueue<Runnable>[] qs = submissions;
+            int h = probe();
+            int n = qs.length;
+            for (int i = 0; i < n; ++i) {
+                if ((r = qs[(h + i) & (n - 1)].poll()) != null)
+                    return taken(r);
+            }
+            LocalQueue[] ws = locals;
+            int m = ws.length;
+            if (m > 0) {
+                int origin = (h & 0x7fffffff) % m;
+                for (int i = 0; i < m; ++i) {
+                    LocalQueue v = ws[(origin + i) % m];
+                    if (v == w)
+                        continue;
+                    if ((r = v.tasks.poll()) != null) {
+                        steals.increment();
+                        return taken(r);
+                    }
+                    if (!v.owner.isAlive())
+                        unregisterLocal(v);
+                }
+            }
+            return null;
+        }
+
+        private Runnable taken(Runnable r) {
+            count.decrement();
+            return r;
+        }
+
+        /**
+         * Wakes a waiting consumer.
+         */
+        private void signalNotEmpty() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean offer(Runnable e) {
+            if (e == null)
+                throw new NullPointerException();
+            if (capacity != Integer.MAX_VALUE && count.sum() >= capacity)
+                return false;
+            count.increment();
+            LocalQueue w = local.get();
+            if (w == null || !w.tasks.offer(e))
+                submissions[probe() & (submissions.length - 1)].offer(e);
+            if (waiters > 0)
+                signalNotEmpty();
+            return true;
+        }
+
+        /**
+         * Inserts the element, retrying while the queue is at capacity.
+         * Space is not signalled, so a full queue is polled at intervals.
+         */
+        public void put(Runnable e) throws InterruptedException {
+            while (!offer(e)) {
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                LockSupport.parkNanos(this, RETRY_NANOS);
+            }
+        }
+
+        /**
+         * Inserts the element, retrying while the queue is at capacity
+         * until the timeout elapses.
+         */
+        public boolean offer(Runnable e, long timeout, TimeUnit unit)
+            throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            long last = System.nanoTime();
+            while (!offer(e)) {
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                if (nanos <= 0L)
+                    return false;
+                LockSupport.parkNanos(this, Math.min(nanos, RETRY_NANOS));
+                long now = System.nanoTime();
+                nanos -= now - last;
+                last = now;
+            }
+            return true;
+        }
+
+        public Runnable poll() {
+            return tryTake(local.get());
+        }
+
+        public Runnable take() throws InterruptedException {
+            LocalQueue w = registerLocal();
+            for (;;) {
+                Runnable r = tryTake(w);
+                if (r != null)
+                    return r;
+                final ReentrantLock lock = this.lock;
+                lock.lockInterruptibly();
+                try {
+                    ++waiters;
+                    try {
+                        if ((r = tryTake(w)) != null)
+                            return r;
+                        notEmpty.await();
+                    } finally {
+                        --waiters;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            LocalQueue w = registerLocal();
+            for (;;) {
+                Runnable r = tryTake(w);
+                if (r != null)
+                    return r;
+                if (nanos <= 0L) {
+                    if (unregisterLocal(w))
+                        return null;
+                    continue;
+                }
+                final ReentrantLock lock = this.lock;
+                lock.lockInterruptibly();
+                try {
+                    ++waiters;
+                    try {
+                        if ((r = tryTake(w)) != null)
+                            return r;
+                        nanos = notEmpty.awaitNanos(nanos);
+                    } finally {
+                        --waiters;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        public Runnable peek() {
+            Runnable r;
+            for (ConcurrentLinkedQueue<Runnable> q : submissions)
+                if ((r = q.peek()) != null)
+                    return r;
+            for (LocalQueue w : locals)
+                if ((r = w.tasks.peek()) != null)
+                    return r;
+            return null;
+        }
+
+        public int size() {
+            long n = count.sum();
+            return (n < 0L) ? 0 : (n > Integer.MAX_VALUE) ?
+                Integer.MAX_VALUE : (int)n;
+        }
+
+        /**
+         * Returns true if no queue holds a task.  Unlike size, this
+         * inspects the queues themselves; slots of local queues whose
+         * task was removed do not count.
+         */
+        public boolean isEmpty() {
+            for (ConcurrentLinkedQueue<Runnable> q : submissions)
+                if (!q.isEmpty())
+                    return false;
+            for (LocalQueue w : locals)
+                if (!w.tasks.isEmpty())
+                    return false;
+            return true;
+        }
+
+        public int remainingCapacity() {
+            return (capacity == Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+                Math.max(0, capacity - size());
+        }
+
+        public boolean remove(Object o) {
+            if (o == null)
+                return false;
+            boolean removed = false;
+            for (ConcurrentLinkedQueue<Runnable> q : submissions)
+                if (removed = q.remove(o))
+                    break;
+            if (!removed) {
+                for (LocalQueue w : locals)
+                    if (removed = w.tasks.remove(o))
+                        break;
+            }
+            if (removed)
+                count.decrement();
+            return removed;
+        }
+
+        public boolean contains(Object o) {
+            if (o == null)
+                return false;
+            for (ConcurrentLinkedQueue<Runnable> q : submissions)
+                if (q.contains(o))
+                    return true;
+            for (LocalQueue w : locals)
+                if (w.tasks.contains(o))
+                    return true;
+            return false;
+        }
+
+        public void clear() {
+            while (tryTake(null) != null)
+                ;
+        }
+
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            if (c == null)
+                throw new NullPointerException();
+            if (c == this)
+                throw new IllegalArgumentException();
+            int n = 0;
+            for (Runnable r; n < maxElements && (r = tryTake(null)) != null; ) {
+                c.add(r);
+                ++n;
+            }
+            return n;
+        }
+
+        public Object[] toArray() {
+            ArrayList<Object> list = new ArrayList<Object>();
+            for (ConcurrentLinkedQueue<Runnable> q : submissions)
+                list.addAll(q);
+            for (LocalQueue w : locals)
+                list.addAll(w.tasks);
+            return list.toArray();
+        }
+
+        /**
+         * Returns an iterator over a snapshot of all the queues.
+         */
+        public Iterator<Runnable> iterator() {
+            final Object[] array = toArray();
+            return new Iterator<Runnable>() {
+                int cursor = 0;     // index of next element to return
+                int lastRet = -1;   // index of last element, or -1 if no such
+
+                public boolean hasNext() {
+                    return cursor < array.length;
+                }
+
+                public Runnable next() {
+                    if (cursor >= array.length)
+                        throw new NoSuchElementException();
+                    lastRet = cursor;
+                    return (Runnable)array[cursor++];
+                }
+
+                public void remove() {
+                    if (lastRet < 0)
+                        throw new IllegalStateException();
+                    WorkStealingQueue.this.remove(array[lastRet]);
+                    lastRet = -1;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.atomic;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import sun.misc.Unsafe;
+
+/**
+ * A fixed-length table of {@code long} counters, each behaving like a
+ * {@link LongAdder}, that share one set of contention-adaptive stripes.
+ *
+ * <p>Like a {@code LongAdder}, each counter is updated in a base value
+ * while updates are uncontended, and spread over up to one stripe per
+ * processor once they are not, selected by a per-thread hash. Instead
+ * of a {@code LongAdder} object and its own cells per counter, a stripe
+ * here is a single padded {@code long} array holding one slot for every
+ * counter in the table. This makes a table of many counters much
+ * smaller than the equivalent adders, and lets {@link #snapshot} and
+ * {@link #snapshotThenReset} read all counters in one sequential pass
+ * over each stripe, which is the intended use: a metrics registry that
+ * updates counters from many threads and periodically collects them
+ * all.
+ *
+ * <p>Sums are not atomic snapshots: updates that occur while a sum or
+ * snapshot is being computed may or may not be included. {@link
+ * #snapshotThenReset} atomically takes each slot it reads, so every
+ * update is reported by exactly one snapshot, unlike {@link
+ * LongAdder#sumThenReset}.
+ *
+ * <p>This class does not extend {@link Number}, and does not define
+ * {@code equals}, {@code hashCode} and {@code compareTo}.
+ *
+ * @since 1.8
+ */
+public class LongAdderArray {
+
+    /*
+     * The growth policy, probe use and spinlock follow Striped64; see
+     * its internal documentation. Stripes are allocated whole, for all
+     * counters at once, and attached with an ordered write, so a
+     * reader sees either null or a zero-filled array. Stripes are
+     * padded at both ends so that two stripes never share a cache line
+     * with each other.
+     */
+
+    /** Number of CPUS, to place bound on table size */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** Padding, in elements, at each end of a stripe. */
+    private static final int PAD = 16;
+
+    /** Uncontended values, one per counter. */
+    private final long[] base;
+
+    /** Table of stripes; when non-null, size is a power of 2. */
+    private transient volatile long[][] stripes;
+
+    /** Spinlock (locked via CAS) used when resizing and/or creating stripes. */
+    private transient volatile int stripesBusy;
+
+    /**
+     * Creates a new table of the given number of counters, all
+     * initially zero.
+     *
+     * @param length the number of counters
+     * @throws NegativeArraySizeException if length is negative
+     */
+    public LongAdderArray(int length) {
+        base = new long[length];
+    }
+
+    /**
+     * Returns the number of counters.
+     *
+     * @return the number of counters
+     */
+    public final int length() {
+        return base.length;
+    }
+
+    private long checkedByteOffset(int i) {
+        if (i < 0 || i >= base.length)
+            throw new IndexOutOfBoundsException("index " + i);
+        return byteOffset(i);
+    }
+
+    private static long byteOffset(int i) {
+        return ((long) i << ASHIFT) + ABASE;
+    }
+
+    /** Offset within a stripe of the slot at the given base offset. */
+    private static long stripeOffset(long offset) {
+        return offset + ((long) PAD << ASHIFT);
+    }
+
+    /**
+     * Adds the given value to counter {@code i}.
+     *
+     * @param i the index
+     * @param x the value to add
+     */
+    public void add(int i, long x) {
+        long[][] ss; long[] s; long v; int m;
+        long offset = checkedByteOffset(i);
+        if ((ss = stripes) != null ||
+            !U.compareAndSwapLong(base, offset,
+                                  v = U.getLongVolatile(base, offset), v + x)) {
+            boolean uncontended = true;
+            long so = stripeOffset(offset);
+            if (ss == null || (m = ss.length - 1) < 0 ||
+                (s = ss[Striped64.getProbe() & m]) == null ||
+                !(uncontended =
+                  U.compareAndSwapLong(s, so, v = U.getLongVolatile(s, so),
+                                       v + x)))
+                accumulate(offset, x, uncontended);
+        }
+    }
+
+    /**
+     * Adds one to counter {@code i}.
+     *
+     * @param i the index
+     */
+    public void increment(int i) {
+        add(i, 1L);
+    }
+
+    /**
+     * Subtracts one from counter {@code i}.
+     *
+     * @param i the index
+     */
+    public void decrement(int i) {
+        add(i, -1L);
+    }
+
+    /**
+     * Handles updates involving initialization, creating new stripes,
+     * resizing, and/or contention. This is Striped64.longAccumulate
+     * for a slot of every stripe rather than for a cell.
+     *
+     * @param offset the base offset of the counter
+     * @param x the value to add
+     * @param wasUncontended false if CAS failed before call
+     */
+    private void accumulate(long offset, long x, boolean wasUncontended) {
+        int h;
+        if ((h = Striped64.getProbe()) == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = Striped64.getProbe();
+            wasUncontended = true;
+        }
+        long so = stripeOffset(offset);
+        boolean collide = false;                // True if last slot nonempty
+        for (;;) {
+            long[][] ss; long[] s; int n; long v;
+            if ((ss = stripes) != null && (n = ss.length) > 0) {
+                if ((s = ss[(n - 1) & h]) == null) {
+                    if (stripesBusy == 0) {     // Try to attach new stripe
+                        long[] r = newStripe();
+                        if (stripesBusy == 0 && casStripesBusy()) {
+                            try {               // Recheck under lock
+                                long[][] rs; int mm, j;
+                                if ((rs = stripes) != null &&
+                                    (mm = rs.length) > 0 &&
+                                    rs[j = (mm - 1) & h] == null)
+                                    U.putOrderedObject(rs, byteOffsetOfStripe(j), r);
+                            } finally {
+                                stripesBusy = 0;
+                            }
+                            continue;           // Add to the stripe now present
+                        }
+                    }
+                    collide = false;
+                }
+                else if (!wasUncontended)       // CAS already known to fail
+                    wasUncontended = true;      // Continue after rehash
+                else if (U.compareAndSwapLong(s, so, v = U.getLongVolatile(s, so),
+                                              v + x))
+                    break;
+                else if (n >= NCPU || stripes != ss)
+                    collide = false;            // At max size or stale
+                else if (!collide)
+                    collide = true;
+                else if (stripesBusy == 0 && casStripesBusy()) {
+                    try {
+                        if (stripes == ss)      // Expand table unless stale
+                            stripes = Arrays.copyOf(ss, n << 1);
+                    } finally {
+                        stripesBusy = 0;
+                    }
+                    collide = false;
+                    continue;                   // Retry with expanded table
+                }
+                h = Striped64.advanceProbe(h);
+            }
+            else if (stripesBusy == 0 && stripes == ss && casStripesBusy()) {
+                try {                           // Initialize table
+                    if (stripes == ss) {
+                        long[][] rs = new long[2][];
+                        rs[h & 1] = newStripe();
+                        stripes = rs;
+                    }
+                } finally {
+                    stripesBusy = 0;
+                }
+            }
+            else if (U.compareAndSwapLong(base, offset,
+                                          v = U.getLongVolatile(base, offset),
+                                          v + x))
+                break;                          // Fall back on using base
+        }
+    }
+
+    private long[] newStripe() {
+        return new long[base.length + (PAD << 1)];
+    }
+
+    private static long byteOffsetOfStripe(int j) {
+        return ((long) j << SSHIFT) + SBASE;
+    }
+
+    /**
+     * CASes the stripesBusy field from 0 to 1 to acquire lock.
+     */
+    private boolean casStripesBusy() {
+        return U.compareAndSwapInt(this, STRIPESBUSY, 0, 1);
+    }
+
+    /**
+     * Returns the current sum of counter {@code i}. The returned value
+     * is <em>NOT</em> an atomic snapshot; invocation in the absence of
+     * concurrent updates returns an accurate result, but concurrent
+     * updates that occur while the sum is being calculated might not
+     * be incorporated.
+     *
+     * @param i the index
+     * @return the sum
+     */
+    public long sum(int i) {
+        long offset = checkedByteOffset(i);
+        long sum = U.getLongVolatile(base, offset);
+        long[][] ss = stripes;
+        if (ss != null) {
+            long so = stripeOffset(offset);
+            for (long[] s : ss) {
+                if (s != null)
+                    sum += U.getLongVolatile(s, so);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Resets counter {@code i} to zero. This method may be a useful
+     * alternative to creating a new table, but is only effective if
+     * there are no concurrent updates of the counter.
+     *
+     * @param i the index
+     */
+    public void reset(int i) {
+        long offset = checkedByteOffset(i);
+        U.putLongVolatile(base, offset, 0L);
+        long[][] ss = stripes;
+        if (ss != null) {
+            long so = stripeOffset(offset);
+            for (long[] s : ss) {
+                if (s != null)
+                    U.putLongVolatile(s, so, 0L);
+            }
+        }
+    }
+
+    /**
+     * Returns the sums of all counters, reading each stripe once from
+     * start to end. Each element is a sum as computed by {@link #sum};
+     * the array as a whole is not an atomic snapshot.
+     *
+     * @return a new array holding the sum of each counter
+     */
+    public long[] snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * Returns the sums of all counters, as by {@link #snapshot}, and
+     * resets them to zero. Each base value and stripe slot is read and
+     * cleared atomically, so an update made concurrently with this
+     * method is included either in the returned array or in the
+     * counters afterwards, never in both or neither.
+     *
+     * @return a new array holding the sum of each counter
+     */
+    public long[] snapshotThenReset() {
+        return collect(true);
+    }
+
+    private long[] collect(boolean reset) {
+        int n = base.length;
+        long[] a = new long[n];
+        addAll(a, base, ABASE, reset);
+        long[][] ss = stripes;
+        if (ss != null) {
+            long so = stripeOffset(ABASE);
+            for (long[] s : ss) {
+                if (s != null)
+                    addAll(a, s, so, reset);
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Adds the n slots of src starting at byte offset off into a,
+     * clearing them if reset.
+     */
+    private static void addAll(long[] a, long[] src, long off, boolean reset) {
+        // 逐 stripe 顺序扫描，对缓存友好
+        if (reset) {
+            for (int i = 0; i < a.length; ++i, off += 1L << ASHIFT)
+                a[i] += U.getAndSetLong(src, off, 0L);
+        }
+        else {
+            for (int i = 0; i < a.length; ++i, off += 1L << ASHIFT)
+                a[i] += U.getLongVolatile(src, off);
+        }
+    }
+
+    /**
+     * Resets all counters to zero. This method may be a useful
+     * alternative to creating a new table, but is only effective if
+     * there are no concurrent updates. Use {@link #snapshotThenReset}
+     * to reset counters that are being updated.
+     */
+    public void reset() {
+        int n = base.length;
+        for (int i = 0; i < n; ++i)
+            U.putLongVolatile(base, byteOffset(i), 0L);
+        long[][] ss = stripes;
+        if (ss != null) {
+            for (long[] s : ss) {
+                if (s != null) {
+                    for (int i = 0; i < n; ++i)
+                        U.putLongVolatile(s, stripeOffset(byteOffset(i)), 0L);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the String representation of the current sums of the
+     * counters.
+     *
+     * @return the String representation of the current sums
+     */
+    public String toString() {
+        return Arrays.toString(snapshot());
+    }
+
+    // Unsafe mechanics
+    private static final Unsafe U;
+    private static final long STRIPESBUSY;
+    private static final int ABASE;
+    private static final int ASHIFT;
+    private static final int SBASE;
+    private static final int SSHIFT;
+    static {
+        try {
+            U = Unsafe.getUnsafe();
+            STRIPESBUSY = U.objectFieldOffset
+                (LongAdderArray.class.getDeclaredField("stripesBusy"));
+            ABASE = U.arrayBaseOffset(long[].class);
+            int scale = U.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            SBASE = U.arrayBaseOffset(long[][].class);
+            scale = U.arrayIndexScale(long[][].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            SSHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -532,6 +532,19 @@ public abstract class AbstractQueuedSynchronizer
      */
     private volatile int state;
 
+    /**
+     * Whether acquiring threads spin before enqueuing. See
+     * {@link #setAdaptiveSpinning}.
+     */
+    private volatile boolean adaptiveSpinning;
+
+    /**
+     * Current spin budget, in spin iterations, or zero if not yet
+     * set. Updated without synchronization by spinning threads: it is
+     * only a heuristic, and a lost update merely delays adaptation.
+     */
+    private transient int spinLimit;
+
     /**
      * Returns the current value of synchronization state.
      * This operation has memory semantics of a {@code volatile} read.
@@ -581,6 +594,80 @@ public abstract class AbstractQueuedSynchronizer
      */
     static final long spinForTimeoutThreshold = 1000L;
 
+    /** Whether spinning can help at all: never on a uniprocessor. */
+    private static final boolean SPIN_CAPABLE =
+        Runtime.getRuntime().availableProcessors() > 1;
+
+    /**
+     * Bounds and initial value of the adaptive spin budget. The upper
+     * bound is on the order of tens of microseconds, about the cost of
+     * a park/unpark round trip plus a context switch, beyond which
+     * spinning cannot pay for itself.
+     */
+    private static final int SPIN_MIN = 1 << 5;
+    private static final int SPIN_INITIAL = 1 << 9;
+    private static final int SPIN_MAX = 1 << 14;
+
+    /**
+     * While spinning, the synchronizer is retried whenever the state
+     * changes, and at least this often (a power of two minus one), in
+     * case the outcome of a retry depends on more than the state.
+     */
+    private static final int SPIN_RETRY_MASK = (1 << 6) - 1;
+
+    /**
+     * Spins on the state for a bounded time, retrying the acquire
+     * whenever the state changes, as a cheaper alternative to
+     * enqueuing and parking when the synchronizer is held only
+     * briefly. Spinning is attempted only when no thread is queued,
+     * since otherwise a queued thread will be handed the synchronizer
+     * first (or, for barging synchronizers, is already competing).
+     *
+     * <p>The budget adapts to recent hold times: an acquire that
+     * succeeds after {@code i} iterations moves the budget halfway
+     * towards {@code 2 * i}, and one that exhausts the budget halves
+     * it, so synchronizers held for longer than parking costs soon stop
+     * spinning beyond the {@code SPIN_MIN} probe.
+     *
+     * @param arg the acquire argument
+     * @param shared true for shared mode
+     * @return {@code true} if acquired
+     */
+    private boolean spinAcquire(int arg, boolean shared) {
+        // 自适应自旋：最近持有时间短则多自旋，自旋失败则预算减半
+        if (head != tail)
+            return false;
+        int limit = spinLimit;
+        if (limit == 0)
+            limit = SPIN_INITIAL;
+        int s = state;
+        for (int i = 1; i <= limit; ++i) {
+            int c = state;
+            if (c != s || (i & SPIN_RETRY_MASK) == 0) {
+                s = c;
+                if (shared ? tryAcquireShared(arg) >= 0 : tryAcquire(arg)) {
+                    int n = (limit + (i << 1)) >>> 1;
+                    spinLimit = (n < SPIN_MIN) ? SPIN_MIN :
+                        (n > SPIN_MAX) ? SPIN_MAX : n;
+                    return true;
+                }
+                if (head != tail)  // others queued meanwhile
+                    break;
+            }
+        }
+        int n = limit >>> 1;
+        spinLimit = (n < SPIN_MIN) ? SPIN_MIN : n;
+        return false;
+    }
+
+    /**
+     * Returns true if an acquire that failed its first attempt should
+     * spin before enqueuing.
+     */
+    private boolean shouldSpin() {
+        return adaptiveSpinning && SPIN_CAPABLE;
+    }
+
     /**
      * Inserts node into queue, initializing if necessary. See picture above.
      * @param node the node to insert
@@ -1316,6 +1403,7 @@ public abstract class AbstractQueuedSynchronizer
          * 若获取成功，#acquire(int arg) 方法，直接返回，不用线程阻塞，自旋直到获得同步状态成功
          */
         if (!tryAcquire(arg) &&
+            !(shouldSpin() && spinAcquire(arg, false)) &&
             acquireQueued(addWaiter(Node.EXCLUSIVE), arg))
             selfInterrupt();
     }
@@ -1341,7 +1429,8 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        if (!tryAcquire(arg))
+        if (!tryAcquire(arg) &&
+            !(shouldSpin() && spinAcquire(arg, false)))
             doAcquireInterruptibly(arg);
     }
 
@@ -1369,8 +1458,16 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        return tryAcquire(arg) ||
-            doAcquireNanos(arg, nanosTimeout);
+        if (tryAcquire(arg))
+            return true;
+        if (nanosTimeout > spinForTimeoutThreshold && shouldSpin()) {
+            // 自旋消耗的时间要从超时中扣除
+            final long deadline = System.nanoTime() + nanosTimeout;
+            if (spinAcquire(arg, false))
+                return true;
+            nanosTimeout = deadline - System.nanoTime();
+        }
+        return doAcquireNanos(arg, nanosTimeout);
     }
 
     /**
@@ -1409,7 +1506,8 @@ public abstract class AbstractQueuedSynchronizer
      *            与独占式的主要区别是在同一时刻可以有多个线程获取到同步状态；
      */
     public final void acquireShared(int arg) {
-        if (tryAcquireShared(arg) < 0)
+        if (tryAcquireShared(arg) < 0 &&
+            !(shouldSpin() && spinAcquire(arg, true)))
             doAcquireShared(arg);
     }
 
@@ -1432,7 +1530,8 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        if (tryAcquireShared(arg) < 0)
+        if (tryAcquireShared(arg) < 0 &&
+            !(shouldSpin() && spinAcquire(arg, true)))
             doAcquireSharedInterruptibly(arg);
     }
 
@@ -1458,8 +1557,16 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        return tryAcquireShared(arg) >= 0 ||
-            doAcquireSharedNanos(arg, nanosTimeout);
+        if (tryAcquireShared(arg) >= 0)
+            return true;
+        if (nanosTimeout > spinForTimeoutThreshold && shouldSpin()) {
+            // 自旋消耗的时间要从超时中扣除
+            final long deadline = System.nanoTime() + nanosTimeout;
+            if (spinAcquire(arg, true))
+                return true;
+            nanosTimeout = deadline - System.nanoTime();
+        }
+        return doAcquireSharedNanos(arg, nanosTimeout);
     }
 
     /**
@@ -1481,6 +1588,39 @@ public abstract class AbstractQueuedSynchronizer
         return false;
     }
 
+    /**
+     * Enables or disables adaptive spinning. When enabled, a thread
+     * whose first attempt to acquire fails, and that finds no other
+     * thread queued, spins for a short time retrying the acquire
+     * before it is queued and parked. The spin budget adapts to how
+     * soon recent spins succeeded, so this pays off for synchronizers
+     * held for short periods (on the order of microseconds or less)
+     * and costs little for those held longer. Spinning is never used
+     * on a uniprocessor. Disabled by default.
+     *
+     * <p>Spinning consumes processor time that could be used by
+     * other threads, and a spinning thread may barge ahead of threads
+     * that are queued on a synchronizer that does not itself check
+     * for queued predecessors.
+     *
+     * @param on {@code true} to enable adaptive spinning
+     * @since 1.8
+     */
+    public final void setAdaptiveSpinning(boolean on) {
+        adaptiveSpinning = on;
+    }
+
+    /**
+     * Returns {@code true} if adaptive spinning is enabled.
+     *
+     * @return {@code true} if adaptive spinning is enabled
+     * @see #setAdaptiveSpinning
+     * @since 1.8
+     */
+    public final boolean isAdaptiveSpinning() {
+        return adaptiveSpinning;
+    }
+
     // Queue inspection methods
 
     /**
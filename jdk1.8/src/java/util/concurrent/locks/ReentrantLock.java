@@ -693,6 +693,33 @@ public class ReentrantLock implements Lock, java.io.Serializable {
         return sync instanceof FairSync;
     }
 
+    /**
+     * Enables or disables adaptive spinning for this lock. When
+     * enabled, a thread that finds the lock held, and no other thread
+     * waiting for it, spins briefly before blocking, for a time that
+     * adapts to how long the lock has recently been held. This helps
+     * locks guarding critical sections of a few microseconds or less,
+     * where blocking and unblocking costs more than the wait itself.
+     * Spinning is disabled by default.
+     *
+     * @param on {@code true} to enable adaptive spinning
+     * @see AbstractQueuedSynchronizer#setAdaptiveSpinning
+     * @since 1.8
+     */
+    public void setAdaptiveSpinning(boolean on) {
+        sync.setAdaptiveSpinning(on);
+    }
+
+    /**
+     * Returns {@code true} if adaptive spinning is enabled for this lock.
+     *
+     * @return {@code true} if adaptive spinning is enabled
+     * @since 1.8
+     */
+    public boolean isAdaptiveSpinning() {
+        return sync.isAdaptiveSpinning();
+    }
+
     /**
      * Returns the thread that currently owns this lock, or
      * {@code null} if not owned. When this method is called by a
@@ -36,6 +36,7 @@
 package java.util.concurrent.locks;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -119,6 +120,24 @@ import java.util.concurrent.locks.LockSupport;
  * or converting locks does not carry any information about the state
  * of the lock; a subsequent invocation may succeed.
  *
+ * <p>A lock constructed as <em>fair</em> grants the blocking and timed
+ * acquisition methods in arrival order: while any thread is queued, a
+ * newly arriving reader or writer queues behind it instead of
+ * acquiring the lock, even if the lock is held only in read mode.
+ * A continuous stream of overlapping readers therefore cannot starve a
+ * writer. The "try" methods, including the first attempt made by
+ * their timed forms, and the mode conversions still barge. Fair locks
+ * typically have lower throughput than the default.
+ *
+ * <p>When {@linkplain #setStatisticsEnabled statistics are enabled},
+ * the lock counts optimistic reads and failed validations, and the
+ * number of writers that had to wait together with the time they
+ * waited, which helps decide whether optimistic reading pays off for
+ * a given data structure. These counters are maintained with {@link
+ * java.util.concurrent.atomic.LongAdder}s, so they add little
+ * contention, but they are disabled by default because even that is
+ * measurable on the optimistic read path.
+ *
  * <p>Because it supports coordinated usage across multiple lock
  * modes, this class does not directly implement the {@link Lock} or
  * {@link ReadWriteLock} interfaces. However, a StampedLock may be
@@ -232,6 +251,11 @@ public class StampedLock implements java.io.Serializable {
      * with nothing better to do in methods acquireRead and
      * acquireWrite.
      *
+     * In fair mode the anti-barging rule is extended to all queued
+     * threads: fast paths and the pre-enqueue spins of acquireWrite
+     * and acquireRead acquire only while the queue is empty, so any
+     * arrival after a thread is queued queues behind it.
+     *
      * These rules apply to threads actually queued. All tryLock forms
      * opportunistically try to acquire locks regardless of preference
      * rules, and so may "barge" their way in.  Randomized spinning is
@@ -334,10 +358,29 @@ public class StampedLock implements java.io.Serializable {
     /** extra reader count when state read count saturated */
     private transient int readerOverflow;
 
+    /** true if arrivals never overtake queued threads */
+    private final boolean fair;
+
+    /** counters, or null if statistics are disabled */
+    private transient volatile Statistics statistics;
+
     /**
      * Creates a new lock, initially in unlocked state.
      */
     public StampedLock() {
+        this(false);
+    }
+
+    /**
+     * Creates a new lock, initially in unlocked state, with the
+     * given fairness policy.
+     *
+     * @param fair {@code true} if blocking acquisitions should be
+     * granted in arrival order
+     * @since 1.8
+     */
+    public StampedLock(boolean fair) {
+        this.fair = fair;
         state = ORIGIN;
     }
 
@@ -349,9 +392,9 @@ public class StampedLock implements java.io.Serializable {
      */
     public long writeLock() {
         long s, next;  // bypass acquireWrite in fully unlocked case only
-        return ((((s = state) & ABITS) == 0L &&
+        return ((((s = state) & ABITS) == 0L && (!fair || whead == wtail) &&
                  U.compareAndSwapLong(this, STATE, s, next = s + WBIT)) ?
-                next : acquireWrite(false, 0L));
+                next : awaitWrite(false, 0L));
     }
 
     /**
@@ -391,7 +434,7 @@ public class StampedLock implements java.io.Serializable {
                 return 0L;
             if ((deadline = System.nanoTime() + nanos) == 0L)
                 deadline = 1L;
-            if ((next = acquireWrite(true, deadline)) != INTERRUPTED)
+            if ((next = awaitWrite(true, deadline)) != INTERRUPTED)
                 return next;
         }
         throw new InterruptedException();
@@ -410,7 +453,7 @@ public class StampedLock implements java.io.Serializable {
     public long writeLockInterruptibly() throws InterruptedException {
         long next;
         if (!Thread.interrupted() &&
-            (next = acquireWrite(true, 0L)) != INTERRUPTED)
+            (next = awaitWrite(true, 0L)) != INTERRUPTED)
             return next;
         throw new InterruptedException();
     }
@@ -509,7 +552,9 @@ public class StampedLock implements java.io.Serializable {
      * @return a stamp, or zero if exclusively locked
      */
     public long tryOptimisticRead() {
-        long s;
+        long s; Statistics st;
+        if ((st = statistics) != null)
+            st.optimisticReads.increment();
         return (((s = state) & WBIT) == 0L) ? (s & SBITS) : 0L;
     }
 
@@ -527,7 +572,12 @@ public class StampedLock implements java.io.Serializable {
      */
     public boolean validate(long stamp) {
         U.loadFence();
-        return (stamp & SBITS) == (state & SBITS);
+        Statistics st;
+        if ((stamp & SBITS) == (state & SBITS))
+            return true;
+        if ((st = statistics) != null)
+            st.validationFailures.increment();
+        return false;
     }
 
     /**
@@ -812,6 +862,95 @@ public class StampedLock implements java.io.Serializable {
         return getReadLockCount(state);
     }
 
+    /**
+     * Returns {@code true} if this lock has fairness set true.
+     *
+     * @return {@code true} if this lock has fairness set true
+     * @since 1.8
+     */
+    public boolean isFair() {
+        return fair;
+    }
+
+    /**
+     * Enables or disables the collection of statistics for this lock.
+     * Enabling statistics again after disabling them starts from zero.
+     *
+     * @param value {@code true} to enable statistics, else {@code false}
+     * @since 1.8
+     */
+    public void setStatisticsEnabled(boolean value) {
+        if (value != (statistics != null))
+            statistics = value ? new Statistics() : null;
+    }
+
+    /**
+     * Returns {@code true} if statistics are being collected for this
+     * lock.
+     *
+     * @return {@code true} if statistics are enabled
+     * @since 1.8
+     */
+    public boolean isStatisticsEnabled() {
+        return statistics != null;
+    }
+
+    /**
+     * Returns the number of calls to {@link #tryOptimisticRead} since
+     * statistics were enabled, including those that returned zero.
+     *
+     * @return the number of optimistic reads, or zero if statistics
+     * are disabled
+     * @since 1.8
+     */
+    public long getOptimisticReadCount() {
+        Statistics st = statistics;
+        return (st == null) ? 0L : st.optimisticReads.sum();
+    }
+
+    /**
+     * Returns the number of calls to {@link #validate} that returned
+     * {@code false} since statistics were enabled. Compared with
+     * {@link #getOptimisticReadCount}, this gives the rate at which
+     * optimistic reads must be retried or fall back to a read lock.
+     *
+     * @return the number of failed validations, or zero if statistics
+     * are disabled
+     * @since 1.8
+     */
+    public long getValidationFailureCount() {
+        Statistics st = statistics;
+        return (st == null) ? 0L : st.validationFailures.sum();
+    }
+
+    /**
+     * Returns the number of blocking or timed write lock acquisitions
+     * that could not acquire the lock immediately and had to wait,
+     * since statistics were enabled.
+     *
+     * @return the number of writers that waited, or zero if statistics
+     * are disabled
+     * @since 1.8
+     */
+    public long getWriterWaitCount() {
+        Statistics st = statistics;
+        return (st == null) ? 0L : st.writerWaits.sum();
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, that writers counted by
+     * {@link #getWriterWaitCount} spent waiting for the lock, including
+     * waits that ended in a timeout or interrupt.
+     *
+     * @return the total writer wait time in nanoseconds, or zero if
+     * statistics are disabled
+     * @since 1.8
+     */
+    public long getWriterWaitTime() {
+        Statistics st = statistics;
+        return (st == null) ? 0L : st.writerWaitTime.sum();
+    }
+
     /**
      * Returns a string identifying this lock, as well as its lock
      * state.  The state, in brackets, includes the String {@code
@@ -945,6 +1084,14 @@ public class StampedLock implements java.io.Serializable {
         }
     }
 
+    /** Counters kept while statistics are enabled. */
+    static final class Statistics {
+        final LongAdder optimisticReads = new LongAdder();
+        final LongAdder validationFailures = new LongAdder();
+        final LongAdder writerWaits = new LongAdder();
+        final LongAdder writerWaitTime = new LongAdder();
+    }
+
     private void readObject(java.io.ObjectInputStream s)
         throws java.io.IOException, ClassNotFoundException {
         s.defaultReadObject();
@@ -1024,6 +1171,20 @@ public class StampedLock implements java.io.Serializable {
         }
     }
 
+    /**
+     * Calls acquireWrite, recording the wait if statistics are enabled.
+     */
+    private long awaitWrite(boolean interruptible, long deadline) {
+        Statistics st;
+        if ((st = statistics) == null)
+            return acquireWrite(interruptible, deadline);
+        long start = System.nanoTime();
+        long next = acquireWrite(interruptible, deadline);
+        st.writerWaits.increment();
+        st.writerWaitTime.add(System.nanoTime() - start);
+        return next;
+    }
+
     /**
      * See above for explanation.
      *
@@ -1037,7 +1198,8 @@ public class StampedLock implements java.io.Serializable {
         WNode node = null, p;
         for (int spins = -1;;) { // spin while enqueuing
             long m, s, ns;
-            if ((m = (s = state) & ABITS) == 0L) {
+            if ((m = (s = state) & ABITS) == 0L &&
+                (!fair || whead == wtail)) {
                 if (U.compareAndSwapLong(this, STATE, s, ns = s + WBIT))
                     return ns;
             }
@@ -1141,6 +1303,8 @@ public class StampedLock implements java.io.Serializable {
             WNode h;
             if ((h = whead) == (p = wtail)) {
                 for (long m, s, ns;;) {
+                    if (fair && whead != wtail)
+                        break;              // 公平模式：已有排队者，入队
                     if ((m = (s = state) & ABITS) < RFULL ?
                         U.compareAndSwapLong(this, STATE, s, ns = s + RUNIT) :
                         (m < WBIT && (ns = tryIncReaderOverflow(s)) != 0L))
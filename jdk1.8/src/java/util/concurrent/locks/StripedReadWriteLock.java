@@ -0,0 +1,545 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ReadWriteLock} biased towards readers, for data that is read
+ * very frequently by many threads and written rarely.
+ *
+ * <p>A {@link ReentrantReadWriteLock} counts readers in a single
+ * synchronization word, so every read acquisition and release updates
+ * the same cache line, which becomes the bottleneck when many
+ * processors read at once. This lock instead spreads the reader count
+ * over an array of padded cells, one per processor or so, selected by a
+ * per-thread hash in the same way as {@link
+ * java.util.concurrent.atomic.LongAdder}. Acquiring and releasing the
+ * read lock update only the caller's cell, and so do not contend with
+ * readers on other processors. The price is paid by writers: a writer
+ * announces itself and then waits until a scan of all the cells finds
+ * no readers, and the lock occupies more memory, so this class should
+ * be used only where reads vastly outnumber writes.
+ *
+ * <p>Writers are mutually excluded by an internal {@link ReentrantLock},
+ * created with the fairness policy given to the constructor. While a
+ * writer holds or is waiting for the write lock, new readers block on
+ * that same lock, so a stream of readers cannot starve a writer.
+ *
+ * <p><b>Reentrancy.</b> The write lock is reentrant, and a thread
+ * holding the write lock may acquire the read lock, so a write lock
+ * may be downgraded to a read lock by acquiring the read lock and then
+ * releasing the write lock. Upgrading from a read lock to the write
+ * lock is not possible. Unlike {@link ReentrantReadWriteLock}, the read
+ * lock is <em>not</em> reentrant, since readers are not tracked per
+ * thread: a thread holding only the read lock that tries to acquire it
+ * again may deadlock with a waiting writer.
+ *
+ * <p><b>Release.</b> Because readers are not tracked, releasing a read
+ * lock that is not held is not detected, and breaks the mutual
+ * exclusion of the lock.
+ *
+ * <p>Neither lock supports {@link Condition}s: {@code newCondition}
+ * throws {@code UnsupportedOperationException}.
+ *
+ * @since 1.8
+ */
+public class StripedReadWriteLock implements ReadWriteLock {
+
+    /*
+     * Readers increment a cell and then read writerPending; writers
+     * set writerPending and then read the cells. Both are volatile,
+     * so a reader either sees the writer (and backs off) or is seen
+     * by it (and is waited for).
+     *
+     * A reader that backs off decrements the cell it incremented, so
+     * a writer's scan, which reads each cell once, can never observe
+     * the decrement without the increment. A reader releasing the lock
+     * may decrement any cell, since the thread's hash may have changed
+     * in between; cells can therefore go negative, but the increment
+     * of any reader that entered before the writer is visible to the
+     * writer's scan, so a sum of zero or less means no reader holds
+     * the lock.
+     *
+     * A reader that finds a writer pending waits by acquiring the
+     * writer mutex, and registers while holding it, so it neither
+     * spins nor can be counted by a writer that it has let through.
+     * A writer spins briefly and then parks while readers remain;
+     * the last readers unpark it when they see writerPending.
+     */
+
+    /** Maximum number of reader cells. */
+    private static final int MAX_CELLS = 1 << 8;
+
+    /** Number of scans a writer spins before parking. */
+    private static final int WRITER_SPINS =
+        (Runtime.getRuntime().availableProcessors() > 1) ? 1 << 6 : 0;
+
+    /** Mutual exclusion of writers, and where readers wait for them. */
+    private final ReentrantLock writerMutex;
+
+    /** True while a writer holds or is acquiring the write lock. */
+    private volatile boolean writerPending;
+
+    /** The writer waiting for readers to leave, if parked. */
+    private volatile Thread waitingWriter;
+
+    /** Reader counts; length is a power of two. */
+    private final Cell[] cells;
+
+    private final ReadLock readerLock;
+    private final WriteLock writerLock;
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with non-fair
+     * ordering of writers.
+     */
+    public StripedReadWriteLock() {
+        this(false);
+    }
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with the given
+     * fairness policy for writers and for readers that wait for them.
+     *
+     * @param fair {@code true} if this lock should use a fair ordering policy
+     */
+    public StripedReadWriteLock(boolean fair) {
+        int ncpu = Runtime.getRuntime().availableProcessors();
+        int n = 1;
+        while (n < ncpu && n < MAX_CELLS)
+            n <<= 1;
+        Cell[] cs = new Cell[n];
+        for (int i = 0; i < n; ++i)
+            cs[i] = new Cell();
+        this.cells = cs;
+        this.writerMutex = new ReentrantLock(fair);
+        this.readerLock = new ReadLock(this);
+        this.writerLock = new WriteLock(this);
+    }
+
+    public Lock readLock()  { return readerLock; }
+    public Lock writeLock() { return writerLock; }
+
+    // Reader side
+
+    /**
+     * Registers a reader unless a writer is pending.
+     *
+     * @return {@code true} if registered
+     */
+    private boolean tryEnterRead() {
+        Cell c = enterCell();
+        if (!writerPending)
+            return true;
+        // 写者已声明：撤销对同一 cell 的加一，并唤醒可能在等待的写者
+        c.add(-1L);
+        signalWriter();
+        return false;
+    }
+
+    /**
+     * Registers a reader while holding writerMutex, so that no other
+     * writer can be pending, and releases writerMutex. If the caller
+     * is itself the writer, this downgrades it.
+     */
+    private void enterReadLocked() {
+        enterCell();
+        writerMutex.unlock();
+    }
+
+    /**
+     * Increments the caller's cell, moving to another cell on
+     * contention.
+     *
+     * @return the cell incremented
+     */
+    private Cell enterCell() {
+        Cell[] cs = cells;
+        int m = cs.length - 1;
+        int h = getProbe();
+        if (h == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = getProbe();
+        }
+        for (;;) {
+            Cell c = cs[h & m];
+            long v = c.value;
+            if (c.cas(v, v + 1L))
+                return c;
+            h = advanceProbe(h);
+        }
+    }
+
+    final void unlockRead() {
+        Cell[] cs = cells;
+        int h = getProbe();
+        Cell c = cs[h & (cs.length - 1)];
+        long v;
+        while (!c.cas(v = c.value, v - 1L))
+            c = cs[(h = advanceProbe(h)) & (cs.length - 1)];
+        if (writerPending)
+            signalWriter();
+    }
+
+    final void lockRead() {
+        if (!tryEnterRead()) {
+            writerMutex.lock();
+            enterReadLocked();
+        }
+    }
+
+    final void lockReadInterruptibly() throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        if (!tryEnterRead()) {
+            writerMutex.lockInterruptibly();
+            enterReadLocked();
+        }
+    }
+
+    final boolean tryLockRead() {
+        if (tryEnterRead())
+            return true;
+        if (!writerMutex.tryLock())
+            return false;
+        enterReadLocked();
+        return true;
+    }
+
+    final boolean tryLockRead(long nanos) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        if (tryEnterRead())
+            return true;
+        if (!writerMutex.tryLock(nanos, TimeUnit.NANOSECONDS))
+            return false;
+        enterReadLocked();
+        return true;
+    }
+
+    // Writer side
+
+    /**
+     * Returns the sum of the reader cells.
+     */
+    private long readerSum() {
+        long sum = 0L;
+        for (Cell c : cells)
+            sum += c.value;
+        return sum;
+    }
+
+    private void signalWriter() {
+        Thread w = waitingWriter;
+        if (w != null)
+            LockSupport.unpark(w);
+    }
+
+    /**
+     * Called by a thread that has just acquired writerMutex for the
+     * first time: announces the writer and waits for readers to leave.
+     * On timeout or interrupt, withdraws and releases writerMutex.
+     *
+     * @param interruptible whether to abort on interrupt
+     * @param timed whether to abort after nanos
+     * @param nanos the maximum time to wait, if timed
+     * @return {@code true} if the write lock was acquired
+     */
+    private boolean awaitReaders(boolean interruptible, boolean timed,
+                                 long nanos)
+        throws InterruptedException {
+        writerPending = true;
+        if (readerSum() <= 0L)
+            return true;
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        boolean interrupted = false;
+        int spins = WRITER_SPINS;
+        try {
+            for (;;) {
+                if (readerSum() <= 0L)
+                    return true;
+                if (spins > 0) {
+                    --spins;
+                    continue;
+                }
+                if (timed && (nanos = deadline - System.nanoTime()) <= 0L) {
+                    withdrawWriter();
+                    return false;
+                }
+                waitingWriter = Thread.currentThread();
+                if (readerSum() <= 0L)
+                    return true;
+                if (timed)
+                    LockSupport.parkNanos(this, nanos);
+                else
+                    LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    if (interruptible) {
+                        withdrawWriter();
+                        throw new InterruptedException();
+                    }
+                    interrupted = true;
+                }
+            }
+        } finally {
+            waitingWriter = null;
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private void withdrawWriter() {
+        writerPending = false;
+        writerMutex.unlock();
+    }
+
+    final void lockWrite() {
+        writerMutex.lock();
+        if (writerMutex.getHoldCount() == 1) {
+            try {
+                awaitReaders(false, false, 0L);
+            } catch (InterruptedException cannotHappen) {
+                throw new Error(cannotHappen);
+            }
+        }
+    }
+
+    final void lockWriteInterruptibly() throws InterruptedException {
+        writerMutex.lockInterruptibly();
+        if (writerMutex.getHoldCount() == 1)
+            awaitReaders(true, false, 0L);
+    }
+
+    final boolean tryLockWrite() {
+        if (!writerMutex.tryLock())
+            return false;
+        if (writerMutex.getHoldCount() == 1) {
+            writerPending = true;
+            if (readerSum() > 0L) {
+                withdrawWriter();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    final boolean tryLockWrite(long nanos) throws InterruptedException {
+        final long deadline = System.nanoTime() + nanos;
+        if (!writerMutex.tryLock(nanos, TimeUnit.NANOSECONDS))
+            return false;
+        return writerMutex.getHoldCount() > 1 ||
+            awaitReaders(true, true, deadline - System.nanoTime());
+    }
+
+    final void unlockWrite() {
+        if (writerMutex.isHeldByCurrentThread() &&
+            writerMutex.getHoldCount() == 1)
+            writerPending = false;
+        writerMutex.unlock();
+    }
+
+    // Instrumentation and status
+
+    /**
+     * Returns {@code true} if this lock has fairness set true.
+     *
+     * @return {@code true} if this lock has fairness set true
+     */
+    public final boolean isFair() {
+        return writerMutex.isFair();
+    }
+
+    /**
+     * Queries if the write lock is held by any thread, or a writer is
+     * waiting for readers to release the read lock. This method is
+     * designed for use in monitoring system state, not for
+     * synchronization control.
+     *
+     * @return {@code true} if a writer holds or is acquiring the
+     *         write lock
+     */
+    public boolean isWriteLocked() {
+        return writerPending;
+    }
+
+    /**
+     * Queries if the write lock is held by the current thread.
+     *
+     * @return {@code true} if the current thread holds the write lock
+     */
+    public boolean isWriteLockedByCurrentThread() {
+        return writerPending && writerMutex.isHeldByCurrentThread();
+    }
+
+    /**
+     * Returns an estimate of the number of read locks held for this
+     * lock, obtained by summing the reader cells. The value may be
+     * inaccurate while threads are acquiring or releasing the lock.
+     * This method is designed for use in monitoring system state, not
+     * for synchronization control.
+     *
+     * @return the estimated number of read locks held
+     */
+    public long getReadLockCount() {
+        long n = readerSum();
+        return (n < 0L) ? 0L : n;
+    }
+
+    /**
+     * Returns a string identifying this lock, as well as its lock state.
+     * The state, in brackets, includes either the String {@code
+     * "Write locked"} or the String {@code "Write unlocked"}, and the
+     * String {@code "Read locks ="} followed by the estimated number of
+     * held read locks.
+     *
+     * @return a string identifying this lock, as well as its lock state
+     */
+    public String toString() {
+        return super.toString() +
+            (writerPending ? "[Write locked" : "[Write unlocked") +
+            ", Read locks = " + getReadLockCount() + "]";
+    }
+
+    /**
+     * The lock returned by method {@link StripedReadWriteLock#readLock}.
+     */
+    static final class ReadLock implements Lock {
+        private final StripedReadWriteLock lock;
+
+        ReadLock(StripedReadWriteLock lock) { this.lock = lock; }
+
+        public void lock() { lock.lockRead(); }
+
+        public void lockInterruptibly() throws InterruptedException {
+            lock.lockReadInterruptibly();
+        }
+
+        public boolean tryLock() { return lock.tryLockRead(); }
+
+        public boolean tryLock(long time, TimeUnit unit)
+            throws InterruptedException {
+            return lock.tryLockRead(unit.toNanos(time));
+        }
+
+        public void unlock() { lock.unlockRead(); }
+
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        public String toString() {
+            return super.toString() +
+                "[Read locks = " + lock.getReadLockCount() + "]";
+        }
+    }
+
+    /**
+     * The lock returned by method {@link StripedReadWriteLock#writeLock}.
+     */
+    static final class WriteLock implements Lock {
+        private final StripedReadWriteLock lock;
+
+        WriteLock(StripedReadWriteLock lock) { this.lock = lock; }
+
+        public void lock() { lock.lockWrite(); }
+
+        public void lockInterruptibly() throws InterruptedException {
+            lock.lockWriteInterruptibly();
+        }
+
+        public boolean tryLock() { return lock.tryLockWrite(); }
+
+        public boolean tryLock(long time, TimeUnit unit)
+            throws InterruptedException {
+            return lock.tryLockWrite(unit.toNanos(time));
+        }
+
+        public void unlock() { lock.unlockWrite(); }
+
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        public String toString() {
+            return super.toString() + (lock.isWriteLocked() ?
+                                       "[Locked]" : "[Unlocked]");
+        }
+    }
+
+    /**
+     * A reader count, padded to avoid false sharing with other cells.
+     */
+    @sun.misc.Contended static final class Cell {
+        volatile long value;
+
+        final boolean cas(long cmp, long val) {
+            return U.compareAndSwapLong(this, VALUE, cmp, val);
+        }
+
+        final void add(long x) {
+            long v;
+            while (!cas(v = value, v + x))
+                ;
+        }
+    }
+
+    /**
+     * Returns the probe value for the current thread.
+     * Duplicated from ThreadLocalRandom because of packaging restrictions.
+     */
+    static final int getProbe() {
+        return U.getInt(Thread.currentThread(), PROBE);
+    }
+
+    /**
+     * Pseudo-randomly advances and records the given probe value for the
+     * given thread.
+     * Duplicated from ThreadLocalRandom because of packaging restrictions.
+     */
+    static final int advanceProbe(int probe) {
+        probe ^= probe << 13;   // xorshift
+        probe ^= probe >>> 17;
+        probe ^= probe << 5;
+        U.putInt(Thread.currentThread(), PROBE, probe);
+        return probe;
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long VALUE;
+    private static final long PROBE;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            VALUE = U.objectFieldOffset
+                (Cell.class.getDeclaredField("value"));
+            PROBE = U.objectFieldOffset
+                (Thread.class.getDeclaredField("threadLocalRandomProbe"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,536 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.logging;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.MpscArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <tt>Handler</tt> that hands <tt>LogRecords</tt> to a background thread,
+ * which publishes them to a target <tt>Handler</tt> in batches.
+ * <p>
+ * Logging threads only enqueue records into a bounded lock-free ring
+ * buffer; formatting and I/O happen on the writer thread, so callers do
+ * not wait on the target's lock or on the disk.  The writer publishes
+ * every record available (up to a batch size) and then flushes the
+ * target once, instead of once per record as <tt>FileHandler</tt> and
+ * <tt>ConsoleHandler</tt> do when used directly.
+ * <p>
+ * When the buffer is full the <em>overflow policy</em> decides what
+ * happens to a new record:
+ * <ul>
+ * <li> {@link OverflowPolicy#BLOCK BLOCK}: the logging thread waits for
+ *      space (no record is lost). </li>
+ * <li> {@link OverflowPolicy#DROP DROP}: the record is discarded. </li>
+ * <li> {@link OverflowPolicy#DROP_BELOW_LEVEL DROP_BELOW_LEVEL}: records
+ *      below the <tt>overflowLevel</tt> are discarded, others wait. </li>
+ * </ul>
+ * Discarded records are counted.  The queue depth and drop count of each
+ * open <tt>AsyncHandler</tt> are available from {@link #getQueueDepth},
+ * {@link #getDroppedCount}, and through the {@link LoggingMXBean}.
+ * <p>
+ * Because records are formatted later on another thread, the caller
+ * information of each record (source class and method) is by default
+ * inferred before it is enqueued, and message parameters should not be
+ * mutated after logging.
+ * <p>
+ * <b>Configuration:</b>
+ * By default each <tt>AsyncHandler</tt> is initialized using the following
+ * <tt>LogManager</tt> configuration properties where <tt>&lt;handler-name&gt;</tt>
+ * refers to the fully-qualified class name of the handler.
+ * If properties are not defined
+ * (or have invalid values) then the specified default values are used.
+ * <ul>
+ * <li>   &lt;handler-name&gt;.level
+ *        specifies the level for the <tt>Handler</tt>
+ *        (defaults to <tt>Level.ALL</tt>). </li>
+ * <li>   &lt;handler-name&gt;.filter
+ *        specifies the name of a <tt>Filter</tt> class to use
+ *        (defaults to no <tt>Filter</tt>). </li>
+ * <li>   &lt;handler-name&gt;.target
+ *        specifies the name of the target <tt>Handler </tt> class.
+ *        (no default). </li>
+ * <li>   &lt;handler-name&gt;.capacity
+ *        the number of records the buffer can hold, rounded up to a
+ *        power of two (defaults to 8192). </li>
+ * <li>   &lt;handler-name&gt;.batchSize
+ *        the largest number of records published per flush
+ *        (defaults to 512). </li>
+ * <li>   &lt;handler-name&gt;.overflow
+ *        the overflow policy: <tt>BLOCK</tt>, <tt>DROP</tt> or
+ *        <tt>DROP_BELOW_LEVEL</tt> (defaults to <tt>BLOCK</tt>). </li>
+ * <li>   &lt;handler-name&gt;.overflowLevel
+ *        the level for <tt>DROP_BELOW_LEVEL</tt>
+ *        (defaults to <tt>Level.WARNING</tt>). </li>
+ * <li>   &lt;handler-name&gt;.inferCaller
+ *        whether to infer caller information before enqueueing
+ *        (defaults to <tt>true</tt>). </li>
+ * </ul>
+ * <p>
+ * For example, to write a log file asynchronously:
+ * <ul>
+ * <li>   handlers=java.util.logging.AsyncHandler </li>
+ * <li>   java.util.logging.AsyncHandler.target=java.util.logging.FileHandler </li>
+ * <li>   java.util.logging.AsyncHandler.overflow=DROP_BELOW_LEVEL </li>
+ * </ul>
+ *
+ * @see MemoryHandler
+ * @since 1.8
+ */
+public class AsyncHandler extends Handler {
+
+    /**
+     * What {@link AsyncHandler#publish publish} does when the buffer is
+     * full.
+     *
+     * @since 1.8
+     */
+    public enum OverflowPolicy {
+        /** Wait for space in the buffer. */
+        BLOCK,
+        /** Discard the record. */
+        DROP,
+        /**
+         * Discard the record if its level is below the handler's
+         * overflow level, otherwise wait for space.
+         */
+        DROP_BELOW_LEVEL
+    }
+
+    private final static int DEFAULT_CAPACITY = 8192;
+    private final static int DEFAULT_BATCH_SIZE = 512;
+    /** How often a publisher waiting for space rechecks for close() */
+    private final static long CLOSE_CHECK_MILLIS = 100L;
+
+    /** Open handlers by name, for LoggingMXBean */
+    private static final ConcurrentHashMap<String, AsyncHandler> handlers =
+        new ConcurrentHashMap<>();
+    private static final AtomicInteger handlerNumber = new AtomicInteger();
+
+    /** Enqueued after the last record by close() */
+    private static final LogRecord CLOSE = new LogRecord(Level.OFF, "");
+
+    private final String name;
+    private final Handler target;
+    private final MpscArrayBlockingQueue<LogRecord> queue;
+    private final int batchSize;
+    private volatile OverflowPolicy overflowPolicy;
+    private volatile Level overflowLevel;
+    private volatile boolean inferCaller;
+    private volatile boolean closed;
+
+    private final LongAdder dropped = new LongAdder();
+    /** Number of records accepted into the queue */
+    private final AtomicLong enqueued = new AtomicLong();
+    /** Number of records taken off the queue and handed to the target */
+    private volatile long completed;
+
+    /** Used by flush() to wait for the writer */
+    private final Object flushLock = new Object();
+    private volatile int flushWaiters;
+
+    private final Thread writer;
+
+    // Private method to configure an AsyncHandler from LogManager
+    // properties and/or default values as specified in the class
+    // javadoc.  Returns the configured capacity.
+    private int configure(LogManager manager, String cname) {
+        setLevel(manager.getLevelProperty(cname + ".level", Level.ALL));
+        setFilter(manager.getFilterProperty(cname + ".filter", null));
+        overflowLevel = manager.getLevelProperty(cname + ".overflowLevel",
+                                                 Level.WARNING);
+        inferCaller = manager.getBooleanProperty(cname + ".inferCaller", true);
+        OverflowPolicy policy = OverflowPolicy.BLOCK;
+        String val = manager.getProperty(cname + ".overflow");
+        if (val != null) {
+            try {
+                policy = OverflowPolicy.valueOf(val.trim());
+            } catch (IllegalArgumentException ex) {
+                // use default
+            }
+        }
+        overflowPolicy = policy;
+        int capacity = manager.getIntProperty(cname + ".capacity",
+                                              DEFAULT_CAPACITY);
+        return (capacity <= 0) ? DEFAULT_CAPACITY : capacity;
+    }
+
+    /**
+     * Create an <tt>AsyncHandler</tt> and configure it based on
+     * <tt>LogManager</tt> configuration properties.
+     *
+     * @throws RuntimeException if the target handler is not specified or
+     *         cannot be loaded
+     */
+    public AsyncHandler() {
+        LogManager manager = LogManager.getLogManager();
+        String cname = getClass().getName();
+        sealed = false;
+        int capacity = configure(manager, cname);
+        sealed = true;
+
+        int size = manager.getIntProperty(cname + ".batchSize",
+                                          DEFAULT_BATCH_SIZE);
+        this.batchSize = (size <= 0) ? DEFAULT_BATCH_SIZE : size;
+        String targetName = manager.getProperty(cname + ".target");
+        if (targetName == null) {
+            throw new RuntimeException("The handler " + cname
+                    + " does not specify a target");
+        }
+        try {
+            Class<?> clz = ClassLoader.getSystemClassLoader().loadClass(targetName);
+            target = (Handler) clz.newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException("AsyncHandler can't load handler target \"" + targetName + "\"" , e);
+        }
+        this.queue = new MpscArrayBlockingQueue<>(capacity);
+        this.name = "AsyncHandler-" + handlerNumber.incrementAndGet();
+        this.writer = startWriter();
+    }
+
+    /**
+     * Create an <tt>AsyncHandler</tt>.
+     * <p>
+     * The <tt>AsyncHandler</tt> is configured based on <tt>LogManager</tt>
+     * properties (or their default values) except that the given target,
+     * capacity and overflow policy are used.
+     *
+     * @param target    the Handler to which to publish output.
+     * @param capacity  the number of records to buffer (must be greater
+     *                  than zero; rounded up to a power of two)
+     * @param overflowPolicy  what to do when the buffer is full
+     *
+     * @throws IllegalArgumentException if {@code capacity <= 0}
+     * @throws NullPointerException if {@code target} or
+     *         {@code overflowPolicy} is null
+     */
+    public AsyncHandler(Handler target, int capacity,
+                        OverflowPolicy overflowPolicy) {
+        if (target == null || overflowPolicy == null) {
+            throw new NullPointerException();
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        LogManager manager = LogManager.getLogManager();
+        String cname = getClass().getName();
+        sealed = false;
+        configure(manager, cname);
+        sealed = true;
+        int size = manager.getIntProperty(cname + ".batchSize",
+                                          DEFAULT_BATCH_SIZE);
+        this.batchSize = (size <= 0) ? DEFAULT_BATCH_SIZE : size;
+        this.target = target;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new MpscArrayBlockingQueue<>(capacity);
+        this.name = "AsyncHandler-" + handlerNumber.incrementAndGet();
+        this.writer = startWriter();
+    }
+
+    private Thread startWriter() {
+        handlers.put(name, this);
+        return AccessController.doPrivileged(new PrivilegedAction<Thread>() {
+            @Override
+            public Thread run() {
+                Thread t = new Thread(AsyncHandler.this::drainLoop, name);
+                t.setDaemon(true);
+                t.setContextClassLoader(null);
+                t.start();
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Enqueue a <tt>LogRecord</tt> for publication by the writer thread.
+     * <p>
+     * If there is a <tt>Filter</tt>, its <tt>isLoggable</tt>
+     * method is called to check if the given log record is loggable.
+     * If not we return.  Otherwise the record is added to the buffer,
+     * applying the overflow policy if the buffer is full.
+     *
+     * @param  record  description of the log event. A null record is
+     *                 silently ignored and is not published
+     */
+    @Override
+    public void publish(LogRecord record) {
+        if (record == null || closed || !isLoggable(record)) {
+            return;
+        }
+        if (inferCaller) {
+            // 在调用线程上推断调用者，后台线程上的栈已经不对了
+            record.getSourceClassName();
+        }
+        boolean added;
+        if (queue.offer(record)) {
+            added = true;
+        } else {
+            OverflowPolicy policy = overflowPolicy;
+            if (policy == OverflowPolicy.BLOCK ||
+                (policy == OverflowPolicy.DROP_BELOW_LEVEL &&
+                 record.getLevel().intValue() >= overflowLevel.intValue())) {
+                added = enqueueBlocking(record);
+            } else {
+                added = false;
+            }
+        }
+        if (added) {
+            enqueued.incrementAndGet();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private boolean enqueueBlocking(LogRecord record) {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                if (closed) {
+                    return false;
+                }
+                try {
+                    // 定时等待，close() 之后仍在等待的发布者才能看到 closed
+                    if (queue.offer(record, CLOSE_CHECK_MILLIS,
+                                    TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException ie) {
+                    // logging must not swallow the caller's interrupt
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     * Writer thread: take a record, drain whatever else is available up
+     * to the batch size, publish the batch and flush once.
+     */
+    private void drainLoop() {
+        final List<LogRecord> batch = new ArrayList<>(batchSize);
+        boolean done = false;
+        while (!done) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException ie) {
+                continue;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            int n = batch.size();
+            int end = batch.indexOf(CLOSE);
+            if (end >= 0) {
+                done = true;
+                batch.subList(end, n).clear();
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    target.publishAll(batch);
+                }
+            } catch (Throwable ex) {
+                // 写线程不能退出，否则 BLOCK 策略下的发布者会永远阻塞
+                reportError(null, ex instanceof Exception ? (Exception) ex
+                                : new Exception(ex), ErrorManager.WRITE_FAILURE);
+            }
+            batch.clear();
+            completed += n;
+            if (flushWaiters != 0) {
+                synchronized (flushLock) {
+                    flushLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until every record enqueued before this call has been handed
+     * to the target, then flushes the target <tt>Handler</tt>.
+     */
+    @Override
+    public void flush() {
+        long goal = enqueued.get();
+        if (completed < goal && writer.isAlive()
+            && Thread.currentThread() != writer) {
+            synchronized (flushLock) {
+                flushWaiters++;
+                try {
+                    while (completed < goal && writer.isAlive()) {
+                        flushLock.wait(10L);
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    flushWaiters--;
+                }
+            }
+        }
+        target.flush();
+    }
+
+    /**
+     * Close the <tt>Handler</tt> and free all associated resources.
+     * Records already in the buffer are published first.  This will also
+     * close the target <tt>Handler</tt>.
+     *
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     */
+    @Override
+    public void close() throws SecurityException {
+        checkPermission();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        handlers.remove(name, this);
+        boolean interrupted = false;
+        for (;;) {
+            try {
+                queue.put(CLOSE);
+                writer.join();
+                break;
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        // make room for publishers still waiting on a full buffer; what
+        // they add now is discarded, and the others give up once they
+        // see closed
+        queue.clear();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        target.close();
+        setLevel(Level.OFF);
+    }
+
+    /**
+     * Return the name of this handler, as used by {@link LoggingMXBean}.
+     *
+     * @return the name of this handler
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the target <tt>Handler</tt>.
+     *
+     * @return the handler records are published to
+     */
+    public Handler getTarget() {
+        return target;
+    }
+
+    /**
+     * Return the number of records waiting to be published.
+     *
+     * @return the current queue depth
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Return the number of records discarded because the buffer was full.
+     *
+     * @return the number of dropped records
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Set the overflow policy.
+     *
+     * @param policy the new overflow policy
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     */
+    public void setOverflowPolicy(OverflowPolicy policy) throws SecurityException {
+        if (policy == null) {
+            throw new NullPointerException();
+        }
+        checkPermission();
+        overflowPolicy = policy;
+    }
+
+    /**
+     * Get the overflow policy.
+     *
+     * @return the overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Set the level at or above which records wait for space instead of
+     * being dropped under {@link OverflowPolicy#DROP_BELOW_LEVEL}.
+     *
+     * @param newLevel the new overflow level
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     */
+    public void setOverflowLevel(Level newLevel) throws SecurityException {
+        if (newLevel == null) {
+            throw new NullPointerException();
+        }
+        checkPermission();
+        overflowLevel = newLevel;
+    }
+
+    /**
+     * Get the overflow level.
+     *
+     * @return the overflow level
+     */
+    public Level getOverflowLevel() {
+        return overflowLevel;
+    }
+
+    // Support for Logging (LoggingMXBean)
+
+    static List<String> getHandlerNames() {
+        return new ArrayList<>(handlers.keySet());
+    }
+
+    static AsyncHandler getHandler(String name) {
+        return (name == null) ? null : handlers.get(name);
+    }
+}
@@ -117,6 +117,19 @@ public class ConsoleHandler extends StreamHandler {
         flush();
     }
 
+    @Override
+    void publishAll(java.util.List<LogRecord> records) {
+        if (getClass() != ConsoleHandler.class) {
+            // 子类可能重写了 publish，不能绕过它
+            super.publishAll(records);
+            return;
+        }
+        for (int i = 0, n = records.size(); i < n; i++) {
+            super.publish(records.get(i));
+        }
+        flush();
+    }
+
     /**
      * Override <tt>StreamHandler.close</tt> to do a flush but not
      * to close the output stream.  That is, we do <b>not</b>
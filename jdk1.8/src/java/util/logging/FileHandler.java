@@ -681,6 +681,33 @@ public class FileHandler extends StreamHandler {
         }
         super.publish(record);
         flush();
+        rotateIfFull();
+    }
+
+    /*
+     * Writes a batch of records, rotating as needed, with one flush at
+     * the end instead of one per record.
+     */
+    @Override
+    synchronized void publishAll(java.util.List<LogRecord> records) {
+        if (getClass() != FileHandler.class) {
+            // 子类可能重写了 publish，不能绕过它
+            super.publishAll(records);
+            return;
+        }
+        for (int i = 0, n = records.size(); i < n; i++) {
+            LogRecord record = records.get(i);
+            if (!isLoggable(record)) {
+                continue;
+            }
+            super.publish(record);
+            // rotate() 会关闭当前文件（包括 flush）
+            rotateIfFull();
+        }
+        flush();
+    }
+
+    private void rotateIfFull() {
         if (limit > 0 && meter.written >= limit) {
             // We performed access checks in the "init" method to make sure
             // we are only initialized from trusted code.  So we assume
@@ -66,6 +66,12 @@ public abstract class Handler {
     // is true, we access check updates to the class.
     boolean sealed = true;
 
+    // Bumped whenever a handler's level changes, or a logger's handlers,
+    // parent or useParentHandlers change; invalidates the handler level
+    // cached by Logger.isPublishable.
+    static final java.util.concurrent.atomic.AtomicInteger configVersion =
+        new java.util.concurrent.atomic.AtomicInteger();
+
     /**
      * Default constructor.  The resulting <tt>Handler</tt> has a log
      * level of <tt>Level.ALL</tt>, no <tt>Formatter</tt>, and no
@@ -94,6 +100,21 @@ public abstract class Handler {
      */
     public abstract void flush();
 
+    /**
+     * Publishes a batch of records and then flushes once.  Called by
+     * {@link AsyncHandler} from its writer thread; handlers that flush
+     * after every record in {@code publish} override this so that a batch
+     * costs a single flush.
+     *
+     * 批量发布，整批只 flush 一次
+     */
+    void publishAll(java.util.List<LogRecord> records) {
+        for (int i = 0, n = records.size(); i < n; i++) {
+            publish(records.get(i));
+        }
+        flush();
+    }
+
     /**
      * Close the <tt>Handler</tt> and free all associated resources.
      * <p>
@@ -264,6 +285,7 @@ public abstract class Handler {
         }
         checkPermission();
         logLevel = newLevel;
+        configVersion.incrementAndGet();
     }
 
     /**
@@ -1667,6 +1667,11 @@ public class LogManager {
             initializeGlobalHandlers();
             return super.accessCheckedHandlers();
         }
+
+        @Override
+        boolean elidesUnhandledRecords() {
+            return true;
+        }
     }
 
 
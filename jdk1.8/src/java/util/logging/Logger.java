@@ -276,6 +276,11 @@ public class Logger {
     private ArrayList<LogManager.LoggerWeakRef> kids;   // WeakReferences to loggers that have us as parent
     private volatile Level levelObject;
     private volatile int levelValue;  // current effective level value
+    // Lowest level accepted by a handler reachable from this logger, in the
+    // low 32 bits, tagged in the high 32 bits with the Handler.configVersion
+    // it was computed at; Integer.MIN_VALUE if some handler may accept any
+    // level.  See isPublishable.
+    private volatile long handlerFloor = Long.MIN_VALUE;
     private WeakReference<ClassLoader> callersClassLoaderRef;
     private final boolean isSystemLogger;
 
@@ -781,7 +786,7 @@ public class Logger {
      * @param   msg     The string message (or a key in the message catalog)
      */
     public void log(Level level, String msg) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -802,7 +807,7 @@ public class Logger {
      *                        desired log message
      */
     public void log(Level level, Supplier<String> msgSupplier) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msgSupplier.get());
@@ -821,7 +826,7 @@ public class Logger {
      * @param   param1  parameter to the message
      */
     public void log(Level level, String msg, Object param1) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -842,7 +847,7 @@ public class Logger {
      * @param   params  array of parameters to the message
      */
     public void log(Level level, String msg, Object params[]) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -867,7 +872,7 @@ public class Logger {
      * @param   thrown  Throwable associated with log message.
      */
     public void log(Level level, String msg, Throwable thrown) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -895,7 +900,7 @@ public class Logger {
      * @since   1.8
      */
     public void log(Level level, Throwable thrown, Supplier<String> msgSupplier) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msgSupplier.get());
@@ -921,7 +926,7 @@ public class Logger {
      * @param   msg     The string message (or a key in the message catalog)
      */
     public void logp(Level level, String sourceClass, String sourceMethod, String msg) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -948,7 +953,7 @@ public class Logger {
      */
     public void logp(Level level, String sourceClass, String sourceMethod,
                      Supplier<String> msgSupplier) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msgSupplier.get());
@@ -973,7 +978,7 @@ public class Logger {
      */
     public void logp(Level level, String sourceClass, String sourceMethod,
                                                 String msg, Object param1) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -1000,7 +1005,7 @@ public class Logger {
      */
     public void logp(Level level, String sourceClass, String sourceMethod,
                                                 String msg, Object params[]) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -1031,7 +1036,7 @@ public class Logger {
      */
     public void logp(Level level, String sourceClass, String sourceMethod,
                      String msg, Throwable thrown) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -1065,7 +1070,7 @@ public class Logger {
      */
     public void logp(Level level, String sourceClass, String sourceMethod,
                      Throwable thrown, Supplier<String> msgSupplier) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msgSupplier.get());
@@ -1127,7 +1132,7 @@ public class Logger {
     @Deprecated
     public void logrb(Level level, String sourceClass, String sourceMethod,
                                 String bundleName, String msg) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -1162,7 +1167,7 @@ public class Logger {
     @Deprecated
     public void logrb(Level level, String sourceClass, String sourceMethod,
                                 String bundleName, String msg, Object param1) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -1199,7 +1204,7 @@ public class Logger {
     @Deprecated
     public void logrb(Level level, String sourceClass, String sourceMethod,
                                 String bundleName, String msg, Object params[]) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -1232,7 +1237,7 @@ public class Logger {
      */
     public void logrb(Level level, String sourceClass, String sourceMethod,
                       ResourceBundle bundle, String msg, Object... params) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -1275,7 +1280,7 @@ public class Logger {
     @Deprecated
     public void logrb(Level level, String sourceClass, String sourceMethod,
                                         String bundleName, String msg, Throwable thrown) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -1313,7 +1318,7 @@ public class Logger {
      */
     public void logrb(Level level, String sourceClass, String sourceMethod,
                       ResourceBundle bundle, String msg, Throwable thrown) {
-        if (!isLoggable(level)) {
+        if (!isPublishable(level)) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -1376,7 +1381,7 @@ public class Logger {
            logp(Level.FINER, sourceClass, sourceMethod, msg);
            return;
         }
-        if (!isLoggable(Level.FINER)) return;
+        if (!isPublishable(Level.FINER)) return;
         for (int i = 0; i < params.length; i++) {
             msg = msg + " {" + i + "}";
         }
@@ -1436,7 +1441,7 @@ public class Logger {
      * @param   thrown  The Throwable that is being thrown.
      */
     public void throwing(String sourceClass, String sourceMethod, Throwable thrown) {
-        if (!isLoggable(Level.FINER)) {
+        if (!isPublishable(Level.FINER)) {
             return;
         }
         LogRecord lr = new LogRecord(Level.FINER, "THROW");
@@ -1716,12 +1721,104 @@ public class Logger {
      * @return  true if the given message level is currently being logged.
      */
     public boolean isLoggable(Level level) {
+        // 只读一次 volatile
+        final int levelValue = this.levelValue;
         if (level.intValue() < levelValue || levelValue == offValue) {
             return false;
         }
         return true;
     }
 
+    /*
+     * Level check used by the convenience logging methods before they
+     * create a LogRecord.  In addition to isLoggable, it returns false
+     * when no handler that a record logged here would reach accepts the
+     * level, so a record every handler would discard is never built: no
+     * allocation, caller inference or resource bundle lookup happens.
+     * The handlers' lowest level is cached per logger and recomputed
+     * only after the handler configuration changes.
+     *
+     * Records are only elided when nothing but handler levels could
+     * look at them: subclasses may override isLoggable or log(LogRecord)
+     * to see every record, a Filter on this logger must see every
+     * loggable record, and a handler of an unknown class may accept or
+     * inspect records below its level (see isLevelGated).  In those
+     * cases only isLoggable is consulted.
+     */
+    private boolean isPublishable(Level level) {
+        if (filter != null || !elidesUnhandledRecords()) {
+            return isLoggable(level);
+        }
+        final int v = level.intValue();
+        final int levelValue = this.levelValue;
+        if (v < levelValue || levelValue == offValue) {
+            return false;
+        }
+        final int config = Handler.configVersion.get();
+        long cached = handlerFloor;
+        int floor;
+        if ((int)(cached >>> 32) == config) {
+            floor = (int)cached;
+        } else {
+            floor = computeHandlerFloor();
+            handlerFloor = ((long)config << 32) | (floor & 0xFFFFFFFFL);
+        }
+        return v >= floor && floor != offValue;
+    }
+
+    // Walks the handlers exactly as log(LogRecord) does and returns the
+    // lowest handler level, or offValue if there is no accepting handler.
+    // Returns Integer.MIN_VALUE, so that no record is elided, if any
+    // handler is not level gated.
+    private int computeHandlerFloor() {
+        int floor = offValue;
+        Logger logger = this;
+        while (logger != null) {
+            final Handler[] loggerHandlers = isSystemLogger
+                ? logger.accessCheckedHandlers()
+                : logger.getHandlers();
+            for (Handler handler : loggerHandlers) {
+                if (!isLevelGated(handler)) {
+                    return Integer.MIN_VALUE;
+                }
+                int hv = handler.getLevel().intValue();
+                if (hv < floor) {
+                    floor = hv;
+                }
+            }
+            final boolean useParentHdls = isSystemLogger
+                ? logger.useParentHandlers
+                : logger.getUseParentHandlers();
+            if (!useParentHdls) {
+                break;
+            }
+            logger = isSystemLogger ? logger.parent : logger.getParent();
+        }
+        return floor;
+    }
+
+    // Whether the handler is known to ignore every record below its level:
+    // exactly one of the JDK handlers, whose publish returns at once
+    // unless isLoggable, which checks the level before the filter.  A
+    // subclass may override isLoggable or publish without a level check.
+    private static boolean isLevelGated(Handler handler) {
+        Class<?> c = handler.getClass();
+        return c == ConsoleHandler.class || c == FileHandler.class
+            || c == StreamHandler.class || c == SocketHandler.class
+            || c == MemoryHandler.class || c == AsyncHandler.class;
+    }
+
+    // Whether isPublishable may skip records no handler accepts.  Only
+    // for plain Loggers (and the root logger, which overrides this).
+    boolean elidesUnhandledRecords() {
+        return getClass() == Logger.class;
+    }
+
+    // Invalidates the cached handler floors of all loggers.
+    static void handlerConfigChanged() {
+        Handler.configVersion.incrementAndGet();
+    }
+
     /**
      * Get the name for this logger.
      * @return logger name.  Will be null for anonymous Loggers.
@@ -1747,6 +1844,7 @@ public class Logger {
         handler.getClass();
         checkPermission();
         handlers.add(handler);
+        handlerConfigChanged();
     }
 
     /**
@@ -1764,7 +1862,9 @@ public class Logger {
         if (handler == null) {
             return;
         }
-        handlers.remove(handler);
+        if (handlers.remove(handler)) {
+            handlerConfigChanged();
+        }
     }
 
     /**
@@ -1797,6 +1897,7 @@ public class Logger {
     public void setUseParentHandlers(boolean useParentHandlers) {
         checkPermission();
         this.useParentHandlers = useParentHandlers;
+        handlerConfigChanged();
     }
 
     /**
@@ -2066,6 +2167,7 @@ public class Logger {
 
             // Set our new parent.
             parent = newParent;
+            handlerConfigChanged();
             if (parent.kids == null) {
                 parent.kids = new ArrayList<>(2);
             }
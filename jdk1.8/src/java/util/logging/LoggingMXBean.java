@@ -136,4 +136,58 @@ public interface LoggingMXBean {
      *         is returned.
      */
     public String getParentLoggerName(String loggerName);
+
+    /**
+     * Returns the names of the currently open {@link AsyncHandler}s.
+     *
+     * @implSpec The default implementation returns the names of the
+     * handlers open in this JVM, so that every bean implementing this
+     * interface, including the platform logging bean, reports them.
+     *
+     * @return A list of <tt>String</tt> each of which is the
+     *         {@linkplain AsyncHandler#getName name} of an open
+     *         <tt>AsyncHandler</tt>.
+     * @since 1.8
+     */
+    public default java.util.List<String> getAsyncHandlerNames() {
+        return AsyncHandler.getHandlerNames();
+    }
+
+    /**
+     * Returns the number of records waiting to be published by the
+     * specified {@link AsyncHandler}.
+     *
+     * @implSpec The default implementation looks the handler up by name
+     * and returns its {@link AsyncHandler#getQueueDepth queue depth}.
+     *
+     * @param handlerName The name of an <tt>AsyncHandler</tt>.
+     *
+     * @return the queue depth of the handler, or {@code -1} if no open
+     *         handler has the given name.
+     * @see AsyncHandler#getQueueDepth
+     * @since 1.8
+     */
+    public default int getAsyncHandlerQueueDepth(String handlerName) {
+        AsyncHandler h = AsyncHandler.getHandler(handlerName);
+        return (h == null) ? -1 : h.getQueueDepth();
+    }
+
+    /**
+     * Returns the number of records the specified {@link AsyncHandler}
+     * has discarded because its buffer was full.
+     *
+     * @implSpec The default implementation looks the handler up by name
+     * and returns its {@link AsyncHandler#getDroppedCount drop count}.
+     *
+     * @param handlerName The name of an <tt>AsyncHandler</tt>.
+     *
+     * @return the drop count of the handler, or {@code -1} if no open
+     *         handler has the given name.
+     * @see AsyncHandler#getDroppedCount
+     * @since 1.8
+     */
+    public default long getAsyncHandlerDroppedCount(String handlerName) {
+        AsyncHandler h = AsyncHandler.getHandler(handlerName);
+        return (h == null) ? -1L : h.getDroppedCount();
+    }
 }
@@ -64,6 +64,12 @@ import java.util.function.Supplier;
  * segment.  In all cases, the source data is not consumed until a terminal
  * operation begins.
  *
+ * <p>Sequential primitive pipelines consisting only of a few {@code map} and
+ * {@code filter} operations may instead be evaluated by a <em>fused</em>
+ * sink, which receives the source elements directly and applies those
+ * operations' functions itself, avoiding the {@code Sink} chain and terminal
+ * operation objects for the short pipelines where their creation dominates.
+ *
  * @param <E_IN>  type of input elements
  * @param <E_OUT> type of output elements
  * @param <S> type of the subclass implementing {@code BaseStream}
@@ -74,6 +80,17 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     private static final String MSG_STREAM_LINKED = "stream has already been operated upon or closed";
     private static final String MSG_CONSUMED = "source already consumed or closed";
 
+    /** Kinds of fused form of an operation, see {@link #opFusedKind} */
+    static final int FUSED_NONE = 0;
+    static final int FUSED_MAP = 1;
+    static final int FUSED_FILTER = 2;
+
+    /**
+     * The largest number of intermediate stages that a fused sink applies
+     * itself; longer pipelines are evaluated through {@code Sink} chains.
+     */
+    static final int MAX_FUSED_DEPTH = 2;
+
     /**
      * Backlink to the head of the pipeline chain (self if this is the source
      * stage).
@@ -291,6 +308,53 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         }
     }
 
+    // Fused evaluation
+
+    /**
+     * Returns whether this pipeline can be evaluated by {@link
+     * #evaluateFused}: it is sequential, not yet linked or consumed, and
+     * has at most {@link #MAX_FUSED_DEPTH} intermediate stages, each of
+     * which has a fused form (see {@link #opFusedKind}).  Such a pipeline
+     * has the same shape at every stage.
+     *
+     * @return {@code true} if this pipeline can be evaluated fused
+     */
+    final boolean canEvaluateFused() {
+        if (linkedOrConsumed || isParallel() || depth > MAX_FUSED_DEPTH)
+            return false;
+        for ( @SuppressWarnings("rawtypes") AbstractPipeline p = this; p.depth > 0; p = p.previousStage) {
+            if (p.opFusedKind() == FUSED_NONE)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates this pipeline by passing every source element directly to
+     * the given fused sink, which applies the intermediate stages'
+     * functions itself.  No {@code Sink} chain or terminal operation is
+     * created.  Call only if {@link #canEvaluateFused} returned
+     * {@code true}.  The pipeline is consumed.
+     *
+     * @param sink the fused sink to receive the source elements
+     */
+    final void evaluateFused(FusedOps.FusedSink sink) {
+        assert canEvaluateFused();
+        linkedOrConsumed = true;
+
+        if (depth > 0) {
+            @SuppressWarnings("rawtypes")
+            AbstractPipeline first = (depth == 1) ? this : previousStage;
+            sink.kind1 = first.opFusedKind();
+            sink.fn1 = first.opFusedFunction();
+            if (depth == 2) {
+                sink.kind2 = opFusedKind();
+                sink.fn2 = opFusedFunction();
+            }
+        }
+        sink.copyFrom(sourceSpliterator(0));
+    }
+
     // BaseStream
 
     @Override
@@ -688,6 +752,36 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     abstract Sink<E_IN> opWrapSink(int flags, Sink<E_OUT> sink);
 
+    /**
+     * Returns the kind of the fused form of this operation: {@link
+     * #FUSED_MAP} if it replaces each element with the result of the
+     * shape-specific unary operator returned by {@link
+     * #opFusedFunction}, {@link #FUSED_FILTER} if it retains only the
+     * elements matching the shape-specific predicate returned by that
+     * method, or {@link #FUSED_NONE} if it has no fused form.  Only
+     * stateless operations whose input and output shapes are the same
+     * may have a fused form.
+     *
+     * @implSpec The default implementation returns {@link #FUSED_NONE}.
+     *
+     * @return the kind of the fused form of this operation
+     */
+    int opFusedKind() {
+        return FUSED_NONE;
+    }
+
+    /**
+     * Returns the function of the fused form of this operation, as
+     * described by {@link #opFusedKind}.
+     *
+     * @implSpec The default implementation returns {@code null}.
+     *
+     * @return the function of the fused form, or {@code null}
+     */
+    Object opFusedFunction() {
+        return null;
+    }
+
     /**
      * Performs a parallel evaluation of the operation using the specified
      * {@code PipelineHelper} which describes the upstream intermediate
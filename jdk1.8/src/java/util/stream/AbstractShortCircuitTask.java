@@ -26,6 +26,9 @@ package java.util.stream;
 
 import java.util.Spliterator;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
 
 /**
  * Abstract class for fork-join tasks used to implement short-circuiting
@@ -43,6 +46,13 @@ import java.util.concurrent.atomic.AtomicReference;
 abstract class AbstractShortCircuitTask<P_IN, P_OUT, R,
                                         K extends AbstractShortCircuitTask<P_IN, P_OUT, R, K>>
         extends AbstractTask<P_IN, P_OUT, R, K> {
+    /**
+     * The number of cancellation checks made by a leaf computation between
+     * polls of {@link #sharedResult} and of the canceled state of the task and
+     * its parents.  Must be a power of 2.
+     */
+    static final int LEAF_POLL_INTERVAL = 1 << 6;
+
     /**
      * The result for this computation; this is shared among all tasks and set
      * exactly once
@@ -142,8 +152,9 @@ abstract class AbstractShortCircuitTask<P_IN, P_OUT, R,
      * Declares that a globally valid result has been found.  If another task has
      * not already found the answer, the result is installed in
      * {@code sharedResult}.  The {@code compute()} method will check
-     * {@code sharedResult} before proceeding with computation, so this causes
-     * the computation to terminate early.
+     * {@code sharedResult} before proceeding with computation, and leaves
+     * evaluated with {@link #copyIntoLeaf} poll it while traversing, so this
+     * causes the computation to terminate early.
      *
      * @param result the result found
      */
@@ -152,6 +163,42 @@ abstract class AbstractShortCircuitTask<P_IN, P_OUT, R,
             sharedResult.compareAndSet(null, result);
     }
 
+    /**
+     * Copies the elements of this task's spliterator, through the stages of
+     * the pipeline, into the given sink, for the leaf computation of this
+     * task.  As for {@link #copyIntoLeaf(Sink, long)} with no limit.
+     *
+     * @param <S> the type of the sink
+     * @param sink the sink to receive the results
+     * @return the sink
+     */
+    protected final <S extends Sink<P_OUT>> S copyIntoLeaf(S sink) {
+        return copyIntoLeaf(sink, Long.MAX_VALUE);
+    }
+
+    /**
+     * Copies the elements of this task's spliterator, through the stages of
+     * the pipeline, into the given sink, for the leaf computation of this
+     * task.  Traversal stops once the sink requests cancellation or has
+     * received {@code limit} elements, and also once the computation of this
+     * leaf is no longer needed: when a shared result has been found or this
+     * task or one of its parents has been canceled.  That is polled every
+     * {@link #LEAF_POLL_INTERVAL} elements, so a leaf stops shortly after
+     * another task makes its result irrelevant rather than traversing all of
+     * its spliterator.
+     *
+     * @param <S> the type of the sink
+     * @param sink the sink to receive the results
+     * @param limit the maximum number of elements the sink is to receive, or
+     *        {@code Long.MAX_VALUE} if there is no limit
+     * @return the sink
+     */
+    protected final <S extends Sink<P_OUT>> S copyIntoLeaf(S sink, long limit) {
+        helper.copyIntoWithCancel(helper.wrapSink(new LeafSink<>(this, sink, limit)),
+                                  spliterator);
+        return sink;
+    }
+
     /**
      * Sets a local result for this task.  If this task is the root, set the
      * shared result instead (if not already set).
@@ -231,4 +278,82 @@ abstract class AbstractShortCircuitTask<P_IN, P_OUT, R,
             }
         }
     }
+
+    /**
+     * A sink, at the end of the pipeline stages of a leaf computation, that
+     * passes up to a limit of elements to the sink of the leaf, and requests
+     * cancellation when that sink does, when the limit is reached, or when
+     * the computation of the task is found to be no longer needed.
+     *
+     * <p>The sink implements the primitive consumer interfaces, as well as
+     * {@code Sink}, so that it can directly receive the elements of a
+     * primitive source when the pipeline has no intermediate stages.
+     *
+     * @param <T> type of elements
+     */
+    static final class LeafSink<T>
+            implements Sink<T>, IntConsumer, LongConsumer, DoubleConsumer {
+        private final AbstractShortCircuitTask<?, T, ?, ?> task;
+        private final Sink<T> downstream;
+        private long m;
+        private int polls;
+
+        LeafSink(AbstractShortCircuitTask<?, T, ?, ?> task, Sink<T> downstream, long limit) {
+            this.task = task;
+            this.downstream = downstream;
+            this.m = limit;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(size > m ? m : size);
+        }
+
+        @Override
+        public void end() {
+            downstream.end();
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            if (m == 0 || downstream.cancellationRequested())
+                return true;
+            // 每 LEAF_POLL_INTERVAL 次才检查共享结果及各祖先任务的取消标志
+            if ((++polls & (LEAF_POLL_INTERVAL - 1)) != 0)
+                return false;
+            return task.sharedResult.get() != null || task.taskCanceled();
+        }
+
+        @Override
+        public void accept(T t) {
+            if (m > 0) {
+                m--;
+                downstream.accept(t);
+            }
+        }
+
+        @Override
+        public void accept(int value) {
+            if (m > 0) {
+                m--;
+                downstream.accept(value);
+            }
+        }
+
+        @Override
+        public void accept(long value) {
+            if (m > 0) {
+                m--;
+                downstream.accept(value);
+            }
+        }
+
+        @Override
+        public void accept(double value) {
+            if (m > 0) {
+                m--;
+                downstream.accept(value);
+            }
+        }
+    }
 }
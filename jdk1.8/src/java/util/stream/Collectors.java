@@ -1091,6 +1091,125 @@ public final class Collectors {
         }
     }
 
+    /**
+     * Returns a {@code Collector} that groups input elements of type {@code T}
+     * according to a classification function, and counts the elements in
+     * each group, returning the results in a {@code Map}.
+     *
+     * <p>The result is the same as that of {@code groupingBy(classifier,
+     * counting())}, but the counts are accumulated as primitive {@code long}
+     * values in an open-addressed table, and only boxed once per key when
+     * the {@code Map} is created.  In a parallel reduction each subtask
+     * accumulates into its own table, and tables are merged pairwise as the
+     * subtasks complete.  This makes the collector considerably cheaper than
+     * {@code groupingBy} or {@code groupingByConcurrent} with a counting
+     * downstream collector when there are many elements per key.
+     *
+     * <p>For example, to count the people in each city:
+     * <pre>{@code
+     *     Map<City, Long> populationByCity
+     *         = people.stream().collect(groupingByCounting(Person::getCity));
+     * }</pre>
+     *
+     * <p>There are no guarantees on the type, mutability, serializability,
+     * or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param classifier the classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the counting group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #counting()
+     */
+    public static <T, K>
+    Collector<T, ?, Map<K, Long>> groupingByCounting(Function<? super T, ? extends K> classifier) {
+        Objects.requireNonNull(classifier);
+        return new CollectorImpl<>(
+                () -> new LongGroupTable<K>(LongGroupTable.COUNT),
+                (a, t) -> a.add(classifier.apply(t), 0L),
+                LongGroupTable::merge,
+                a -> a.toMap(LongGroupTable.COUNT),
+                CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} that groups input elements of type {@code T}
+     * according to a classification function, and sums a long-valued function
+     * applied to the elements of each group, returning the results in a
+     * {@code Map}.
+     *
+     * <p>The result is the same as that of {@code groupingBy(classifier,
+     * summingLong(mapper))}, but computed as described for {@link
+     * #groupingByCounting}: into a table of primitive sums per key, one table
+     * per subtask in a parallel reduction.  As for {@code summingLong}, the
+     * sums are not checked for overflow.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param classifier the classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} implementing the summing group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #summingLong(ToLongFunction)
+     */
+    public static <T, K>
+    Collector<T, ?, Map<K, Long>> groupingBySummingLong(Function<? super T, ? extends K> classifier,
+                                                        ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(classifier);
+        Objects.requireNonNull(mapper);
+        return new CollectorImpl<>(
+                () -> new LongGroupTable<K>(LongGroupTable.SUM),
+                (a, t) -> a.add(classifier.apply(t), mapper.applyAsLong(t)),
+                LongGroupTable::merge,
+                a -> a.toMap(LongGroupTable.SUM),
+                CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} that groups input elements of type {@code T}
+     * according to a classification function, and computes the count, sum,
+     * minimum, maximum and average of a long-valued function applied to the
+     * elements of each group, returning the results in a {@code Map}.
+     *
+     * <p>The result is the same as that of {@code groupingBy(classifier,
+     * summarizingLong(mapper))}, but the statistics of each key are kept as
+     * four primitive values in a table, as described for {@link
+     * #groupingByCounting}, and a {@code LongSummaryStatistics} is only
+     * created for each key of the result.
+     *
+     * <p>For example, to compute the minimum and maximum age of the people
+     * in each city:
+     * <pre>{@code
+     *     Map<City, LongSummaryStatistics> agesByCity
+     *         = people.stream().collect(groupingBySummarizingLong(Person::getCity,
+     *                                                             Person::getAge));
+     * }</pre>
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param classifier the classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be summarized
+     * @return a {@code Collector} implementing the summarizing group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #summarizingLong(ToLongFunction)
+     */
+    public static <T, K>
+    Collector<T, ?, Map<K, LongSummaryStatistics>>
+    groupingBySummarizingLong(Function<? super T, ? extends K> classifier,
+                              ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(classifier);
+        Objects.requireNonNull(mapper);
+        return new CollectorImpl<>(
+                () -> new LongGroupTable<K>(LongGroupTable.SUMMARIZE),
+                (a, t) -> a.add(classifier.apply(t), mapper.applyAsLong(t)),
+                LongGroupTable::merge,
+                a -> a.toMap(LongGroupTable.SUMMARIZE),
+                CH_NOID);
+    }
+
     /**
      * Returns a {@code Collector} which partitions the input elements according
      * to a {@code Predicate}, and organizes them into a
@@ -1534,6 +1653,169 @@ public final class Collectors {
                 (l, r) -> { l.combine(r); return l; }, CH_ID);
     }
 
+    /**
+     * Accumulation table used by groupingByCounting, groupingBySummingLong
+     * and groupingBySummarizingLong.  Keys are kept in an open-addressed,
+     * linear-probing table, and the count, sum, minimum and maximum of each
+     * key in parallel primitive arrays at the same index, allocated only as
+     * needed by the mode, so accumulating an element allocates nothing
+     * unless it adds a key.  The table is at most half full.
+     */
+    static final class LongGroupTable<K> {
+        // Modes, also selecting the value type produced by toMap
+        static final int COUNT = 0;
+        static final int SUM = 1;
+        static final int SUMMARIZE = 2;
+
+        private Object[] keys = new Object[16];
+        private long[] counts;
+        private long[] sums;
+        private long[] mins;
+        private long[] maxs;
+        private int size;
+
+        LongGroupTable(int mode) {
+            int n = keys.length;
+            if (mode != SUM)
+                counts = new long[n];
+            if (mode != COUNT)
+                sums = new long[n];
+            if (mode == SUMMARIZE) {
+                mins = new long[n];
+                maxs = new long[n];
+            }
+        }
+
+        private static int hash(Object key) {
+            int h = key.hashCode();
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * Returns the index of the given key, adding it if absent.
+         */
+        private int indexOf(Object key) {
+            Object[] ks = keys;
+            int mask = ks.length - 1;
+            int i = hash(key) & mask;
+            for (Object k; (k = ks[i]) != null; i = (i + 1) & mask) {
+                if (k == key || k.equals(key))
+                    return i;
+            }
+            if (++size > ks.length >>> 1) {
+                resize();
+                ks = keys;
+                mask = ks.length - 1;
+                i = hash(key) & mask;
+                while (ks[i] != null)
+                    i = (i + 1) & mask;
+            }
+            ks[i] = key;
+            if (mins != null) {
+                mins[i] = Long.MAX_VALUE;
+                maxs[i] = Long.MIN_VALUE;
+            }
+            return i;
+        }
+
+        private void resize() {
+            Object[] oldKeys = keys;
+            long[] oldCounts = counts, oldSums = sums, oldMins = mins, oldMaxs = maxs;
+            int n = oldKeys.length << 1, mask = n - 1;
+            Object[] ks = keys = new Object[n];
+            if (oldCounts != null)
+                counts = new long[n];
+            if (oldSums != null)
+                sums = new long[n];
+            if (oldMins != null) {
+                mins = new long[n];
+                maxs = new long[n];
+            }
+            for (int j = 0; j < oldKeys.length; j++) {
+                Object k = oldKeys[j];
+                if (k == null)
+                    continue;
+                int i = hash(k) & mask;
+                while (ks[i] != null)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+                if (oldCounts != null)
+                    counts[i] = oldCounts[j];
+                if (oldSums != null)
+                    sums[i] = oldSums[j];
+                if (oldMins != null) {
+                    mins[i] = oldMins[j];
+                    maxs[i] = oldMaxs[j];
+                }
+            }
+        }
+
+        void add(Object key, long value) {
+            int i = indexOf(Objects.requireNonNull(key, "element cannot be mapped to a null key"));
+            if (counts != null)
+                counts[i]++;
+            if (sums != null)
+                sums[i] += value;
+            if (mins != null) {
+                if (value < mins[i])
+                    mins[i] = value;
+                if (value > maxs[i])
+                    maxs[i] = value;
+            }
+        }
+
+        /**
+         * Merges the smaller of this table and the given one into the
+         * larger, and returns the larger.
+         */
+        LongGroupTable<K> merge(LongGroupTable<K> other) {
+            if (other.size > size)
+                return other.merge(this);
+            Object[] oks = other.keys;
+            for (int j = 0; j < oks.length; j++) {
+                Object k = oks[j];
+                if (k == null)
+                    continue;
+                int i = indexOf(k);
+                if (counts != null)
+                    counts[i] += other.counts[j];
+                if (sums != null)
+                    sums[i] += other.sums[j];
+                if (mins != null) {
+                    if (other.mins[j] < mins[i])
+                        mins[i] = other.mins[j];
+                    if (other.maxs[j] > maxs[i])
+                        maxs[i] = other.maxs[j];
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Returns a map from each key to its count, sum or statistics,
+         * according to the given mode.
+         */
+        @SuppressWarnings("unchecked")
+        <V> Map<K, V> toMap(int mode) {
+            Map<K, V> m = new HashMap<>(Math.max((int) (size / .75f) + 1, 16));
+            Object[] ks = keys;
+            for (int i = 0; i < ks.length; i++) {
+                Object k = ks[i];
+                if (k == null)
+                    continue;
+                Object v;
+                if (mode == COUNT)
+                    v = counts[i];
+                else if (mode == SUM)
+                    v = sums[i];
+                else
+                    v = new LongSummaryStatistics(counts[i], mins[i], maxs[i], sums[i]);
+                m.put((K) k, (V) v);
+            }
+            return m;
+        }
+    }
+
     /**
      * Implementation class used by partitioningBy.
      */
@@ -282,7 +282,7 @@ final class FindOps {
 
         @Override
         protected O doLeaf() {
-            O result = helper.wrapAndCopyInto(op.sinkSupplier.get(), spliterator).get();
+            O result = copyIntoLeaf(op.sinkSupplier.get()).get();
             if (!op.mustFindFirst) {
                 if (result != null)
                     shortCircuit(result);
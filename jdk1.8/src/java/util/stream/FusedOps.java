@@ -0,0 +1,300 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Factory for reductions that evaluate a short sequential {@code int} or
+ * {@code long} pipeline as a single loop.  The source spliterator feeds a
+ * {@link FusedSink} that applies the {@code map} and {@code filter}
+ * functions of the pipeline's stages (see {@link
+ * AbstractPipeline#opFusedKind}) and then accumulates the element, so that
+ * evaluation creates one object besides the result, instead of a wrapped
+ * {@code Sink} per stage, a terminal operation and its sink.
+ *
+ * <p>Each method requires that {@link AbstractPipeline#canEvaluateFused}
+ * returned {@code true} for the pipeline, and produces the same result as
+ * the corresponding method of {@link ReduceOps} would.
+ *
+ * @since 1.8
+ */
+final class FusedOps {
+
+    private FusedOps() { }
+
+    /**
+     * A consumer of source elements that first applies the functions of up
+     * to {@link AbstractPipeline#MAX_FUSED_DEPTH} intermediate stages, set
+     * by {@link AbstractPipeline#evaluateFused} in pipeline order.
+     */
+    abstract static class FusedSink {
+        int kind1, kind2;
+        Object fn1, fn2;
+
+        /**
+         * Passes every remaining element of the given source spliterator to
+         * this sink.
+         *
+         * @param spliterator the source spliterator
+         */
+        abstract void copyFrom(Spliterator<?> spliterator);
+    }
+
+    /** A {@code FusedSink} for {@code int} elements. */
+    abstract static class OfInt extends FusedSink implements IntConsumer {
+        @Override
+        public final void accept(int t) {
+            int k;
+            if ((k = kind1) != AbstractPipeline.FUSED_NONE) {
+                if (k == AbstractPipeline.FUSED_MAP)
+                    t = ((IntUnaryOperator) fn1).applyAsInt(t);
+                else if (!((IntPredicate) fn1).test(t))
+                    return;
+                if ((k = kind2) != AbstractPipeline.FUSED_NONE) {
+                    if (k == AbstractPipeline.FUSED_MAP)
+                        t = ((IntUnaryOperator) fn2).applyAsInt(t);
+                    else if (!((IntPredicate) fn2).test(t))
+                        return;
+                }
+            }
+            accumulate(t);
+        }
+
+        /** Accumulates an element that passed the pipeline's stages. */
+        abstract void accumulate(int t);
+
+        @Override
+        final void copyFrom(Spliterator<?> spliterator) {
+            ((Spliterator.OfInt) spliterator).forEachRemaining(this);
+        }
+    }
+
+    /** A {@code FusedSink} for {@code long} elements. */
+    abstract static class OfLong extends FusedSink implements LongConsumer {
+        @Override
+        public final void accept(long t) {
+            int k;
+            if ((k = kind1) != AbstractPipeline.FUSED_NONE) {
+                if (k == AbstractPipeline.FUSED_MAP)
+                    t = ((LongUnaryOperator) fn1).applyAsLong(t);
+                else if (!((LongPredicate) fn1).test(t))
+                    return;
+                if ((k = kind2) != AbstractPipeline.FUSED_NONE) {
+                    if (k == AbstractPipeline.FUSED_MAP)
+                        t = ((LongUnaryOperator) fn2).applyAsLong(t);
+                    else if (!((LongPredicate) fn2).test(t))
+                        return;
+                }
+            }
+            accumulate(t);
+        }
+
+        /** Accumulates an element that passed the pipeline's stages. */
+        abstract void accumulate(long t);
+
+        @Override
+        final void copyFrom(Spliterator<?> spliterator) {
+            ((Spliterator.OfLong) spliterator).forEachRemaining(this);
+        }
+    }
+
+    /**
+     * Evaluates a functional reduce on {@code int} values.
+     *
+     * @param pipeline the pipeline to evaluate
+     * @param identity the identity for the combining function
+     * @param operator the combining function
+     * @return the result of the reduction
+     */
+    static int reduceInt(IntPipeline<?> pipeline, int identity,
+                         IntBinaryOperator operator) {
+        Objects.requireNonNull(operator);
+        class ReducingSink extends OfInt {
+            int state = identity;
+
+            @Override
+            void accumulate(int t) {
+                state = operator.applyAsInt(state, t);
+            }
+        }
+        ReducingSink sink = new ReducingSink();
+        pipeline.evaluateFused(sink);
+        return sink.state;
+    }
+
+    /**
+     * Evaluates a functional reduce on {@code int} values, with no
+     * identity.
+     *
+     * @param pipeline the pipeline to evaluate
+     * @param operator the combining function
+     * @return the result of the reduction, empty if there were no elements
+     */
+    static OptionalInt reduceInt(IntPipeline<?> pipeline,
+                                 IntBinaryOperator operator) {
+        Objects.requireNonNull(operator);
+        class ReducingSink extends OfInt {
+            boolean empty = true;
+            int state;
+
+            @Override
+            void accumulate(int t) {
+                if (empty) {
+                    empty = false;
+                    state = t;
+                }
+                else {
+                    state = operator.applyAsInt(state, t);
+                }
+            }
+        }
+        ReducingSink sink = new ReducingSink();
+        pipeline.evaluateFused(sink);
+        return sink.empty ? OptionalInt.empty() : OptionalInt.of(sink.state);
+    }
+
+    /**
+     * Evaluates a mutable reduce on {@code int} values.
+     *
+     * @param <R> the type of the result
+     * @param pipeline the pipeline to evaluate
+     * @param supplier a factory for the result container
+     * @param accumulator a function to incorporate an element into the
+     *        container
+     * @return the result container
+     */
+    static <R> R collectInt(IntPipeline<?> pipeline, Supplier<R> supplier,
+                            ObjIntConsumer<R> accumulator) {
+        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(accumulator);
+        class ReducingSink extends OfInt {
+            final R state = supplier.get();
+
+            @Override
+            void accumulate(int t) {
+                accumulator.accept(state, t);
+            }
+        }
+        ReducingSink sink = new ReducingSink();
+        pipeline.evaluateFused(sink);
+        return sink.state;
+    }
+
+    /**
+     * Evaluates a functional reduce on {@code long} values.
+     *
+     * @param pipeline the pipeline to evaluate
+     * @param identity the identity for the combining function
+     * @param operator the combining function
+     * @return the result of the reduction
+     */
+    static long reduceLong(LongPipeline<?> pipeline, long identity,
+                           LongBinaryOperator operator) {
+        Objects.requireNonNull(operator);
+        class ReducingSink extends OfLong {
+            long state = identity;
+
+            @Override
+            void accumulate(long t) {
+                state = operator.applyAsLong(state, t);
+            }
+        }
+        ReducingSink sink = new ReducingSink();
+        pipeline.evaluateFused(sink);
+        return sink.state;
+    }
+
+    /**
+     * Evaluates a functional reduce on {@code long} values, with no
+     * identity.
+     *
+     * @param pipeline the pipeline to evaluate
+     * @param operator the combining function
+     * @return the result of the reduction, empty if there were no elements
+     */
+    static OptionalLong reduceLong(LongPipeline<?> pipeline,
+                                   LongBinaryOperator operator) {
+        Objects.requireNonNull(operator);
+        class ReducingSink extends OfLong {
+            boolean empty = true;
+            long state;
+
+            @Override
+            void accumulate(long t) {
+                if (empty) {
+                    empty = false;
+                    state = t;
+                }
+                else {
+                    state = operator.applyAsLong(state, t);
+                }
+            }
+        }
+        ReducingSink sink = new ReducingSink();
+        pipeline.evaluateFused(sink);
+        return sink.empty ? OptionalLong.empty() : OptionalLong.of(sink.state);
+    }
+
+    /**
+     * Evaluates a mutable reduce on {@code long} values.
+     *
+     * @param <R> the type of the result
+     * @param pipeline the pipeline to evaluate
+     * @param supplier a factory for the result container
+     * @param accumulator a function to incorporate an element into the
+     *        container
+     * @return the result container
+     */
+    static <R> R collectLong(LongPipeline<?> pipeline, Supplier<R> supplier,
+                             ObjLongConsumer<R> accumulator) {
+        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(accumulator);
+        class ReducingSink extends OfLong {
+            final R state = supplier.get();
+
+            @Override
+            void accumulate(long t) {
+                accumulator.accept(state, t);
+            }
+        }
+        ReducingSink sink = new ReducingSink();
+        pipeline.evaluateFused(sink);
+        return sink.state;
+    }
+}
@@ -234,6 +234,16 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
+
+            @Override
+            int opFusedKind() {
+                return FUSED_MAP;
+            }
+
+            @Override
+            Object opFusedFunction() {
+                return mapper;
+            }
         };
     }
 
@@ -345,6 +355,16 @@ abstract class IntPipeline<E_IN>
                     }
                 };
             }
+
+            @Override
+            int opFusedKind() {
+                return FUSED_FILTER;
+            }
+
+            @Override
+            Object opFusedFunction() {
+                return predicate;
+            }
         };
     }
 
@@ -453,11 +473,15 @@ abstract class IntPipeline<E_IN>
 
     @Override
     public final int reduce(int identity, IntBinaryOperator op) {
+        if (canEvaluateFused())
+            return FusedOps.reduceInt(this, identity, op);
         return evaluate(ReduceOps.makeInt(identity, op));
     }
 
     @Override
     public final OptionalInt reduce(IntBinaryOperator op) {
+        if (canEvaluateFused())
+            return FusedOps.reduceInt(this, op);
         return evaluate(ReduceOps.makeInt(op));
     }
 
@@ -465,6 +489,9 @@ abstract class IntPipeline<E_IN>
     public final <R> R collect(Supplier<R> supplier,
                                ObjIntConsumer<R> accumulator,
                                BiConsumer<R, R> combiner) {
+        Objects.requireNonNull(combiner);
+        if (canEvaluateFused())
+            return FusedOps.collectInt(this, supplier, accumulator);
         BinaryOperator<R> operator = (left, right) -> {
             combiner.accept(left, right);
             return left;
@@ -215,6 +215,16 @@ abstract class LongPipeline<E_IN>
                     }
                 };
             }
+
+            @Override
+            int opFusedKind() {
+                return FUSED_MAP;
+            }
+
+            @Override
+            Object opFusedFunction() {
+                return mapper;
+            }
         };
     }
 
@@ -326,6 +336,16 @@ abstract class LongPipeline<E_IN>
                     }
                 };
             }
+
+            @Override
+            int opFusedKind() {
+                return FUSED_FILTER;
+            }
+
+            @Override
+            Object opFusedFunction() {
+                return predicate;
+            }
         };
     }
 
@@ -435,11 +455,15 @@ abstract class LongPipeline<E_IN>
 
     @Override
     public final long reduce(long identity, LongBinaryOperator op) {
+        if (canEvaluateFused())
+            return FusedOps.reduceLong(this, identity, op);
         return evaluate(ReduceOps.makeLong(identity, op));
     }
 
     @Override
     public final OptionalLong reduce(LongBinaryOperator op) {
+        if (canEvaluateFused())
+            return FusedOps.reduceLong(this, op);
         return evaluate(ReduceOps.makeLong(op));
     }
 
@@ -447,6 +471,9 @@ abstract class LongPipeline<E_IN>
     public final <R> R collect(Supplier<R> supplier,
                                ObjLongConsumer<R> accumulator,
                                BiConsumer<R, R> combiner) {
+        Objects.requireNonNull(combiner);
+        if (canEvaluateFused())
+            return FusedOps.collectLong(this, supplier, accumulator);
         BinaryOperator<R> operator = (left, right) -> {
             combiner.accept(left, right);
             return left;
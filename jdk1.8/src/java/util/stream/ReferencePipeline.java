@@ -394,6 +394,14 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         return SortedOps.makeRef(this, comparator);
     }
 
+    @Override
+    public final Stream<P_OUT> sorted(Comparator<? super P_OUT> comparator,
+                                      int maxBufferedElements) {
+        if (maxBufferedElements <= 0)
+            throw new IllegalArgumentException(Integer.toString(maxBufferedElements));
+        return SortedOps.makeRef(this, comparator, maxBufferedElements);
+    }
+
     @Override
     public final Stream<P_OUT> limit(long maxSize) {
         if (maxSize < 0)
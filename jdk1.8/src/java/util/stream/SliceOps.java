@@ -143,14 +143,8 @@ final class SliceOps {
                             skip, limit, size);
                 }
                 else {
-                    // @@@ OOMEs will occur for LongStream.longs().filter(i -> true).limit(n)
-                    //     regardless of the value of n
-                    //     Need to adjust the target size of splitting for the
-                    //     SliceTask from say (size / k) to say min(size / k, 1 << 14)
-                    //     This will limit the size of the buffers created at the leaf nodes
-                    //     cancellation will be more aggressive cancelling later tasks
-                    //     if the target slice size has been reached from a given task,
-                    //     cancellation should also clear local results if any
+                    // Leaf tasks buffer at most skip + limit elements, and
+                    // stop once a task to their left completes the slice
                     return new SliceTask<>(this, helper, spliterator, castingArray(), skip, limit).
                             invoke().spliterator();
                 }
@@ -609,8 +603,10 @@ final class SliceOps {
                 return nb.build();
             }
             else {
-                Node<P_OUT> node = helper.wrapAndCopyInto(helper.makeNodeBuilder(-1, generator),
-                                                          spliterator).build();
+                // Elements of a leaf past the first skip + limit ones lie
+                // beyond the slice fence, whichever leaves are to its left
+                Node<P_OUT> node = copyIntoLeaf(helper.makeNodeBuilder(-1, generator),
+                                                calcSliceFence(targetOffset, targetSize)).build();
                 thisNodeSize = node.count();
                 completed = true;
                 spliterator = null;
@@ -24,12 +24,27 @@
  */
 package java.util.stream;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Spliterator;
 import java.util.function.IntFunction;
+import sun.misc.Cleaner;
 
 
 /**
@@ -63,6 +78,21 @@ final class SortedOps {
         return new OfRef<>(upstream, comparator);
     }
 
+    /**
+     * Appends a "sorted" operation to the provided stream, that sorts in
+     * runs of bounded size and merges them through a temporary file.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param comparator the comparator to order elements by
+     * @param runSize the maximum number of elements sorted in memory
+     */
+    static <T> Stream<T> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                Comparator<? super T> comparator,
+                                int runSize) {
+        return new OfRef<>(upstream, comparator, runSize);
+    }
+
     /**
      * Appends a "sorted" operation to the provided stream.
      *
@@ -103,6 +133,11 @@ final class SortedOps {
         private final boolean isNaturalSort;
         private final Comparator<? super T> comparator;
 
+        /**
+         * Maximum number of elements sorted in memory, or 0 if unbounded
+         */
+        private final int runSize;
+
         /**
          * Sort using natural order of {@literal <T>} which must be
          * {@code Comparable}.
@@ -115,6 +150,7 @@ final class SortedOps {
             @SuppressWarnings("unchecked")
             Comparator<? super T> comp = (Comparator<? super T>) Comparator.naturalOrder();
             this.comparator = comp;
+            this.runSize = 0;
         }
 
         /**
@@ -123,10 +159,24 @@ final class SortedOps {
          * @param comparator The comparator to be used to evaluate ordering.
          */
         OfRef(AbstractPipeline<?, T, ?> upstream, Comparator<? super T> comparator) {
+            this(upstream, comparator, 0);
+        }
+
+        /**
+         * Sort using the provided comparator, in runs of at most
+         * {@code runSize} elements if {@code runSize} is positive.
+         *
+         * @param comparator The comparator to be used to evaluate ordering.
+         * @param runSize The maximum number of elements sorted in memory,
+         *        or 0 if unbounded.
+         */
+        OfRef(AbstractPipeline<?, T, ?> upstream, Comparator<? super T> comparator,
+              int runSize) {
             super(upstream, StreamShape.REFERENCE,
                   StreamOpFlag.IS_ORDERED | StreamOpFlag.NOT_SORTED);
             this.isNaturalSort = false;
             this.comparator = Objects.requireNonNull(comparator);
+            this.runSize = runSize;
         }
 
         @Override
@@ -137,6 +187,8 @@ final class SortedOps {
             // also naturally sorted then this is a no-op
             if (StreamOpFlag.SORTED.isKnown(flags) && isNaturalSort)
                 return sink;
+            else if (runSize > 0)
+                return new ExternalRefSortingSink<>(sink, comparator, runSize);
             else if (StreamOpFlag.SIZED.isKnown(flags))
                 return new SizedRefSortingSink<>(sink, comparator);
             else
@@ -405,6 +457,319 @@ final class SortedOps {
         }
     }
 
+    /**
+     * {@link Sink} for implementing sort on reference streams with a bounded
+     * number of elements held in memory.
+     * <p>
+     * Elements are buffered until {@code runSize} have been accepted; the
+     * buffer is then sorted, with {@link Arrays#parallelSort}, and appended
+     * to a temporary file as a run of serialized elements.  At the end of
+     * the sink protocol the last run is sorted in memory, and all runs are
+     * merged through a priority queue ordered by each run's current element,
+     * ties going to the earlier run so that the sort is stable.  Each run in
+     * the file is read through its own positional stream, so only one file,
+     * deleted when closed, is needed however many runs there are.  The file
+     * is closed at the end of the sink protocol or when writing a run fails,
+     * and, through a {@code Cleaner}, once the sink becomes unreachable if
+     * the protocol was abandoned because another stage threw.  If no run was
+     * spilled this behaves as {@link SizedRefSortingSink}.
+     */
+    private static final class ExternalRefSortingSink<T> extends AbstractRefSortingSink<T> {
+        /** Buffer size of the streams reading and writing runs */
+        private static final int BUFFER_SIZE = 8192;
+
+        /**
+         * Elements are written unshared, but objects they reference are
+         * still kept reachable by the handle tables of the writing and
+         * reading streams until a reset.  Run i is reset every
+         * runSize / (RESET_DIVISOR * (i + 1)) elements, so that while all
+         * runs are merged their reading streams together hold about
+         * runSize * ln(runs) / RESET_DIVISOR elements, without resetting
+         * (and repeating class descriptors) on every element.
+         */
+        static final int RESET_DIVISOR = 64;
+
+        private final int runSize;
+        private T[] array;
+        private int offset;
+        private FileChannel channel;
+        // Closes channel, deleting the file, if this sink is dropped
+        // without end() being called, as when an upstream stage throws
+        private Cleaner cleaner;
+        // Start of each spilled run in the file, and its number of elements
+        private long[] runStarts;
+        private int[] runCounts;
+        private int runs;
+        private long spilled;
+        private long fileEnd;
+
+        ExternalRefSortingSink(Sink<? super T> sink, Comparator<? super T> comparator,
+                               int runSize) {
+            super(sink, comparator);
+            this.runSize = runSize;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void begin(long size) {
+            int n = (size >= 0 && size < runSize) ? (int) size : Math.min(runSize, 1024);
+            array = (T[]) new Object[Math.max(n, 1)];
+        }
+
+        @Override
+        public void accept(T t) {
+            if (offset == array.length) {
+                if (offset == runSize)
+                    spill();
+                else
+                    array = Arrays.copyOf(array, (int) Math.min(runSize, (long) offset << 1));
+            }
+            array[offset++] = t;
+        }
+
+        @Override
+        public void end() {
+            try {
+                Arrays.parallelSort(array, 0, offset, comparator);
+                if (runs == 0) {
+                    downstream.begin(offset);
+                    for (int i = 0; i < offset; i++) {
+                        if (cancellationWasRequested && downstream.cancellationRequested())
+                            break;
+                        downstream.accept(array[i]);
+                    }
+                    downstream.end();
+                }
+                else {
+                    merge();
+                }
+            }
+            finally {
+                array = null;
+                close();
+            }
+        }
+
+        /**
+         * Sorts the full buffer and appends it to the file as a new run.
+         */
+        private void spill() {
+            boolean written = false;
+            try {
+                Arrays.parallelSort(array, 0, offset, comparator);
+                if (channel == null) {
+                    FileChannel c = FileChannel.open(Files.createTempFile("sorted", ".run"),
+                                                     StandardOpenOption.READ,
+                                                     StandardOpenOption.WRITE,
+                                                     StandardOpenOption.DELETE_ON_CLOSE);
+                    channel = c;
+                    cleaner = Cleaner.create(this, new ChannelCloser(c));
+                    runStarts = new long[4];
+                    runCounts = new int[4];
+                }
+                if (runs == runStarts.length) {
+                    runStarts = Arrays.copyOf(runStarts, runs << 1);
+                    runCounts = Arrays.copyOf(runCounts, runs << 1);
+                }
+                runStarts[runs] = channel.position();
+                // 不能 close：会关闭底层 channel
+                ObjectOutputStream out = new ObjectOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+                int interval = (int) Math.max(1L, runSize / (RESET_DIVISOR * (runs + 1L)));
+                for (int i = 0; i < offset; i++) {
+                    // 定期 reset，避免句柄表持有整个 run 的元素
+                    if (i > 0 && i % interval == 0)
+                        out.reset();
+                    out.writeUnshared(array[i]);
+                }
+                out.flush();
+                fileEnd = channel.position();
+                written = true;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finally {
+                if (!written)
+                    close();
+            }
+            runCounts[runs++] = offset;
+            spilled += offset;
+            Arrays.fill(array, 0, offset, null);
+            offset = 0;
+        }
+
+        /**
+         * Pushes the spilled runs and the in-memory run downstream in order.
+         */
+        private void merge() {
+            PriorityQueue<Run<T>> queue = new PriorityQueue<>(runs + 1, (a, b) -> {
+                int c = comparator.compare(a.head, b.head);
+                return (c != 0) ? c : Integer.compare(a.index, b.index);
+            });
+            for (int i = 0; i < runs; i++) {
+                long end = (i + 1 < runs) ? runStarts[i + 1] : fileEnd;
+                Run<T> r = new FileRun<>(i, channel, runStarts[i], end, runCounts[i]);
+                if (r.advance())
+                    queue.add(r);
+            }
+            Run<T> last = new ArrayRun<>(runs, array, offset);
+            if (last.advance())
+                queue.add(last);
+
+            downstream.begin(spilled + offset);
+            Run<T> r;
+            while ((r = queue.poll()) != null) {
+                if (cancellationWasRequested && downstream.cancellationRequested())
+                    break;
+                downstream.accept(r.head);
+                if (r.advance())
+                    queue.add(r);
+            }
+            downstream.end();
+        }
+
+        private void close() {
+            Cleaner c = cleaner;
+            if (c != null) {
+                cleaner = null;
+                channel = null;
+                c.clean();
+            }
+        }
+    }
+
+    /**
+     * Closes the channel of the runs of an {@code ExternalRefSortingSink},
+     * which deletes the file.
+     */
+    private static final class ChannelCloser implements Runnable {
+        private final FileChannel channel;
+
+        ChannelCloser(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            try {
+                channel.close();
+            }
+            catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * A sorted run being merged, positioned at its current element.
+     */
+    private static abstract class Run<T> {
+        final int index;
+        T head;
+
+        Run(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Moves to the next element of the run.
+         *
+         * @return false if the run is exhausted
+         */
+        abstract boolean advance();
+    }
+
+    private static final class ArrayRun<T> extends Run<T> {
+        private final T[] array;
+        private final int fence;
+        private int next;
+
+        ArrayRun(int index, T[] array, int fence) {
+            super(index);
+            this.array = array;
+            this.fence = fence;
+        }
+
+        @Override
+        boolean advance() {
+            if (next >= fence)
+                return false;
+            head = array[next++];
+            return true;
+        }
+    }
+
+    private static final class FileRun<T> extends Run<T> {
+        private final InputStream source;
+        private ObjectInputStream in;
+        private int remaining;
+
+        FileRun(int index, FileChannel channel, long start, long end, int count) {
+            super(index);
+            this.source = new BufferedInputStream(new RunInputStream(channel, start, end),
+                                                  ExternalRefSortingSink.BUFFER_SIZE);
+            this.remaining = count;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        boolean advance() {
+            if (remaining == 0) {
+                head = null;
+                in = null;
+                return false;
+            }
+            try {
+                if (in == null)
+                    in = new ObjectInputStream(source);
+                head = (T) in.readUnshared();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            catch (ClassNotFoundException e) {
+                InvalidClassException ice = new InvalidClassException(e.getMessage());
+                ice.initCause(e);
+                throw new UncheckedIOException(ice);
+            }
+            remaining--;
+            return true;
+        }
+    }
+
+    /**
+     * An {@code InputStream} over a range of a {@code FileChannel}, using
+     * positional reads so that several may read the same channel.
+     */
+    private static final class RunInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        RunInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return (read(b, 0, 1) == 1) ? (b[0] & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end)
+                return -1;
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)),
+                                 position);
+            if (n > 0)
+                position += n;
+            return n;
+        }
+    }
+
     /**
      * Abstract {@link Sink} for implementing sort on int streams.
      */
@@ -391,6 +391,55 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> sorted(Comparator<? super T> comparator);
 
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to the provided {@code Comparator}, holding at most
+     * {@code maxBufferedElements} elements in memory at a time.
+     *
+     * <p>Elements are sorted in runs of at most {@code maxBufferedElements}
+     * elements.  When there are more elements than fit in one run, each full
+     * run is written to a temporary file, using Java serialization, and the
+     * sorted runs are then merged as the sorted elements are pushed
+     * downstream.  This allows sorting streams with more elements than fit in
+     * memory, at the cost of writing and reading each element once.  If all
+     * elements fit in one run no file is created.
+     *
+     * <p>For ordered streams, the sort is stable.  For unordered streams, no
+     * stability guarantees are made.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * The memory bound applies to sequential pipelines evaluated by a terminal
+     * operation that consumes elements as they are produced, such as
+     * {@code forEach}, {@code reduce} or {@code collect}.  A parallel pipeline,
+     * or the {@link #iterator()} or {@link #spliterator()} of a sorted stream,
+     * may still buffer all the elements in memory.
+     *
+     * @implSpec
+     * The default implementation ignores {@code maxBufferedElements} and
+     * returns {@code sorted(comparator)}.
+     *
+     * @param comparator a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                   <a href="package-summary.html#Statelessness">stateless</a>
+     *                   {@code Comparator} to be used to compare stream elements
+     * @param maxBufferedElements the maximum number of elements sorted in
+     *                   memory at a time
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code maxBufferedElements} is not
+     *         positive
+     * @throws java.io.UncheckedIOException if the terminal operation fails to
+     *         write or read a temporary file, including when an element is not
+     *         serializable
+     */
+    default Stream<T> sorted(Comparator<? super T> comparator,
+                             int maxBufferedElements) {
+        if (maxBufferedElements <= 0)
+            throw new IllegalArgumentException(Integer.toString(maxBufferedElements));
+        return sorted(comparator);
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed